@@ -0,0 +1,23 @@
+package ee.taltech.inbankbackend.DTOs;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Holds the request data of the asynchronous REST endpoint: a loan application and the URL
+ * the decision is delivered to. The product is optional; requests without one are decided as the default
+ * loan product.
+ */
+@Getter
+@AllArgsConstructor(onConstructor_ = @JsonCreator)
+public class AsyncDecisionRequest {
+    private String personalCode;
+    private Long loanAmount;
+    private int loanPeriod;
+    private String countryCode;
+    private Long monthlyIncome;
+    private Long monthlyDebt;
+    private String product;
+    private String callbackUrl;
+}
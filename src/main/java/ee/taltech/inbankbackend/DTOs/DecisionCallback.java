@@ -0,0 +1,23 @@
+package ee.taltech.inbankbackend.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Holds a decision delivered to a partner's callback URL. The status is the HTTP status
+ * the synchronous endpoint would have answered with.
+ */
+@Getter
+@AllArgsConstructor
+public class DecisionCallback {
+    private final String id;
+    private final int status;
+    private final Integer loanAmount;
+    private final Integer loanPeriod;
+    private final String errorMessage;
+    private final BigDecimal annualInterestRate;
+    private final BigDecimal monthlyPayment;
+    private final BigDecimal apr;
+}
@@ -1,16 +1,26 @@
 package ee.taltech.inbankbackend.DTOs;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 /**
- * Holds the request data of the REST endpoint
+ * Holds the request data of the REST endpoint.
+ * The monthly income and debt are optional and only used by the credit policy rules.
+ * The product is optional too; requests without one are decided as the default loan product.
  */
 @Getter
-@AllArgsConstructor
+@AllArgsConstructor(onConstructor_ = @JsonCreator)
 public class DecisionRequest {
     private String personalCode;
     private Long loanAmount;
     private int loanPeriod;
     private String countryCode;
+    private Long monthlyIncome;
+    private Long monthlyDebt;
+    private String product;
+
+    public DecisionRequest(String personalCode, Long loanAmount, int loanPeriod, String countryCode) {
+        this(personalCode, loanAmount, loanPeriod, countryCode, null, null, null);
+    }
 }
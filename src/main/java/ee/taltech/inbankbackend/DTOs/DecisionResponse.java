@@ -2,16 +2,20 @@ package ee.taltech.inbankbackend.DTOs;
 
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
 
 /**
- * Holds the response data of the REST endpoint.
+ * Holds the response data of the REST endpoint. A new one is created for every request.
  */
 @Getter
 @Setter
-@Component
 public class DecisionResponse {
+    private String applicationId;
     private Integer loanAmount;
     private Integer loanPeriod;
     private String errorMessage;
+    private BigDecimal annualInterestRate;
+    private BigDecimal monthlyPayment;
+    private BigDecimal apr;
 }
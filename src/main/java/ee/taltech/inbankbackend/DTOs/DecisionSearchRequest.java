@@ -0,0 +1,14 @@
+package ee.taltech.inbankbackend.DTOs;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Holds the request data of the decision search endpoint. The personal ID code is sent in the body so that it
+ * does not end up in URLs and access logs.
+ */
+@Getter
+@Setter
+public class DecisionSearchRequest {
+    private String personalCode;
+}
@@ -0,0 +1,14 @@
+package ee.taltech.inbankbackend.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Holds the response data of the asynchronous REST endpoint.
+ */
+@Getter
+@AllArgsConstructor
+public class SubmissionResponse {
+    private final String id;
+    private final String errorMessage;
+}
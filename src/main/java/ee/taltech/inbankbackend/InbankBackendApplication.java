@@ -1,24 +1,16 @@
 package ee.taltech.inbankbackend;
 
-import com.github.vladislavgoltjajev.personalcode.locale.estonia.EstonianPersonalCodeGenerator;
+import ee.taltech.inbankbackend.config.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-
-import java.time.LocalDate;
-import java.time.Period;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class InbankBackendApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(InbankBackendApplication.class, args);
-        EstonianPersonalCodeGenerator generator = new EstonianPersonalCodeGenerator();
-        for (int i = 0; i < 10; i++) {
-            String personalCode = generator.generateRandomPersonalCode(); System.out.println(personalCode);
-        }
-
-
-
     }
 
 }
@@ -0,0 +1,107 @@
+package ee.taltech.inbankbackend.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limiter that adjusts its limit from the measured service time of admitted requests
+ * using additive increase / multiplicative decrease (AIMD).
+ * While requests finish within the target latency and the limit is actually being used, the limit grows
+ * by roughly one per limit-sized window of requests. When a request is slower than the target, the limit
+ * is multiplied by the backoff ratio, at most once per target latency interval.
+ * Requests over the limit are rejected immediately, because queueing them would only add to the latency
+ * the limiter is trying to protect.
+ */
+@Component
+@ConditionalOnProperty(name = "admission.concurrency.mode", havingValue = "adaptive")
+public class AdaptiveConcurrencyLimiter implements ConcurrencyLimiter {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits;
+    private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime());
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+
+    @Autowired
+    public AdaptiveConcurrencyLimiter(@Value("${admission.adaptive.initial-limit:16}") int initialLimit,
+                                      @Value("${admission.adaptive.min-limit:2}") int minLimit,
+                                      @Value("${admission.adaptive.max-limit:256}") int maxLimit,
+                                      @Value("${admission.adaptive.target-latency-ms:50}") long targetLatencyMillis,
+                                      @Value("${admission.adaptive.backoff-ratio:0.9}") double backoffRatio,
+                                      MeterRegistry meterRegistry) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.backoffRatio = backoffRatio;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(Math.max(minLimit, Math.min(maxLimit, initialLimit))));
+        Gauge.builder("loan.admission.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("loan.admission.in_flight", inFlight, AtomicInteger::get)
+                .description("Number of decision requests being processed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void release(long serviceTimeNanos) {
+        int current = inFlight.getAndDecrement();
+        if (serviceTimeNanos > targetLatencyNanos) {
+            decreaseLimit();
+        } else if (current * 2 >= getLimit()) {
+            increaseLimit();
+        }
+    }
+
+    int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    private void increaseLimit() {
+        while (true) {
+            long bits = limitBits.get();
+            double limit = Double.longBitsToDouble(bits);
+            double increased = Math.min(maxLimit, limit + 1 / limit);
+            if (increased == limit || limitBits.compareAndSet(bits, Double.doubleToLongBits(increased))) {
+                return;
+            }
+        }
+    }
+
+    private void decreaseLimit() {
+        long now = System.nanoTime();
+        long last = lastDecrease.get();
+        if (now - last < targetLatencyNanos || !lastDecrease.compareAndSet(last, now)) {
+            return;
+        }
+        while (true) {
+            long bits = limitBits.get();
+            double decreased = Math.max(minLimit, Double.longBitsToDouble(bits) * backoffRatio);
+            if (limitBits.compareAndSet(bits, Double.doubleToLongBits(decreased))) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ee.taltech.inbankbackend.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.taltech.inbankbackend.DTOs.DecisionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Admission control in front of the decision endpoints, POST /loan/decision and /loan/decision/async.
+ * A request first has to fit into the rate limit of its API client and then get a slot from the global
+ * concurrency limiter. Rejected requests are answered with 429 Too Many Requests right away. Other requests,
+ * such as the decision lookups, pass untouched, so they neither use up rate limit tokens nor skew the
+ * latency the concurrency limiter adapts to. Paths are matched after decoding and removing ;parameters, the same
+ * way the controllers are mapped, so POST /loan/decision;x is limited too.
+ * <br><br>
+ * Clients are identified by their remote address. The client id header is only trusted on requests from
+ * admission.trusted-proxies, such as an API gateway that authenticates the partners and sets the header;
+ * anyone else could pick a new id for every request and never run out of tokens.
+ */
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Set<String> DECISION_PATHS = Set.of("/loan/decision", "/loan/decision/async");
+
+    private final ClientRateLimiter clientRateLimiter;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final ObjectMapper objectMapper;
+    private final String clientIdHeader;
+    private final Set<String> trustedProxies;
+    private final Counter admitted;
+    private final Counter rateLimited;
+    private final Counter shed;
+
+    @Autowired
+    public AdmissionControlFilter(ClientRateLimiter clientRateLimiter, ConcurrencyLimiter concurrencyLimiter,
+                                  ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                  @Value("${admission.client-id-header:X-Client-Id}") String clientIdHeader,
+                                  @Value("${admission.trusted-proxies:}") Set<String> trustedProxies) {
+        this.clientRateLimiter = clientRateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.objectMapper = objectMapper;
+        this.clientIdHeader = clientIdHeader;
+        this.trustedProxies = trustedProxies.stream().map(String::trim).filter(proxy -> !proxy.isEmpty())
+                .collect(Collectors.toSet());
+        this.admitted = admissionCounter(meterRegistry, "admitted");
+        this.rateLimited = admissionCounter(meterRegistry, "rate_limited");
+        this.shed = admissionCounter(meterRegistry, "shed");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = UrlPathHelper.defaultInstance.getLookupPathForRequest(request);
+        return !"POST".equals(request.getMethod()) || !DECISION_PATHS.contains(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!clientRateLimiter.tryAcquire(getClientId(request))) {
+            rateLimited.increment();
+            reject(response);
+            return;
+        }
+
+        boolean acquired;
+        try {
+            acquired = concurrencyLimiter.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            shed.increment();
+            reject(response);
+            return;
+        }
+
+        admitted.increment();
+        long admittedAt = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            concurrencyLimiter.release(System.nanoTime() - admittedAt);
+        }
+    }
+
+    String getClientId(HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        if (!trustedProxies.contains(remoteAddress)) {
+            return remoteAddress;
+        }
+        String clientId = request.getHeader(clientIdHeader);
+        return clientId == null || clientId.isBlank() ? remoteAddress : clientId;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        DecisionResponse body = new DecisionResponse();
+        body.setErrorMessage("Too many requests!");
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    private static Counter admissionCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("loan.admission.requests")
+                .description("Decision requests by admission control outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,85 @@
+package ee.taltech.inbankbackend.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps a token bucket per API client, so a single partner integration can not use up the capacity
+ * of the whole service. At most maxClients buckets are kept; a new client evicts the least recently used one
+ * in constant time, which at worst hands a client that has been quiet the longest a full bucket again.
+ * <br><br>
+ * The buckets are split into stripes by the hash of the client id, each with its own lock and an equal share of
+ * maxClients, so clients on different stripes never wait for each other. Eviction is least recently used within
+ * a stripe, which approximates it across all clients. Small limits keep one stripe and exact eviction order.
+ */
+@Component
+public class ClientRateLimiter {
+
+    private static final int MAX_STRIPES = 16;
+    private static final int MIN_CLIENTS_PER_STRIPE = 64;
+
+    private final Map<String, TokenBucket>[] stripes;
+    private final double requestsPerSecond;
+    private final int burst;
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public ClientRateLimiter(@Value("${admission.rate-limit.requests-per-second:50}") double requestsPerSecond,
+                             @Value("${admission.rate-limit.burst:100}") int burst,
+                             @Value("${admission.rate-limit.max-clients:10000}") int maxClients,
+                             MeterRegistry meterRegistry) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        int stripeCount = Math.max(1,
+                Math.min(MAX_STRIPES, Integer.highestOneBit(maxClients / MIN_CLIENTS_PER_STRIPE)));
+        int clientsPerStripe = Math.max(1, maxClients / stripeCount);
+        this.stripes = new Map[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                    return size() > clientsPerStripe;
+                }
+            };
+        }
+        Gauge.builder("loan.admission.clients", this, ClientRateLimiter::size)
+                .description("Number of API clients with an active token bucket")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a token from the bucket of the given client.
+     *
+     * @param clientId Identifier of the API client
+     * @return true if the client is within its rate limit
+     */
+    public boolean tryAcquire(String clientId) {
+        return tryAcquire(clientId, System.nanoTime());
+    }
+
+    boolean tryAcquire(String clientId, long now) {
+        int hash = clientId.hashCode();
+        Map<String, TokenBucket> stripe = stripes[(hash ^ hash >>> 16) & (stripes.length - 1)];
+        TokenBucket bucket;
+        synchronized (stripe) {
+            bucket = stripe.computeIfAbsent(clientId, id -> new TokenBucket(requestsPerSecond, burst, now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    int size() {
+        int size = 0;
+        for (Map<String, TokenBucket> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+}
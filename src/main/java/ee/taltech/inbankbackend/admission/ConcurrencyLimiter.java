@@ -0,0 +1,22 @@
+package ee.taltech.inbankbackend.admission;
+
+/**
+ * Limits the number of requests that are processed by the decision engine at the same time.
+ */
+public interface ConcurrencyLimiter {
+
+    /**
+     * Tries to admit a request. The call may wait for a short, bounded time for a free slot.
+     *
+     * @return true if the request was admitted and {@link #release(long)} must be called afterwards
+     * @throws InterruptedException If the thread was interrupted while waiting for a slot
+     */
+    boolean tryAcquire() throws InterruptedException;
+
+    /**
+     * Frees the slot taken by an admitted request.
+     *
+     * @param serviceTimeNanos Time in nanoseconds the request spent in the decision engine after it was admitted
+     */
+    void release(long serviceTimeNanos);
+}
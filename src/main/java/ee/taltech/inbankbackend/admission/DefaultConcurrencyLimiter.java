@@ -0,0 +1,70 @@
+package ee.taltech.inbankbackend.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Global concurrency limiter with queue-time shedding. Requests that can not get a slot within
+ * the maximum queue time, or that would make the queue too long, are rejected right away instead
+ * of piling up behind the ones that are already being processed.
+ */
+@Component
+@ConditionalOnProperty(name = "admission.concurrency.mode", havingValue = "fixed", matchIfMissing = true)
+public class DefaultConcurrencyLimiter implements ConcurrencyLimiter {
+
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxInFlight;
+    private final long maxQueueTimeMillis;
+    private final int maxQueued;
+
+    @Autowired
+    public DefaultConcurrencyLimiter(@Value("${admission.concurrency.max-in-flight:64}") int maxInFlight,
+                                     @Value("${admission.concurrency.max-queue-time-ms:50}") long maxQueueTimeMillis,
+                                     @Value("${admission.concurrency.max-queued:128}") int maxQueued,
+                                     MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.maxQueueTimeMillis = maxQueueTimeMillis;
+        this.maxQueued = maxQueued;
+        Gauge.builder("loan.admission.in_flight", this, DefaultConcurrencyLimiter::getInFlight)
+                .description("Number of decision requests being processed")
+                .register(meterRegistry);
+        Gauge.builder("loan.admission.queued", queued, AtomicInteger::get)
+                .description("Number of decision requests waiting for a free slot")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean tryAcquire() throws InterruptedException {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(maxQueueTimeMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void release(long serviceTimeNanos) {
+        permits.release();
+    }
+
+    int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+}
@@ -0,0 +1,45 @@
+package ee.taltech.inbankbackend.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm (GCRA).
+ * Instead of storing a token count and a refill timestamp, the bucket keeps a single
+ * "theoretical arrival time", so a request is admitted with one compare-and-set.
+ */
+class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrivalTime;
+
+    /**
+     * @param requestsPerSecond Sustained rate at which tokens are refilled
+     * @param burst Maximum number of requests that can be admitted at once
+     * @param now Current time in nanoseconds
+     */
+    TokenBucket(double requestsPerSecond, int burst, long now) {
+        this.emissionIntervalNanos = Math.max(1L, (long) (1_000_000_000L / requestsPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (Math.max(1, burst) - 1L);
+        this.theoreticalArrivalTime = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token from the bucket if one is available.
+     *
+     * @param now Current time in nanoseconds
+     * @return true if the request is admitted, false if the bucket is empty
+     */
+    boolean tryAcquire(long now) {
+        while (true) {
+            long arrivalTime = theoreticalArrivalTime.get();
+            long base = Math.max(arrivalTime, now);
+            if (base - now > burstToleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrivalTime.compareAndSet(arrivalTime, base + emissionIntervalNanos)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package ee.taltech.inbankbackend.blacklist;
+
+import ee.taltech.inbankbackend.util.PersonalCodes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Screens applicants against the blacklist before their inputs are validated.
+ * The blacklist is loaded from a file and replaced as a whole when the file changes, so lookups always see
+ * one consistent list without locking.
+ */
+@Service
+public class BlacklistService {
+
+    private static final Logger log = LoggerFactory.getLogger(BlacklistService.class);
+
+    private final Path path;
+    private final double falsePositiveRate;
+    private final boolean offHeap;
+    private final Counter negatives;
+    private final Counter falsePositives;
+    private final Counter blocked;
+    private volatile Blacklist blacklist;
+    private long lastModified;
+
+    /**
+     * @throws IOException If the configured blacklist file cannot be read
+     * @throws IllegalArgumentException If the configured blacklist file contains something else than personal codes
+     */
+    @Autowired
+    public BlacklistService(@Value("${blacklist.path:}") String path,
+                            @Value("${blacklist.false-positive-rate:0.01}") double falsePositiveRate,
+                            @Value("${blacklist.off-heap:false}") boolean offHeap,
+                            MeterRegistry registry) throws IOException {
+        this(path.isBlank() ? null : Path.of(path), path.isBlank() ? 0 : lastModified(Path.of(path)),
+                path.isBlank() ? Blacklist.empty() : Blacklist.load(Path.of(path), falsePositiveRate, offHeap),
+                falsePositiveRate, offHeap, registry);
+    }
+
+    public BlacklistService(Blacklist blacklist, MeterRegistry registry) {
+        this(null, 0, blacklist, 0.01, false, registry);
+    }
+
+    private BlacklistService(Path path, long lastModified, Blacklist blacklist, double falsePositiveRate,
+                             boolean offHeap, MeterRegistry registry) {
+        this.path = path;
+        this.lastModified = lastModified;
+        this.blacklist = blacklist;
+        this.falsePositiveRate = falsePositiveRate;
+        this.offHeap = offHeap;
+        this.negatives = outcome("negative", registry);
+        this.falsePositives = outcome("false-positive", registry);
+        this.blocked = outcome("blocked", registry);
+        Gauge.builder("loan.blacklist.entries", this, service -> service.blacklist.size())
+                .description("Personal codes on the blacklist")
+                .register(registry);
+        Gauge.builder("loan.blacklist.memory", this, service -> service.blacklist.sizeInBytes())
+                .description("Memory taken by the blacklist")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * @param personalCode Personal ID code of the applicant, which does not have to be validated yet
+     * @return Whether the applicant is blacklisted
+     */
+    public boolean isBlacklisted(String personalCode) {
+        long packedCode = PersonalCodes.pack(personalCode);
+        if (packedCode < 0) {
+            return false;
+        }
+        Blacklist blacklist = this.blacklist;
+        if (!blacklist.mightContain(packedCode)) {
+            negatives.increment();
+            return false;
+        }
+        if (!blacklist.contains(packedCode)) {
+            falsePositives.increment();
+            return false;
+        }
+        blocked.increment();
+        return true;
+    }
+
+    public void swap(Blacklist blacklist) {
+        this.blacklist = blacklist;
+        log.info("Blacklist of {} personal codes is now in use", blacklist.size());
+    }
+
+    /**
+     * Reloads the blacklist file if it changed since it was last read. A file that fails to load is logged
+     * and the blacklist in use is kept.
+     */
+    @Scheduled(fixedDelayString = "${blacklist.reload-interval-ms:60000}")
+    public synchronized void reload() {
+        if (path == null) {
+            return;
+        }
+        try {
+            long modified = lastModified(path);
+            if (modified != lastModified) {
+                swap(Blacklist.load(path, falsePositiveRate, offHeap));
+                lastModified = modified;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Could not reload blacklist {}", path, e);
+        }
+    }
+
+    private static long lastModified(Path path) throws IOException {
+        return Files.getLastModifiedTime(path).toMillis();
+    }
+
+    private static Counter outcome(String outcome, MeterRegistry registry) {
+        return Counter.builder("loan.blacklist.checks")
+                .description("Blacklist lookups by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
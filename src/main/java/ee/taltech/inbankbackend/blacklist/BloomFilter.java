@@ -0,0 +1,78 @@
+package ee.taltech.inbankbackend.blacklist;
+
+import ee.taltech.inbankbackend.util.PersonalCodes;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Bloom filter of packed personal codes. The bits live in a LongBuffer, either on the heap or in direct memory
+ * outside of it. Bit positions are derived from two hashes of the code (i * h2 + h1), and mapped to the filter
+ * with a multiply instead of a modulo. A lookup of a code that is not in the filter usually stops at the first
+ * clear bit.
+ * <br><br>
+ * Codes are only added while the filter is built. It must be safely published before it is read by other threads.
+ */
+final class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final LongBuffer bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    BloomFilter(long expectedEntries, double falsePositiveRate, boolean offHeap) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        long entries = Math.max(1, expectedEntries);
+        long optimalBits = (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (LN2 * LN2));
+        long words = Math.max(1, (optimalBits + Long.SIZE - 1) / Long.SIZE);
+        if (words > Integer.MAX_VALUE / Long.BYTES) {
+            throw new IllegalArgumentException("Bloom filter of " + entries + " entries is too large");
+        }
+        this.bitCount = words * Long.SIZE;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / entries * LN2));
+        this.bits = offHeap
+                ? ByteBuffer.allocateDirect((int) words * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+                : LongBuffer.allocate((int) words);
+    }
+
+    void add(long packedCode) {
+        long h1 = PersonalCodes.hash(packedCode);
+        long h2 = PersonalCodes.hash(h1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = index(h1 + i * h2);
+            int word = (int) (index >>> 6);
+            bits.put(word, bits.get(word) | 1L << index);
+        }
+    }
+
+    boolean mightContain(long packedCode) {
+        long h1 = PersonalCodes.hash(packedCode);
+        long h2 = PersonalCodes.hash(h1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = index(h1 + i * h2);
+            if ((bits.get((int) (index >>> 6)) & 1L << index) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long sizeInBytes() {
+        return bitCount / Byte.SIZE;
+    }
+
+    int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Maps a 64-bit hash uniformly onto [0, bitCount) as the high half of their unsigned product.
+     */
+    private long index(long hash) {
+        return Math.multiplyHigh(hash, bitCount) + ((hash >> 63) & bitCount);
+    }
+}
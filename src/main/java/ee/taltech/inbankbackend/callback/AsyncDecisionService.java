@@ -0,0 +1,312 @@
+package ee.taltech.inbankbackend.callback;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.taltech.inbankbackend.DTOs.AsyncDecisionRequest;
+import ee.taltech.inbankbackend.DTOs.DecisionCallback;
+import ee.taltech.inbankbackend.dataobjects.Decision;
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import ee.taltech.inbankbackend.dataobjects.LoanPricing;
+import ee.taltech.inbankbackend.exceptions.*;
+import ee.taltech.inbankbackend.product.LoanProduct;
+import ee.taltech.inbankbackend.product.LoanProducts;
+import ee.taltech.inbankbackend.service.DecisionEngine;
+import ee.taltech.inbankbackend.store.DecisionStore;
+import ee.taltech.inbankbackend.store.StoredDecision;
+import ee.taltech.inbankbackend.util.ApplicationIds;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Decides loan applications submitted by partners asynchronously and delivers the decisions to their callback URLs.
+ * A submission is written to the outbox and answered with its id right away. Worker threads take submissions
+ * from a bounded queue, run them through the decision engine and hand the decision to the dispatcher, which
+ * delivers it in batches per callback URL. Every step is recorded in the outbox first, so submissions accepted
+ * before a restart are decided and delivered after it. Like synchronous decisions, every decision is made within
+ * the bulkhead of its loan product, and is answered with 429 when the product is already at its limit.
+ * <br><br>
+ * Decisions are only posted to the hosts in callback.allowed-hosts, so partners can not make the service call
+ * internal addresses, and the personal codes in the outbox are encrypted with callback.outbox-key. The service
+ * refuses to start without either of them.
+ */
+@Service
+@ConditionalOnProperty(name = "callback.enabled", havingValue = "true")
+public class AsyncDecisionService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncDecisionService.class);
+
+    private final DecisionEngine decisionEngine;
+    private final DecisionStore decisionStore;
+    private final LoanProducts loanProducts;
+    private final ObjectMapper objectMapper;
+    private final CallbackOutbox outbox;
+    private final CallbackDispatcher dispatcher;
+    private final Set<String> allowedHosts;
+    private final int queueCapacity;
+    private final int workerCount;
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * @throws IOException If the outbox can not be opened
+     * @throws IllegalStateException If no callback host is allowed or the outbox key is not a Base64 AES key
+     */
+    @Autowired
+    public AsyncDecisionService(DecisionEngine decisionEngine, DecisionStore decisionStore, LoanProducts loanProducts,
+                                ObjectMapper objectMapper,
+                                @Value("${callback.outbox-dir:callback-outbox}") String outboxDir,
+                                @Value("${callback.outbox-fsync:true}") boolean fsync,
+                                @Value("${callback.outbox-key:}") String outboxKey,
+                                @Value("${callback.allowed-hosts:}") Set<String> allowedHosts,
+                                @Value("${callback.queue-capacity:1000}") int queueCapacity,
+                                @Value("${callback.workers:2}") int workers,
+                                @Value("${callback.batch-size:50}") int batchSize,
+                                @Value("${callback.timeout-ms:5000}") long timeoutMillis,
+                                @Value("${callback.initial-backoff-ms:1000}") long initialBackoffMillis,
+                                @Value("${callback.max-backoff-ms:300000}") long maxBackoffMillis,
+                                @Value("${callback.max-attempts:10}") int maxAttempts,
+                                MeterRegistry registry) throws IOException {
+        this.decisionEngine = decisionEngine;
+        this.decisionStore = decisionStore;
+        this.loanProducts = loanProducts;
+        this.objectMapper = objectMapper;
+        this.allowedHosts = allowedHosts.stream().map(String::trim).filter(host -> !host.isEmpty())
+                .collect(Collectors.toSet());
+        if (this.allowedHosts.isEmpty()) {
+            throw new IllegalStateException("callback.allowed-hosts must list the hosts decisions may be posted to");
+        }
+        this.outbox = CallbackOutbox.open(Path.of(outboxDir), fsync, outboxKey(outboxKey));
+        this.dispatcher = new CallbackDispatcher(outbox, batchSize, timeoutMillis, initialBackoffMillis,
+                maxBackoffMillis, maxAttempts, registry);
+        this.queueCapacity = queueCapacity;
+        this.workerCount = workers;
+        Gauge.builder("loan.callback.queued", queued, AtomicInteger::get)
+                .description("Submissions waiting for a decision")
+                .register(registry);
+        Gauge.builder("loan.callback.outbox", outbox, CallbackOutbox::size)
+                .description("Submissions whose decision has not been delivered yet")
+                .register(registry);
+    }
+
+    /**
+     * Accepts a loan application for an asynchronous decision.
+     *
+     * @param request The loan application and the callback URL
+     * @return Id of the submission, which the callback repeats and the decision can be looked up with
+     * @throws SubmissionQueueFullException If too many submissions are already waiting for a decision
+     * @throws IllegalArgumentException If the loan product is unknown
+     */
+    public String submit(AsyncDecisionRequest request) throws SubmissionQueueFullException {
+        LoanProduct product = loanProducts.find(request.getProduct());
+        if (product == null) {
+            throw new IllegalArgumentException("Invalid loan product!");
+        }
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            throw new SubmissionQueueFullException("Too many pending applications, try again later!");
+        }
+        Submission submission = new Submission(ApplicationIds.next(System.currentTimeMillis()), request.getCallbackUrl(),
+                new LoanApplication(request.getPersonalCode(), request.getLoanAmount(), request.getLoanPeriod(),
+                        request.getCountryCode(), request.getMonthlyIncome(), request.getMonthlyDebt()),
+                product.getName());
+        try {
+            outbox.submitted(submission);
+        } catch (RuntimeException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+        queue.add(submission);
+        return submission.id();
+    }
+
+    /**
+     * @param product Loan product given by the partner, null for the default product
+     * @return Whether the product is in the catalog
+     */
+    public boolean isValidProduct(String product) {
+        return loanProducts.find(product) != null;
+    }
+
+    /**
+     * @param callbackUrl URL given by the partner
+     * @return Whether the decision can be delivered to the URL
+     */
+    public boolean isValidCallbackUrl(String callbackUrl) {
+        if (callbackUrl == null) {
+            return false;
+        }
+        try {
+            URI uri = new URI(callbackUrl);
+            return ("http".equals(uri.getScheme()) || "https".equals(uri.getScheme())) && uri.getHost() != null
+                    && allowedHosts.contains(uri.getHost());
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts the workers and picks up the submissions and decisions left over from the previous run.
+     */
+    @Override
+    public synchronized void start() {
+        running = true;
+        List<Submission> undecided = outbox.getUndecided();
+        queued.addAndGet(undecided.size());
+        queue.addAll(undecided);
+        for (Delivery delivery : outbox.getUndelivered()) {
+            dispatcher.enqueue(delivery);
+        }
+        if (!undecided.isEmpty()) {
+            log.info("Resuming {} undecided asynchronous submissions", undecided.size());
+        }
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "callback-worker-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Stops the workers and the dispatcher. Whatever is left is picked up from the outbox by the next start.
+     */
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.clear();
+        dispatcher.stop();
+        try {
+            outbox.close();
+        } catch (IOException e) {
+            log.warn("Could not close the callback outbox", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void work() {
+        while (running) {
+            Submission submission;
+            try {
+                submission = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            queued.decrementAndGet();
+            try {
+                DecisionCallback callback = decide(submission);
+                Delivery delivery = new Delivery(submission.id(), submission.callbackUrl(),
+                        objectMapper.writeValueAsString(callback));
+                outbox.decided(delivery);
+                decisionStore.record(stored(submission.application(), callback));
+                dispatcher.enqueue(delivery);
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.error("Could not decide the asynchronous submission {}", submission.id(), e);
+            }
+        }
+    }
+
+    /**
+     * Decides the submission within the bulkhead of its loan product, with the status the synchronous endpoint
+     * would answer with. A product removed from the catalog since the submission was accepted is rejected.
+     */
+    private DecisionCallback decide(Submission submission) {
+        LoanProduct product = loanProducts.find(submission.product());
+        if (product == null) {
+            return rejected(submission, 400, "Invalid loan product!");
+        }
+        if (!product.tryEnter()) {
+            return rejected(submission, 429, "Too many applications for this loan product!");
+        }
+        long start = System.nanoTime();
+        try {
+            return decide(submission, product);
+        } finally {
+            product.exit(start);
+        }
+    }
+
+    private DecisionCallback decide(Submission submission, LoanProduct product) {
+        LoanApplication application = submission.application();
+        try {
+            Decision decision = decisionEngine.calculateApprovedLoan(new LoanApplication(application.getPersonalCode(),
+                    application.getLoanAmount(), application.getLoanPeriod(), application.getCountryCode(),
+                    application.getMonthlyIncome(), application.getMonthlyDebt(), product));
+            LoanPricing pricing = decision.getPricing();
+            return new DecisionCallback(submission.id(), 200, decision.getLoanAmount(), decision.getLoanPeriod(),
+                    decision.getErrorMessage(), pricing == null ? null : pricing.getAnnualInterestRate(),
+                    pricing == null ? null : pricing.getMonthlyPayment(), pricing == null ? null : pricing.getApr());
+        } catch (InvalidPersonalCodeException | InvalidLoanAmountException | InvalidLoanPeriodException
+                 | InvalidAgeException | InvalidIncomeException e) {
+            return rejected(submission, 400, e.getMessage());
+        } catch (NoValidLoanException e) {
+            return rejected(submission, 404, e.getMessage());
+        } catch (TooManyApplicationsException e) {
+            return rejected(submission, 429, e.getMessage());
+        } catch (Exception e) {
+            return rejected(submission, 500, "An unexpected error occurred");
+        }
+    }
+
+    private static SecretKeySpec outboxKey(String key) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(key.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("callback.outbox-key is not Base64", e);
+        }
+        if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+            throw new IllegalStateException("callback.outbox-key must be a Base64 AES key of 16, 24 or 32 bytes");
+        }
+        return new SecretKeySpec(bytes, "AES");
+    }
+
+    private static StoredDecision stored(LoanApplication application, DecisionCallback callback) {
+        return new StoredDecision(callback.getId(), Instant.now(), application.getPersonalCode(),
+                application.getCountryCode(), application.getLoanAmount(), application.getLoanPeriod(),
+                callback.getStatus(), callback.getLoanAmount(), callback.getLoanPeriod(), callback.getErrorMessage(),
+                callback.getAnnualInterestRate(), callback.getMonthlyPayment(), callback.getApr());
+    }
+
+    private static DecisionCallback rejected(Submission submission, int status, String errorMessage) {
+        return new DecisionCallback(submission.id(), status, null, null, errorMessage, null, null, null);
+    }
+}
@@ -0,0 +1,194 @@
+package ee.taltech.inbankbackend.callback;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers decisions to the partners' callback URLs.
+ * Decisions are queued per destination, and every destination has at most one request in flight, which carries
+ * up to batchSize decisions as a JSON array. A destination answering with anything else than a 2xx status, or not
+ * answering in time, is retried with exponential backoff and jitter, while the other destinations carry on.
+ * After maxAttempts failed attempts the batch is given up and the next one is tried.
+ * <br><br>
+ * Delivery is at least once: a batch that reached the partner but whose answer was lost is sent again, so partners
+ * should ignore decisions whose id they have already seen.
+ */
+class CallbackDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(CallbackDispatcher.class);
+
+    private final CallbackOutbox outbox;
+    private final HttpClient client;
+    private final int batchSize;
+    private final Duration timeout;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int maxAttempts;
+    private final Map<String, Destination> destinations = new HashMap<>();
+    private final Counter delivered;
+    private final Counter retried;
+    private final Counter failed;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService retries;
+
+    CallbackDispatcher(CallbackOutbox outbox, int batchSize, long timeoutMillis, long initialBackoffMillis,
+                       long maxBackoffMillis, int maxAttempts, MeterRegistry registry) {
+        this.outbox = outbox;
+        this.batchSize = batchSize;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.maxAttempts = maxAttempts;
+        this.executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "callback-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .executor(executor)
+                .build();
+        this.delivered = outcome("delivered", registry);
+        this.retried = outcome("retried", registry);
+        this.failed = outcome("failed", registry);
+        this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "callback-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a decision for delivery.
+     */
+    void enqueue(Delivery delivery) {
+        Destination destination;
+        synchronized (this) {
+            destination = destinations.computeIfAbsent(delivery.callbackUrl(), Destination::new);
+            destination.queue.add(delivery);
+            if (destination.busy) {
+                return;
+            }
+            destination.busy = true;
+        }
+        send(destination);
+    }
+
+    /**
+     * Stops retrying. Undelivered decisions stay in the outbox and are delivered after a restart.
+     */
+    void stop() {
+        retries.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private void send(Destination destination) {
+        List<Delivery> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(Math.min(batchSize, destination.queue.size()));
+            for (Delivery delivery : destination.queue) {
+                if (batch.size() == batchSize) {
+                    break;
+                }
+                batch.add(delivery);
+            }
+        }
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(destination.url))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            batch.stream().map(Delivery::payload).collect(Collectors.joining(",", "[", "]"))))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            log.warn("Giving up delivering {} decisions to the invalid callback URL {}", batch.size(), destination.url);
+            completed(destination, batch, false);
+            return;
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error == null && response.statusCode() / 100 == 2) {
+                        completed(destination, batch, true);
+                    } else if (++destination.attempts >= maxAttempts) {
+                        log.warn("Giving up delivering {} decisions to {}", batch.size(), destination.url);
+                        completed(destination, batch, false);
+                    } else {
+                        retried.increment(batch.size());
+                        retry(destination);
+                    }
+                });
+    }
+
+    private void completed(Destination destination, List<Delivery> batch, boolean success) {
+        List<String> ids = batch.stream().map(Delivery::id).toList();
+        if (success) {
+            outbox.delivered(ids);
+        } else {
+            outbox.failed(ids);
+        }
+        (success ? delivered : failed).increment(batch.size());
+        synchronized (this) {
+            destination.attempts = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                destination.queue.poll();
+            }
+            if (destination.queue.isEmpty()) {
+                destination.busy = false;
+                destinations.remove(destination.url);
+                return;
+            }
+        }
+        send(destination);
+    }
+
+    private void retry(Destination destination) {
+        long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(destination.attempts - 1, 30));
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        try {
+            retries.schedule(() -> send(destination), delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            log.debug("Not retrying the delivery to {} after shutdown", destination.url);
+        }
+    }
+
+    private static Counter outcome(String outcome, MeterRegistry registry) {
+        return Counter.builder("loan.callback.deliveries")
+                .description("Decisions delivered to callback URLs, by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * Decisions waiting for one callback URL. Only the thread holding the busy flag sends or changes attempts.
+     */
+    private static class Destination {
+        private final String url;
+        private final ArrayDeque<Delivery> queue = new ArrayDeque<>();
+        private boolean busy;
+        private int attempts;
+
+        private Destination(String url) {
+            this.url = url;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package ee.taltech.inbankbackend.callback;
+
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of the asynchronous submissions and their decisions, so nothing accepted is lost on a restart.
+ * Every change is appended as one line: S when a submission is accepted, R when it has been decided, D when the
+ * decision has been delivered and F when delivery was given up. On startup the log is replayed, and submissions
+ * without a decision and decisions without a delivery are handed back to be processed again.
+ * <br><br>
+ * Fields are separated by tabs and URL-encoded, with ~ standing for null. A line torn by a crash is skipped.
+ * Personal codes are encrypted with AES-GCM under the outbox key, so the log on disk does not reveal who applied;
+ * a record that can not be decrypted, e.g. after the key was changed, is skipped like a malformed one.
+ * When most of the log describes finished work, it is compacted by writing the open records to a new file that
+ * atomically replaces the old one.
+ */
+public class CallbackOutbox implements Closeable {
+
+    static final String FILE_NAME = "outbox.log";
+
+    private static final Logger log = LoggerFactory.getLogger(CallbackOutbox.class);
+    private static final String NULL = "~";
+    private static final int MIN_COMPACTION_RECORDS = 1024;
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Path file;
+    private final boolean fsync;
+    private final SecretKey key;
+    private final Map<String, Submission> undecided = new LinkedHashMap<>();
+    private final Map<String, Delivery> undelivered = new LinkedHashMap<>();
+    private FileChannel channel;
+    private int finishedRecords;
+
+    private CallbackOutbox(Path file, boolean fsync, SecretKey key) {
+        this.file = file;
+        this.fsync = fsync;
+        this.key = key;
+    }
+
+    /**
+     * Opens the outbox in the directory, replaying the log left by a previous run.
+     *
+     * @param directory Directory of the log, created if missing
+     * @param fsync Whether every write is forced to the disk before the call returns. A batch of deliveries is
+     *              recorded with one write
+     * @param key AES key the personal codes are encrypted with
+     * @throws IOException If the log can not be read or opened for writing
+     */
+    public static CallbackOutbox open(Path directory, boolean fsync, SecretKey key) throws IOException {
+        Files.createDirectories(directory);
+        CallbackOutbox outbox = new CallbackOutbox(directory.resolve(FILE_NAME), fsync, key);
+        boolean torn = outbox.replay();
+        outbox.channel = FileChannel.open(outbox.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        if (torn) {
+            write(outbox.channel, "\n");
+        }
+        return outbox;
+    }
+
+    /**
+     * Records an accepted submission.
+     */
+    public synchronized void submitted(Submission submission) {
+        append(submissionLine(submission));
+        undecided.put(submission.id(), submission);
+    }
+
+    /**
+     * Records the decision of a submission.
+     */
+    public synchronized void decided(Delivery delivery) {
+        append(decisionLine(delivery));
+        undecided.remove(delivery.id());
+        undelivered.put(delivery.id(), delivery);
+        finishedRecords++;
+    }
+
+    /**
+     * Records that the decisions of a batch of submissions have been delivered, with a single write.
+     */
+    public synchronized void delivered(Collection<String> ids) {
+        finish("D", ids);
+    }
+
+    /**
+     * Records that delivering the decisions of a batch of submissions has been given up, with a single write.
+     */
+    public synchronized void failed(Collection<String> ids) {
+        finish("F", ids);
+    }
+
+    /**
+     * @return Submissions that have not been decided yet, oldest first
+     */
+    public synchronized List<Submission> getUndecided() {
+        return new ArrayList<>(undecided.values());
+    }
+
+    /**
+     * @return Decisions that have not been delivered yet, oldest first
+     */
+    public synchronized List<Delivery> getUndelivered() {
+        return new ArrayList<>(undelivered.values());
+    }
+
+    /**
+     * @return Number of submissions whose decision has not been delivered or given up yet
+     */
+    public synchronized int size() {
+        return undecided.size() + undelivered.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Rewrites the log with only the open records. The new file is opened for appending before it replaces the
+     * log, so the outbox switches to it only once the move has succeeded; if anything fails, the compacted file
+     * is removed and the outbox keeps appending to the old log.
+     */
+    synchronized void compact() throws IOException {
+        Path compacted = file.resolveSibling(FILE_NAME + ".compacting");
+        Files.deleteIfExists(compacted);
+        FileChannel compactedChannel = FileChannel.open(compacted, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            StringBuilder records = new StringBuilder();
+            for (Submission submission : undecided.values()) {
+                records.append(submissionLine(submission));
+            }
+            for (Delivery delivery : undelivered.values()) {
+                records.append(decisionLine(delivery));
+            }
+            write(compactedChannel, records.toString());
+            compactedChannel.force(true);
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            compactedChannel.close();
+            Files.deleteIfExists(compacted);
+            throw e;
+        }
+        FileChannel previous = channel;
+        channel = compactedChannel;
+        finishedRecords = 0;
+        try {
+            previous.close();
+        } catch (IOException e) {
+            log.warn("Could not close the compacted callback outbox log {}", file, e);
+        }
+    }
+
+    private void finish(String type, Collection<String> ids) {
+        StringBuilder lines = new StringBuilder();
+        for (String id : ids) {
+            if (undelivered.remove(id) != null) {
+                lines.append(line(type, id));
+                finishedRecords += 2;
+            }
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        append(lines.toString());
+        if (finishedRecords >= MIN_COMPACTION_RECORDS && finishedRecords > 4 * size()) {
+            try {
+                compact();
+            } catch (IOException e) {
+                log.warn("Could not compact the callback outbox {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * @return Whether the last line was torn by a crash and has to be ended before appending
+     */
+    private boolean replay() throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        boolean torn = endsTorn();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if (next == null && torn) {
+                    log.warn("Skipping the callback outbox record torn by a crash: {}", line);
+                    break;
+                }
+                try {
+                    apply(line.split("\t", -1));
+                } catch (RuntimeException e) {
+                    log.warn("Skipping a malformed callback outbox record: {}", line);
+                }
+                line = next;
+            }
+        }
+        return torn;
+    }
+
+    private void apply(String[] fields) {
+        String id = decode(fields[1]);
+        switch (fields[0]) {
+            case "S" -> undecided.put(id, new Submission(id, decode(fields[2]), new LoanApplication(decrypt(decode(fields[3])),
+                    parseLong(fields[4]), Integer.parseInt(fields[5]), decode(fields[6]), parseLong(fields[7]),
+                    parseLong(fields[8])), fields.length > 9 ? decode(fields[9]) : null));
+            case "R" -> {
+                undecided.remove(id);
+                undelivered.put(id, new Delivery(id, decode(fields[2]), decode(fields[3])));
+                finishedRecords++;
+            }
+            case "D", "F" -> {
+                undelivered.remove(id);
+                finishedRecords += 2;
+            }
+            default -> throw new IllegalArgumentException("Unknown record type " + fields[0]);
+        }
+    }
+
+    private boolean endsTorn() throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size == 0) {
+                return false;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            in.read(last, size - 1);
+            return last.get(0) != '\n';
+        }
+    }
+
+    private void append(String line) {
+        try {
+            write(channel, line);
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the callback outbox " + file, e);
+        }
+    }
+
+    private static void write(FileChannel channel, String records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private String submissionLine(Submission submission) {
+        LoanApplication application = submission.application();
+        return line("S", submission.id(), submission.callbackUrl(), encrypt(application.getPersonalCode()),
+                application.getLoanAmount(), application.getLoanPeriod(), application.getCountryCode(),
+                application.getMonthlyIncome(), application.getMonthlyDebt(), submission.product());
+    }
+
+    /**
+     * @return Base64 of a random IV followed by the ciphertext and tag
+     */
+    private String encrypt(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+            byte[] encrypted = cipher.doFinal(value.getBytes(StandardCharsets.UTF_8));
+            byte[] record = Arrays.copyOf(iv, IV_LENGTH + encrypted.length);
+            System.arraycopy(encrypted, 0, record, IV_LENGTH, encrypted.length);
+            return Base64.getEncoder().encodeToString(record);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt a callback outbox record", e);
+        }
+    }
+
+    private String decrypt(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            byte[] record = Base64.getDecoder().decode(value);
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, record, 0, IV_LENGTH));
+            return new String(cipher.doFinal(record, IV_LENGTH, record.length - IV_LENGTH), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Could not decrypt a callback outbox record", e);
+        }
+    }
+
+    private static String decisionLine(Delivery delivery) {
+        return line("R", delivery.id(), delivery.callbackUrl(), delivery.payload());
+    }
+
+    private static String line(String type, Object... fields) {
+        StringBuilder line = new StringBuilder(type);
+        for (Object field : fields) {
+            line.append('\t').append(field == null ? NULL : URLEncoder.encode(field.toString(), StandardCharsets.UTF_8));
+        }
+        return line.append('\n').toString();
+    }
+
+    private static String decode(String field) {
+        return NULL.equals(field) ? null : URLDecoder.decode(field, StandardCharsets.UTF_8);
+    }
+
+    private static Long parseLong(String field) {
+        return NULL.equals(field) ? null : Long.valueOf(field);
+    }
+}
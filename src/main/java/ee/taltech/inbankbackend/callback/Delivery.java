@@ -0,0 +1,11 @@
+package ee.taltech.inbankbackend.callback;
+
+/**
+ * A decision waiting to be delivered to the partner.
+ *
+ * @param id Identifier of the submission the decision belongs to
+ * @param callbackUrl URL the decision is delivered to
+ * @param payload The decision serialized as a JSON object
+ */
+public record Delivery(String id, String callbackUrl, String payload) {
+}
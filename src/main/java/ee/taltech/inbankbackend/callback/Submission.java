@@ -0,0 +1,14 @@
+package ee.taltech.inbankbackend.callback;
+
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+
+/**
+ * A loan application accepted by the asynchronous endpoint that has not been decided yet.
+ *
+ * @param id Identifier returned to the partner and repeated in the callback
+ * @param callbackUrl URL the decision is delivered to
+ * @param application The loan application, without its product
+ * @param product Name of the loan product, resolved again when the submission is decided; null for the default
+ */
+public record Submission(String id, String callbackUrl, LoanApplication application, String product) {
+}
@@ -0,0 +1,377 @@
+package ee.taltech.inbankbackend.cluster;
+
+import ee.taltech.inbankbackend.history.StripedApplicantHistory;
+import ee.taltech.inbankbackend.scoring.ScorecardChangedEvent;
+import ee.taltech.inbankbackend.service.DefaultCreditModifierCalculator;
+import ee.taltech.inbankbackend.util.CreditModifierCache;
+import ee.taltech.inbankbackend.util.PersonalCodes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Peer-to-peer mode in which instances share the applicant history and credit modifier cache.
+ * Every instance owns the personal codes that a consistent hash ring of all members assigns to it. Lookups
+ * for codes owned by another instance are forwarded to it over the peer protocol, so every code is cached and
+ * counted in exactly one place. If the owner can not be reached, the lookup is answered locally.
+ * <br><br>
+ * An instance joins through any of the seed addresses, which answers with the current members, and then
+ * announces itself to the rest. Members leave with an explicit message on shutdown, or are dropped after
+ * missing a number of heartbeats in a row. Applicant history is soft state, so it is not moved between instances
+ * when ownership changes: the new owner starts counting from zero.
+ * <br><br>
+ * Peers authenticate each other with a handshake over the shared cluster.secret, so an outsider reaching
+ * cluster.port can neither join and take over codes nor record applications or evict members. At most
+ * cluster.max-connections peer connections are served at a time, and idle ones are dropped after
+ * cluster.idle-timeout-ms.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class Cluster implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(Cluster.class);
+    private static final int MAX_MISSED_HEARTBEATS = 3;
+
+    private final String nodeId;
+    private final String host;
+    private final int port;
+    private final List<String> seeds;
+    private final int virtualNodes;
+    private final long heartbeatIntervalMillis;
+    private final PeerAuthenticator authenticator;
+    private final int maxConnections;
+    private final int idleTimeoutMillis;
+    private final StripedApplicantHistory localHistory;
+    private final DefaultCreditModifierCalculator localCalculator;
+    private final CreditModifierCache creditModifierCache;
+    private final PeerClient client;
+    private final Map<String, ClusterNode> members = new ConcurrentHashMap<>();
+    private final Map<String, Integer> missedHeartbeats = new ConcurrentHashMap<>();
+    private final Object membershipLock = new Object();
+    private final Counter forwarded;
+    private final Counter forwardingFailures;
+
+    private volatile ConsistentHashRing ring = ConsistentHashRing.of(List.of(), 1);
+    private volatile ClusterNode self;
+    private PeerServer server;
+    private ScheduledExecutorService heartbeat;
+
+    /**
+     * @throws IllegalStateException If cluster.secret is not set
+     */
+    @Autowired
+    public Cluster(@Value("${cluster.node-id:}") String nodeId,
+                   @Value("${cluster.host:localhost}") String host,
+                   @Value("${cluster.port:7070}") int port,
+                   @Value("${cluster.seeds:}") List<String> seeds,
+                   @Value("${cluster.virtual-nodes:128}") int virtualNodes,
+                   @Value("${cluster.heartbeat-interval-ms:1000}") long heartbeatIntervalMillis,
+                   @Value("${cluster.request-timeout-ms:200}") int requestTimeoutMillis,
+                   @Value("${cluster.credit-modifier-cache-size:1048576}") int creditModifierCacheSize,
+                   @Value("${cluster.secret:}") String secret,
+                   @Value("${cluster.max-connections:64}") int maxConnections,
+                   @Value("${cluster.idle-timeout-ms:30000}") int idleTimeoutMillis,
+                   StripedApplicantHistory localHistory,
+                   DefaultCreditModifierCalculator localCalculator,
+                   MeterRegistry meterRegistry) {
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.host = host;
+        this.port = port;
+        this.seeds = seeds.stream().map(String::trim).filter(seed -> !seed.isEmpty()).toList();
+        this.virtualNodes = virtualNodes;
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+        this.authenticator = new PeerAuthenticator(secret);
+        this.maxConnections = maxConnections;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.localHistory = localHistory;
+        this.localCalculator = localCalculator;
+        this.creditModifierCache = new CreditModifierCache(creditModifierCacheSize);
+        this.client = new PeerClient(requestTimeoutMillis, authenticator, idleTimeoutMillis / 2);
+        this.forwarded = Counter.builder("loan.cluster.forwarded")
+                .description("Lookups forwarded to the owning instance")
+                .register(meterRegistry);
+        this.forwardingFailures = Counter.builder("loan.cluster.forwarding_failures")
+                .description("Forwarded lookups answered locally because the owner could not be reached")
+                .register(meterRegistry);
+        Gauge.builder("loan.cluster.members", members, Map::size)
+                .description("Number of known cluster members")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the peer protocol server and joins the cluster through the first reachable seed.
+     */
+    @Override
+    public synchronized void start() {
+        try {
+            server = new PeerServer(host, port, this::handle, authenticator, maxConnections, idleTimeoutMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start the peer protocol server on port " + port, e);
+        }
+        server.start();
+        self = new ClusterNode(nodeId, host, server.getPort());
+        addMember(self);
+        join();
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatIntervalMillis, heartbeatIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        log.info("Cluster node {} listening on {} with {} members", nodeId, self.address(), members.size());
+    }
+
+    /**
+     * Announces the departure to all members and stops serving peer requests.
+     */
+    @Override
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        heartbeat.shutdownNow();
+        try {
+            heartbeat.awaitTermination(heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ClusterNode member : getMembers()) {
+            if (!member.equals(self)) {
+                try {
+                    client.call(member.host(), member.port(), PeerProtocol.LEAVE, out -> out.writeUTF(nodeId), in -> null);
+                } catch (IOException e) {
+                    log.debug("Could not notify {} about leaving", member.address(), e);
+                }
+            }
+        }
+        shutdown();
+    }
+
+    /**
+     * Stops serving peer requests without telling the other members, as if the instance had crashed.
+     */
+    synchronized void shutdown() {
+        if (server == null) {
+            return;
+        }
+        heartbeat.shutdownNow();
+        client.close();
+        try {
+            server.close();
+        } catch (IOException e) {
+            log.debug("Could not close the peer protocol server", e);
+        }
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Drops the cached credit modifiers of the codes this instance owns once its scorecard has changed.
+     */
+    @EventListener
+    public void onScorecardChanged(ScorecardChangedEvent event) {
+        creditModifierCache.clear();
+    }
+
+    /**
+     * @param personalCode Personal ID code of the customer
+     * @return Credit modifier from the instance owning the code
+     */
+    public int getCreditModifier(String personalCode) {
+        long key = PersonalCodes.pack(personalCode);
+        ClusterNode owner = key > 0 ? ownerOf(key) : self;
+        if (owner == null || owner.equals(self)) {
+            return localCreditModifier(key, personalCode);
+        }
+        try {
+            forwarded.increment();
+            return client.call(owner.host(), owner.port(), PeerProtocol.GET_CREDIT_MODIFIER,
+                    out -> out.writeLong(key), DataInputStream::readInt);
+        } catch (IOException e) {
+            forwardingFailures.increment();
+            return localCreditModifier(key, personalCode);
+        }
+    }
+
+    /**
+     * Records the application with the instance owning the code.
+     *
+     * @param personalCode Personal ID code of the customer
+     * @return true if the customer is still within the application limit
+     */
+    public boolean tryRecordApplication(String personalCode) {
+        long key = PersonalCodes.pack(personalCode);
+        ClusterNode owner = key > 0 ? ownerOf(key) : self;
+        if (owner == null || owner.equals(self)) {
+            return localHistory.tryRecordApplication(personalCode);
+        }
+        try {
+            forwarded.increment();
+            return client.call(owner.host(), owner.port(), PeerProtocol.RECORD_APPLICATION,
+                    out -> out.writeLong(key), DataInputStream::readBoolean);
+        } catch (IOException e) {
+            forwardingFailures.increment();
+            return localHistory.tryRecordApplication(personalCode);
+        }
+    }
+
+    /**
+     * @param packedCode Packed personal ID code
+     * @return Instance owning the code
+     */
+    public ClusterNode ownerOf(long packedCode) {
+        return ring.ownerOf(PersonalCodes.hash(packedCode));
+    }
+
+    public List<ClusterNode> getMembers() {
+        return new ArrayList<>(members.values());
+    }
+
+    public ClusterNode getSelf() {
+        return self;
+    }
+
+    private int localCreditModifier(long key, String personalCode) {
+        int cached = key > 0 ? creditModifierCache.get(key) : -1;
+        if (cached >= 0) {
+            return cached;
+        }
+        int creditModifier = localCalculator.getCreditModifier(personalCode);
+        creditModifierCache.put(key, creditModifier);
+        return creditModifier;
+    }
+
+    private void handle(byte operation, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (operation) {
+            case PeerProtocol.GET_CREDIT_MODIFIER -> {
+                long key = in.readLong();
+                int creditModifier = localCreditModifier(key, Long.toString(key));
+                out.writeByte(PeerProtocol.OK);
+                out.writeInt(creditModifier);
+            }
+            case PeerProtocol.RECORD_APPLICATION -> {
+                boolean recorded = localHistory.tryRecordApplication(Long.toString(in.readLong()));
+                out.writeByte(PeerProtocol.OK);
+                out.writeBoolean(recorded);
+            }
+            case PeerProtocol.JOIN -> {
+                addMember(PeerProtocol.readNode(in));
+                out.writeByte(PeerProtocol.OK);
+                PeerProtocol.writeNodes(out, getMembers());
+            }
+            case PeerProtocol.LEAVE -> {
+                removeMember(in.readUTF());
+                out.writeByte(PeerProtocol.OK);
+            }
+            case PeerProtocol.PING -> {
+                ClusterNode sender = PeerProtocol.readNode(in);
+                if (!members.containsKey(sender.id())) {
+                    addMember(sender);
+                }
+                out.writeByte(PeerProtocol.OK);
+            }
+            default -> throw new IOException("Unknown peer protocol operation " + operation);
+        }
+    }
+
+    private void join() {
+        for (String seed : seeds) {
+            String[] address = seed.split(":");
+            if (address.length != 2 || seed.equals(self.address())) {
+                continue;
+            }
+            try {
+                List<ClusterNode> known = client.call(address[0], Integer.parseInt(address[1]), PeerProtocol.JOIN,
+                        out -> PeerProtocol.writeNode(out, self), PeerProtocol::readNodes);
+                for (ClusterNode member : known) {
+                    if (!member.equals(self) && !members.containsKey(member.id())) {
+                        addMember(member);
+                        if (!member.address().equals(seed)) {
+                            announce(member);
+                        }
+                    }
+                }
+                return;
+            } catch (IOException e) {
+                log.warn("Could not join the cluster through seed {}", seed, e);
+            }
+        }
+    }
+
+    private void announce(ClusterNode member) {
+        try {
+            client.call(member.host(), member.port(), PeerProtocol.JOIN,
+                    out -> PeerProtocol.writeNode(out, self), PeerProtocol::readNodes);
+        } catch (IOException e) {
+            log.debug("Could not announce to {}, it will learn from the heartbeat", member.address(), e);
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (ClusterNode member : getMembers()) {
+            if (member.equals(self)) {
+                continue;
+            }
+            try {
+                client.call(member.host(), member.port(), PeerProtocol.PING,
+                        out -> PeerProtocol.writeNode(out, self), in -> null);
+                missedHeartbeats.remove(member.id());
+            } catch (IOException e) {
+                if (missedHeartbeats.merge(member.id(), 1, Integer::sum) >= MAX_MISSED_HEARTBEATS) {
+                    log.warn("Cluster member {} at {} stopped responding", member.id(), member.address());
+                    removeMember(member.id());
+                }
+            }
+        }
+    }
+
+    private void addMember(ClusterNode node) {
+        synchronized (membershipLock) {
+            ClusterNode previous = members.put(node.id(), node);
+            if (!node.equals(previous)) {
+                ring = ConsistentHashRing.of(members.values(), virtualNodes);
+            }
+        }
+    }
+
+    private void removeMember(String id) {
+        ClusterNode removed;
+        synchronized (membershipLock) {
+            removed = members.remove(id);
+            missedHeartbeats.remove(id);
+            if (removed != null) {
+                ring = ConsistentHashRing.of(members.values(), virtualNodes);
+            }
+        }
+        if (removed != null) {
+            client.disconnect(removed.address());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ee.taltech.inbankbackend.cluster;
+
+/**
+ * An instance of the decision service taking part in the cluster.
+ *
+ * @param id Unique identifier of the instance
+ * @param host Host the peer protocol listens on
+ * @param port Port the peer protocol listens on
+ */
+public record ClusterNode(String id, String host, int port) {
+
+    /**
+     * @return Address of the peer protocol in the form host:port
+     */
+    public String address() {
+        return host + ":" + port;
+    }
+}
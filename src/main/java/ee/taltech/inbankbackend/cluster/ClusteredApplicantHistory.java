@@ -0,0 +1,28 @@
+package ee.taltech.inbankbackend.cluster;
+
+import ee.taltech.inbankbackend.history.ApplicantHistory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Applicant history kept by the cluster member that owns the personal code.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusteredApplicantHistory implements ApplicantHistory {
+
+    private final Cluster cluster;
+
+    @Autowired
+    public ClusteredApplicantHistory(Cluster cluster) {
+        this.cluster = cluster;
+    }
+
+    @Override
+    public boolean tryRecordApplication(String personalCode) {
+        return cluster.tryRecordApplication(personalCode);
+    }
+}
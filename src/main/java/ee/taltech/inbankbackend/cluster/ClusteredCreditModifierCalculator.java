@@ -0,0 +1,28 @@
+package ee.taltech.inbankbackend.cluster;
+
+import ee.taltech.inbankbackend.service.CreditModifierCalculator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Credit modifiers calculated and cached by the cluster member that owns the personal code.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusteredCreditModifierCalculator implements CreditModifierCalculator {
+
+    private final Cluster cluster;
+
+    @Autowired
+    public ClusteredCreditModifierCalculator(Cluster cluster) {
+        this.cluster = cluster;
+    }
+
+    @Override
+    public int getCreditModifier(String personalCode) {
+        return cluster.getCreditModifier(personalCode);
+    }
+}
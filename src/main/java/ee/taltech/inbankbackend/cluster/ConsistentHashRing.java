@@ -0,0 +1,85 @@
+package ee.taltech.inbankbackend.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable consistent hash ring. Every node is placed on the ring at a number of pseudo-random points
+ * (virtual nodes), and a key belongs to the first point at or after its hash. When a node joins or leaves,
+ * only the keys next to its points change owner. The points are kept in a sorted primitive array, so a lookup
+ * is a binary search without allocation.
+ */
+public class ConsistentHashRing {
+
+    private final long[] points;
+    private final ClusterNode[] owners;
+
+    private ConsistentHashRing(long[] points, ClusterNode[] owners) {
+        this.points = points;
+        this.owners = owners;
+    }
+
+    /**
+     * Builds a ring of the given nodes. Nodes are sorted by id first, so every instance that knows the same
+     * nodes builds the same ring.
+     *
+     * @param nodes Members of the cluster
+     * @param virtualNodes Number of points per node
+     * @return Ring of the nodes
+     */
+    public static ConsistentHashRing of(Collection<ClusterNode> nodes, int virtualNodes) {
+        List<ClusterNode> sorted = new ArrayList<>(nodes);
+        sorted.sort(Comparator.comparing(ClusterNode::id));
+
+        long[][] entries = new long[sorted.size() * virtualNodes][];
+        int count = 0;
+        for (int node = 0; node < sorted.size(); node++) {
+            for (int replica = 0; replica < virtualNodes; replica++) {
+                entries[count++] = new long[]{hash(sorted.get(node).id() + "#" + replica), node};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        long[] points = new long[count];
+        ClusterNode[] owners = new ClusterNode[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = entries[i][0];
+            owners[i] = sorted.get((int) entries[i][1]);
+        }
+        return new ConsistentHashRing(points, owners);
+    }
+
+    /**
+     * @param keyHash Hash of the key
+     * @return Node that owns the key, or null if the ring is empty
+     */
+    public ClusterNode ownerOf(long keyHash) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, keyHash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a string, followed by a final mix so that similar ids spread over the ring.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
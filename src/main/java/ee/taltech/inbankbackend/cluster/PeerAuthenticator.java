@@ -0,0 +1,102 @@
+package ee.taltech.inbankbackend.cluster;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Mutual challenge-response handshake that opens every peer protocol connection, so only instances knowing the
+ * cluster secret can join, own codes or record applications. The server sends a random challenge, the client
+ * answers with its own challenge and the HMAC-SHA256 of both, and the server proves the secret the same way
+ * before any request is served. The secret itself never crosses the wire, and the fresh challenges keep
+ * recorded handshakes from being replayed.
+ * <pre>
+ * server -> client  bytes[16] serverChallenge
+ * client -> server  bytes[16] clientChallenge, bytes[32] hmac("client", serverChallenge, clientChallenge)
+ * server -> client  bytes[32] hmac("server", clientChallenge, serverChallenge)
+ * </pre>
+ */
+final class PeerAuthenticator {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int CHALLENGE_LENGTH = 16;
+    private static final int MAC_LENGTH = 32;
+    private static final byte[] CLIENT = "client".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SERVER = "server".getBytes(StandardCharsets.US_ASCII);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec key;
+
+    /**
+     * @throws IllegalStateException If the secret is blank
+     */
+    PeerAuthenticator(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("cluster.secret must be set to a secret shared by all instances");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    /**
+     * Authenticates the connecting peer and proves the secret to it.
+     *
+     * @throws IOException If the peer does not know the secret or the connection fails
+     */
+    void accept(DataInputStream in, DataOutputStream out) throws IOException {
+        byte[] serverChallenge = challenge();
+        out.write(serverChallenge);
+        out.flush();
+        byte[] clientChallenge = new byte[CHALLENGE_LENGTH];
+        in.readFully(clientChallenge);
+        byte[] proof = new byte[MAC_LENGTH];
+        in.readFully(proof);
+        if (!MessageDigest.isEqual(proof, mac(CLIENT, serverChallenge, clientChallenge))) {
+            throw new IOException("Peer failed to authenticate");
+        }
+        out.write(mac(SERVER, clientChallenge, serverChallenge));
+        out.flush();
+    }
+
+    /**
+     * Proves the secret to the server and authenticates it in turn.
+     *
+     * @throws IOException If the server does not know the secret or the connection fails
+     */
+    void connect(DataInputStream in, DataOutputStream out) throws IOException {
+        byte[] serverChallenge = new byte[CHALLENGE_LENGTH];
+        in.readFully(serverChallenge);
+        byte[] clientChallenge = challenge();
+        out.write(clientChallenge);
+        out.write(mac(CLIENT, serverChallenge, clientChallenge));
+        out.flush();
+        byte[] proof = new byte[MAC_LENGTH];
+        in.readFully(proof);
+        if (!MessageDigest.isEqual(proof, mac(SERVER, clientChallenge, serverChallenge))) {
+            throw new IOException("Peer server failed to authenticate");
+        }
+    }
+
+    private static byte[] challenge() {
+        byte[] challenge = new byte[CHALLENGE_LENGTH];
+        RANDOM.nextBytes(challenge);
+        return challenge;
+    }
+
+    private byte[] mac(byte[] role, byte[] first, byte[] second) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update(role);
+            mac.update(first);
+            return mac.doFinal(second);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package ee.taltech.inbankbackend.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends peer protocol requests over pooled connections. A connection is used by one request at a time and
+ * is returned to the pool of its address afterwards, or closed if anything went wrong. New connections are
+ * authenticated with the {@link PeerAuthenticator} handshake, and pooled connections idle for longer than
+ * maxIdleMillis are closed rather than reused, before the server's idle timeout drops them.
+ */
+class PeerClient implements Closeable {
+
+    interface RequestWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    interface ResponseReader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private final ConcurrentMap<String, Queue<Connection>> pools = new ConcurrentHashMap<>();
+    private final int timeoutMillis;
+    private final PeerAuthenticator authenticator;
+    private final long maxIdleNanos;
+
+    PeerClient(int timeoutMillis, PeerAuthenticator authenticator, long maxIdleMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.authenticator = authenticator;
+        this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+    }
+
+    <T> T call(String host, int port, byte operation, RequestWriter request, ResponseReader<T> response)
+            throws IOException {
+        String address = host + ":" + port;
+        Connection connection = borrow(address, host, port);
+        T result;
+        try {
+            connection.out.writeByte(operation);
+            request.write(connection.out);
+            connection.out.flush();
+
+            if (connection.in.readByte() != PeerProtocol.OK) {
+                String message = connection.in.readUTF();
+                release(address, connection);
+                throw new PeerException("Peer " + address + " failed: " + message);
+            }
+            result = response.read(connection.in);
+        } catch (PeerException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        release(address, connection);
+        return result;
+    }
+
+    /**
+     * Closes the idle connections to the given address, for example after the peer has left.
+     */
+    void disconnect(String address) {
+        Queue<Connection> pool = pools.remove(address);
+        if (pool != null) {
+            pool.forEach(Connection::close);
+        }
+    }
+
+    @Override
+    public void close() {
+        pools.keySet().forEach(this::disconnect);
+    }
+
+    private Connection borrow(String address, String host, int port) throws IOException {
+        Queue<Connection> pool = pools.computeIfAbsent(address, key -> new ConcurrentLinkedQueue<>());
+        Connection connection;
+        while ((connection = pool.poll()) != null) {
+            if (System.nanoTime() - connection.lastUsed < maxIdleNanos) {
+                return connection;
+            }
+            connection.close();
+        }
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(timeoutMillis);
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            connection = new Connection(socket);
+            authenticator.connect(connection.in, connection.out);
+            return connection;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private void release(String address, Connection connection) {
+        Queue<Connection> pool = pools.get(address);
+        if (pool == null) {
+            connection.close();
+        } else {
+            connection.lastUsed = System.nanoTime();
+            pool.offer(connection);
+        }
+    }
+
+    /**
+     * Thrown when the peer answered with an error. The connection is still usable in this case.
+     */
+    static class PeerException extends IOException {
+        PeerException(String message) {
+            super(message);
+        }
+    }
+
+    private static class Connection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private long lastUsed;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nothing left to clean up
+            }
+        }
+    }
+}
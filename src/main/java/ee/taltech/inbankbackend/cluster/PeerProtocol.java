@@ -0,0 +1,62 @@
+package ee.taltech.inbankbackend.cluster;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary protocol spoken between instances over persistent TCP connections.
+ * A request is an operation byte followed by its payload, a response is a status byte followed by the result
+ * on success or by an error message on failure. Personal codes are sent as packed longs.
+ * <pre>
+ * GET_CREDIT_MODIFIER  long code          -> int modifier
+ * RECORD_APPLICATION   long code          -> boolean recorded
+ * JOIN                 node               -> int count, node...
+ * LEAVE                utf id             -> (empty)
+ * PING                 node               -> (empty)
+ * node = utf id, utf host, int port
+ * </pre>
+ */
+final class PeerProtocol {
+
+    static final byte GET_CREDIT_MODIFIER = 1;
+    static final byte RECORD_APPLICATION = 2;
+    static final byte JOIN = 3;
+    static final byte LEAVE = 4;
+    static final byte PING = 5;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    private PeerProtocol() {
+    }
+
+    static void writeNode(DataOutput out, ClusterNode node) throws IOException {
+        out.writeUTF(node.id());
+        out.writeUTF(node.host());
+        out.writeInt(node.port());
+    }
+
+    static ClusterNode readNode(DataInput in) throws IOException {
+        return new ClusterNode(in.readUTF(), in.readUTF(), in.readInt());
+    }
+
+    static void writeNodes(DataOutput out, Collection<ClusterNode> nodes) throws IOException {
+        out.writeInt(nodes.size());
+        for (ClusterNode node : nodes) {
+            writeNode(out, node);
+        }
+    }
+
+    static List<ClusterNode> readNodes(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<ClusterNode> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add(readNode(in));
+        }
+        return nodes;
+    }
+}
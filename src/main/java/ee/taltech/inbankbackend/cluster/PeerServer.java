@@ -0,0 +1,115 @@
+package ee.taltech.inbankbackend.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts peer protocol connections and serves the requests on each of them in order, after the peer has
+ * passed the handshake of the {@link PeerAuthenticator}. Every connection is served by a thread of its own, up to
+ * maxConnections; further connections are closed right away. A connection that stays silent for longer than
+ * the idle timeout, including in the middle of the handshake, is dropped.
+ */
+class PeerServer implements Closeable {
+
+    interface RequestHandler {
+        /**
+         * Reads the payload of the request and writes a complete response.
+         */
+        void handle(byte operation, DataInputStream in, DataOutputStream out) throws IOException;
+    }
+
+    private final ServerSocket serverSocket;
+    private final RequestHandler handler;
+    private final PeerAuthenticator authenticator;
+    private final int idleTimeoutMillis;
+    private final ThreadPoolExecutor executor;
+    private final Thread acceptor;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    PeerServer(String host, int port, RequestHandler handler, PeerAuthenticator authenticator, int maxConnections,
+               int idleTimeoutMillis) throws IOException {
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getByName(host));
+        this.handler = handler;
+        this.authenticator = authenticator;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.executor = new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "peer-server");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.acceptor = new Thread(this::acceptConnections, "peer-server-acceptor");
+        this.acceptor.setDaemon(true);
+    }
+
+    void start() {
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket connection : connections) {
+            connection.close();
+        }
+        executor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(idleTimeoutMillis);
+                connections.add(socket);
+                try {
+                    executor.execute(() -> serve(socket));
+                } catch (RejectedExecutionException e) {
+                    connections.remove(socket);
+                    socket.close();
+                }
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            authenticator.accept(in, out);
+            while (true) {
+                handler.handle(in.readByte(), in, out);
+                out.flush();
+            }
+        } catch (EOFException | SocketException e) {
+            // The peer closed the connection
+        } catch (IOException e) {
+            // A failed handshake, an idle timeout or a broken request: the connection is dropped
+        } finally {
+            connections.remove(socket);
+        }
+    }
+}
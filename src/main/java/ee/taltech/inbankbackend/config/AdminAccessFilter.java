@@ -0,0 +1,60 @@
+package ee.taltech.inbankbackend.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Guards the /admin endpoints, which expose customer decisions and flight recordings. A request must carry
+ * the admin.token in the X-Admin-Token header. While no token is configured every admin request is refused,
+ * so the endpoints are closed unless an operator opens them on purpose.
+ * <br><br>
+ * The path is checked after decoding and removing ;parameters, like Spring MVC does before matching a handler,
+ * so /admin;x=1/decisions or /%61dmin/decisions can not reach an admin endpoint past the check.
+ */
+@Component
+public class AdminAccessFilter extends OncePerRequestFilter {
+
+    static final String ADMIN_PATH = "/admin";
+    static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final byte[] token;
+
+    @Autowired
+    public AdminAccessFilter(@Value("${admin.token:}") String token) {
+        this.token = token.isBlank() ? null : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = UrlPathHelper.defaultInstance.getLookupPathForRequest(request);
+        return !path.equals(ADMIN_PATH) && !path.startsWith(ADMIN_PATH + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (token == null) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+        String presented = request.getHeader(TOKEN_HEADER);
+        // Compared in constant time, so the token can not be guessed byte by byte from response times
+        if (presented == null || !MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8))) {
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
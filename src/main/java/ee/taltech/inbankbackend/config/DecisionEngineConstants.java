@@ -1,5 +1,7 @@
 package ee.taltech.inbankbackend.config;
 
+import java.math.BigDecimal;
+
 /**
  * Holds all necessary constants for the decision engine.
  */
@@ -15,4 +17,8 @@ public class DecisionEngineConstants {
     public static final Integer LIFE_EXPECTANCY_EST = 82;
     public static final Integer LIFE_EXPECTANCY_LV = 73;
     public static final Integer LIFE_EXPECTANCY_LT = 72;
+    public static final BigDecimal SEGMENT_1_ANNUAL_INTEREST_RATE = new BigDecimal("0.1990");
+    public static final BigDecimal SEGMENT_2_ANNUAL_INTEREST_RATE = new BigDecimal("0.1490");
+    public static final BigDecimal SEGMENT_3_ANNUAL_INTEREST_RATE = new BigDecimal("0.0990");
+    public static final Integer MAXIMUM_INTEREST_RATE_SCALE = 6;
 }
@@ -0,0 +1,51 @@
+package ee.taltech.inbankbackend.config;
+
+import ee.taltech.inbankbackend.blacklist.BlacklistService;
+import ee.taltech.inbankbackend.history.ApplicantHistory;
+import ee.taltech.inbankbackend.scoring.ScorecardEngine;
+import ee.taltech.inbankbackend.service.DecisionEngine;
+import ee.taltech.inbankbackend.store.DecisionStore;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Beans that are created at startup even when the fast-startup profile turns on lazy initialization.
+ * <br><br>
+ * A lazy bean with @Scheduled methods is not scheduled until something first uses it, so the blacklist and
+ * scorecard would never be reloaded and the applicant history never compacted on an idle instance. The
+ * controllers and the beans on the decision path are created eagerly too, so loading the blacklist and the
+ * scorecard and opening the decision store happen before the instance is ready rather than in the first request.
+ */
+@Configuration
+public class LazyInitializationConfig {
+
+    private static final List<Class<?>> EAGER_TYPES = List.of(DecisionEngine.class, DecisionStore.class,
+            ApplicantHistory.class, ScorecardEngine.class, BlacklistService.class);
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerBeans() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && (isEagerType(beanType)
+                || beanType.isAnnotationPresent(RestController.class) || hasScheduledMethods(beanType));
+    }
+
+    private static boolean isEagerType(Class<?> beanType) {
+        return EAGER_TYPES.stream().anyMatch(type -> type.isAssignableFrom(beanType));
+    }
+
+    private static boolean hasScheduledMethods(Class<?> beanType) {
+        for (Class<?> type = beanType; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Scheduled.class)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,54 @@
+package ee.taltech.inbankbackend.config;
+
+import com.github.vladislavgoltjajev.personalcode.locale.estonia.EstonianPersonalCodeGenerator;
+import com.github.vladislavgoltjajev.personalcode.locale.estonia.EstonianPersonalCodeValidator;
+import ee.taltech.inbankbackend.DTOs.AsyncDecisionRequest;
+import ee.taltech.inbankbackend.DTOs.DecisionCallback;
+import ee.taltech.inbankbackend.DTOs.DecisionRequest;
+import ee.taltech.inbankbackend.DTOs.DecisionResponse;
+import ee.taltech.inbankbackend.DTOs.DecisionSearchRequest;
+import ee.taltech.inbankbackend.DTOs.SubmissionResponse;
+import ee.taltech.inbankbackend.dataobjects.Decision;
+import ee.taltech.inbankbackend.dataobjects.Installment;
+import ee.taltech.inbankbackend.dataobjects.LoanPricing;
+import ee.taltech.inbankbackend.endpoint.DecisionEngineController;
+import ee.taltech.inbankbackend.store.StoredDecision;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reachability metadata for the native image. The DTOs are bound by Jackson through their Lombok-generated
+ * constructors and accessors, which are only reached through reflection. The bundled scorecard model is read
+ * from the classpath.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final MemberCategory[] BINDING = {
+            MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+            MemberCategory.INVOKE_PUBLIC_METHODS,
+            MemberCategory.DECLARED_FIELDS
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.reflection()
+                .registerType(DecisionRequest.class, BINDING)
+                .registerType(DecisionResponse.class, BINDING)
+                .registerType(AsyncDecisionRequest.class, BINDING)
+                .registerType(SubmissionResponse.class, BINDING)
+                .registerType(DecisionCallback.class, BINDING)
+                .registerType(Decision.class, BINDING)
+                .registerType(LoanPricing.class, BINDING)
+                .registerType(Installment.class, BINDING)
+                .registerType(StoredDecision.class, BINDING)
+                .registerType(DecisionSearchRequest.class, BINDING)
+                .registerType(DecisionEngineController.class, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS)
+                .registerType(EstonianPersonalCodeValidator.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS)
+                .registerType(EstonianPersonalCodeGenerator.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.resources().registerPattern("scorecard/*.properties");
+    }
+}
@@ -0,0 +1,12 @@
+package ee.taltech.inbankbackend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the background maintenance tasks, such as compaction of the applicant history.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,43 @@
+package ee.taltech.inbankbackend.config;
+
+import ee.taltech.inbankbackend.service.DecisionEngine;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ends a class data sharing training run. When inbank.startup.training-run is set, the application makes
+ * one decision, so the classes on the request path are loaded as well, and exits once it is ready.
+ * The property is checked at runtime instead of with a condition, because conditions are fixed during
+ * AOT processing.
+ */
+@Component
+public class TrainingRunListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final ObjectProvider<DecisionEngine> decisionEngine;
+    private final boolean trainingRun;
+
+    @Autowired
+    public TrainingRunListener(ObjectProvider<DecisionEngine> decisionEngine,
+                               @Value("${inbank.startup.training-run:false}") boolean trainingRun) {
+        this.decisionEngine = decisionEngine;
+        this.trainingRun = trainingRun;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!trainingRun) {
+            return;
+        }
+        try {
+            decisionEngine.getObject().calculateApprovedLoan("50307172740", 4000L, 12, "EE");
+        } catch (Throwable ignored) {
+            // Only the classes loaded on the way matter
+        }
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -12,4 +12,9 @@ public class Decision {
     private final Integer loanAmount;
     private final Integer loanPeriod;
     private final String errorMessage;
+    private final LoanPricing pricing;
+
+    public Decision(Integer loanAmount, Integer loanPeriod, String errorMessage) {
+        this(loanAmount, loanPeriod, errorMessage, null);
+    }
 }
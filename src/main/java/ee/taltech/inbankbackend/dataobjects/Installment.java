@@ -0,0 +1,19 @@
+package ee.taltech.inbankbackend.dataobjects;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Holds one monthly payment of an amortization schedule.
+ */
+@Getter
+@AllArgsConstructor
+public class Installment {
+    private final int month;
+    private final BigDecimal payment;
+    private final BigDecimal principal;
+    private final BigDecimal interest;
+    private final BigDecimal remainingBalance;
+}
@@ -0,0 +1,27 @@
+package ee.taltech.inbankbackend.dataobjects;
+
+import ee.taltech.inbankbackend.product.LoanProduct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Holds everything the decision engine knows about a loan application.
+ * The monthly income and debt are optional and null if the customer did not provide them.
+ * The product is null for applications checked against the limits in DecisionEngineConstants.
+ */
+@Getter
+@AllArgsConstructor
+public class LoanApplication {
+    private final String personalCode;
+    private final Long loanAmount;
+    private final int loanPeriod;
+    private final String countryCode;
+    private final Long monthlyIncome;
+    private final Long monthlyDebt;
+    private final LoanProduct product;
+
+    public LoanApplication(String personalCode, Long loanAmount, int loanPeriod, String countryCode,
+                           Long monthlyIncome, Long monthlyDebt) {
+        this(personalCode, loanAmount, loanPeriod, countryCode, monthlyIncome, monthlyDebt, null);
+    }
+}
@@ -0,0 +1,20 @@
+package ee.taltech.inbankbackend.dataobjects;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Holds the price of an approved loan.
+ */
+@Getter
+@AllArgsConstructor
+public class LoanPricing {
+    private final long loanAmount;
+    private final int loanPeriod;
+    private final BigDecimal annualInterestRate;
+    private final BigDecimal monthlyPayment;
+    private final BigDecimal totalRepayment;
+    private final BigDecimal apr;
+}
@@ -0,0 +1,58 @@
+package ee.taltech.inbankbackend.endpoint;
+
+import ee.taltech.inbankbackend.DTOs.AsyncDecisionRequest;
+import ee.taltech.inbankbackend.DTOs.SubmissionResponse;
+import ee.taltech.inbankbackend.callback.AsyncDecisionService;
+import ee.taltech.inbankbackend.exceptions.SubmissionQueueFullException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/loan")
+@CrossOrigin
+@ConditionalOnProperty(name = "callback.enabled", havingValue = "true")
+public class AsyncDecisionController {
+
+    private final AsyncDecisionService asyncDecisionService;
+
+    @Autowired
+    AsyncDecisionController(AsyncDecisionService asyncDecisionService) {
+        this.asyncDecisionService = asyncDecisionService;
+    }
+
+    /**
+     * A REST endpoint that accepts loan applications from partners and delivers the decisions later.
+     * The request body is the same as for /loan/decision, with the URL the decision is posted to.<br><br>
+     * - If the callback URL is not an allowed http or https URL, or the loan product is unknown, the endpoint
+     * returns a bad request response.<br>
+     * - If too many applications are waiting for a decision, the endpoint returns a service unavailable response.<br>
+     * - Otherwise the endpoint returns an accepted response with the id of the submission. The decision is posted
+     * to the callback URL in a JSON array, with the id and the status /loan/decision would have answered with.
+     *
+     * @param request The request body containing the loan application and the callback URL
+     * @return A ResponseEntity with a SubmissionResponse body containing the id of the submission, or an error message
+     */
+    @PostMapping("/decision/async")
+    public ResponseEntity<SubmissionResponse> submitDecision(@RequestBody AsyncDecisionRequest request) {
+        if (!asyncDecisionService.isValidCallbackUrl(request.getCallbackUrl())) {
+            return ResponseEntity.badRequest().body(new SubmissionResponse(null, "Invalid callback URL!"));
+        }
+        if (!asyncDecisionService.isValidProduct(request.getProduct())) {
+            return ResponseEntity.badRequest().body(new SubmissionResponse(null, "Invalid loan product!"));
+        }
+        try {
+            String id = asyncDecisionService.submit(request);
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(new SubmissionResponse(id, null));
+        } catch (SubmissionQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new SubmissionResponse(null, e.getMessage()));
+        }
+    }
+}
@@ -4,7 +4,14 @@ import ee.taltech.inbankbackend.DTOs.DecisionRequest;
 import ee.taltech.inbankbackend.DTOs.DecisionResponse;
 import ee.taltech.inbankbackend.exceptions.*;
 import ee.taltech.inbankbackend.dataobjects.Decision;
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import ee.taltech.inbankbackend.dataobjects.LoanPricing;
+import ee.taltech.inbankbackend.product.LoanProduct;
+import ee.taltech.inbankbackend.product.LoanProducts;
 import ee.taltech.inbankbackend.service.DecisionEngine;
+import ee.taltech.inbankbackend.store.DecisionStore;
+import ee.taltech.inbankbackend.store.StoredDecision;
+import ee.taltech.inbankbackend.util.ApplicationIds;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,58 +21,111 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Instant;
+
 @RestController
 @RequestMapping("/loan")
 @CrossOrigin
 public class DecisionEngineController {
 
     private final DecisionEngine decisionEngine;
-    private final DecisionResponse response;
+    private final DecisionStore decisionStore;
+    private final LoanProducts loanProducts;
 
     @Autowired
-    DecisionEngineController(DecisionEngine decisionEngine, DecisionResponse response) {
+    DecisionEngineController(DecisionEngine decisionEngine, DecisionStore decisionStore, LoanProducts loanProducts) {
         this.decisionEngine = decisionEngine;
-        this.response = response;
+        this.decisionStore = decisionStore;
+        this.loanProducts = loanProducts;
     }
 
     /**
      * A REST endpoint that handles requests for loan decisions.
      * The endpoint accepts POST requests with a request body containing the customer's personal ID code,
-     * requested loan amount, and loan period.<br><br>
-     * - If the loan amount or period is invalid, the endpoint returns a bad request response with an error message.<br>
+     * requested loan amount, and loan period, and optionally their monthly income and debt and the loan product.<br><br>
+     * - If the loan product is unknown, the endpoint returns a bad request response with an error message.<br>
+     * - If the loan amount or period is invalid for the product, the endpoint returns a bad request response
+     * with an error message.<br>
      * - If the personal ID code is invalid, the endpoint returns a bad request response with an error message.<br>
      * - If an unexpected error occurs, the endpoint returns an internal server error response with an error message.<br>
-     * - If no valid loans can be found, the endpoint returns a not found response with an error message.<br>
-     * - If a valid loan is found, a DecisionResponse is returned containing the approved loan amount and period.
+     * - If no valid loans can be found or a credit policy rule rejects the application, the endpoint returns
+     * a not found response with an error message.<br>
+     * - If the customer has applied too many times within a day, or the loan product is already making as many
+     * decisions as it may at a time, the endpoint returns a too many requests response.<br>
+     * - If a valid loan is found, a DecisionResponse is returned containing the approved loan amount and period,
+     * the annual interest rate, the monthly payment and the APR.<br><br>
+     * Every response carries the id of the application, under which the decision can be looked up later.
      *
      * @param request The request body containing the customer's personal ID code, requested loan amount, and loan period
      * @return A ResponseEntity with a DecisionResponse body containing the approved loan amount and period, and an error message (if any)
      */
     @PostMapping("/decision")
     public ResponseEntity<DecisionResponse> requestDecision(@RequestBody DecisionRequest request) {
+        DecisionResponse response = new DecisionResponse();
+        response.setApplicationId(ApplicationIds.next(System.currentTimeMillis()));
+        ResponseEntity<DecisionResponse> result = decide(request, response);
+        decisionStore.record(new StoredDecision(response.getApplicationId(), Instant.now(), request.getPersonalCode(),
+                request.getCountryCode(), request.getLoanAmount(), request.getLoanPeriod(),
+                result.getStatusCode().value(), response.getLoanAmount(), response.getLoanPeriod(),
+                response.getErrorMessage(), response.getAnnualInterestRate(), response.getMonthlyPayment(),
+                response.getApr()));
+
+        return result;
+    }
+
+    private ResponseEntity<DecisionResponse> decide(DecisionRequest request, DecisionResponse response) {
+        LoanProduct product = loanProducts.find(request.getProduct());
+        if (product == null) {
+            response.setErrorMessage("Invalid loan product!");
+
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (!product.tryEnter()) {
+            response.setErrorMessage("Too many applications for this loan product!");
+
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+        }
+        long start = System.nanoTime();
         try {
-            Decision decision = decisionEngine.
-                    calculateApprovedLoan(request.getPersonalCode(), request.getLoanAmount(), request.getLoanPeriod(),request.getCountryCode());
+            return decide(request, product, response);
+        } finally {
+            product.exit(start);
+        }
+    }
+
+    /**
+     * Fills in the response, which is created for this request alone, so concurrent requests never see each
+     * other's results. Error responses keep the loan and pricing fields empty.
+     */
+    private ResponseEntity<DecisionResponse> decide(DecisionRequest request, LoanProduct product,
+                                                    DecisionResponse response) {
+        try {
+            Decision decision = decisionEngine.calculateApprovedLoan(new LoanApplication(request.getPersonalCode(),
+                    request.getLoanAmount(), request.getLoanPeriod(), request.getCountryCode(),
+                    request.getMonthlyIncome(), request.getMonthlyDebt(), product));
             response.setLoanAmount(decision.getLoanAmount());
             response.setLoanPeriod(decision.getLoanPeriod());
             response.setErrorMessage(decision.getErrorMessage());
+            LoanPricing pricing = decision.getPricing();
+            response.setAnnualInterestRate(pricing == null ? null : pricing.getAnnualInterestRate());
+            response.setMonthlyPayment(pricing == null ? null : pricing.getMonthlyPayment());
+            response.setApr(pricing == null ? null : pricing.getApr());
 
             return ResponseEntity.ok(response);
-        } catch (InvalidPersonalCodeException | InvalidLoanAmountException | InvalidLoanPeriodException | InvalidAgeException e) {
-            response.setLoanAmount(null);
-            response.setLoanPeriod(null);
+        } catch (InvalidPersonalCodeException | InvalidLoanAmountException | InvalidLoanPeriodException
+                 | InvalidAgeException | InvalidIncomeException e) {
             response.setErrorMessage(e.getMessage());
 
             return ResponseEntity.badRequest().body(response);
         } catch (NoValidLoanException e) {
-            response.setLoanAmount(null);
-            response.setLoanPeriod(null);
             response.setErrorMessage(e.getMessage());
 
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        } catch (TooManyApplicationsException e) {
+            response.setErrorMessage(e.getMessage());
+
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
         } catch (Exception e) {
-            response.setLoanAmount(null);
-            response.setLoanPeriod(null);
             response.setErrorMessage("An unexpected error occurred");
 
             return ResponseEntity.internalServerError().body(response);
@@ -0,0 +1,63 @@
+package ee.taltech.inbankbackend.endpoint;
+
+import ee.taltech.inbankbackend.DTOs.DecisionSearchRequest;
+import ee.taltech.inbankbackend.store.DecisionStore;
+import ee.taltech.inbankbackend.store.StoredDecision;
+import ee.taltech.inbankbackend.util.PersonalCodes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Decision lookups for customer support. The endpoints are under /admin, so they require the admin token,
+ * and they are not open to cross-origin requests.
+ */
+@RestController
+@RequestMapping("/admin/decisions")
+public class DecisionLookupController {
+
+    private final DecisionStore decisionStore;
+
+    @Autowired
+    DecisionLookupController(DecisionStore decisionStore) {
+        this.decisionStore = decisionStore;
+    }
+
+    /**
+     * A REST endpoint that returns the decision made for a loan application.<br><br>
+     * - If no decision was made for the application within the retention period, the endpoint returns
+     * a not found response.<br>
+     * - Otherwise the decision is returned as it was answered, with the requested loan and the time of the decision.
+     *
+     * @param applicationId Id of the loan application, as returned by /loan/decision or /loan/decision/async
+     * @return A ResponseEntity with the stored decision
+     */
+    @GetMapping("/{applicationId}")
+    public ResponseEntity<StoredDecision> requestDecision(@PathVariable String applicationId) {
+        return decisionStore.findByApplicationId(applicationId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * A REST endpoint that returns the decisions made for a customer within the retention period, newest first.<br><br>
+     * - If the personal ID code is missing or not a number, the endpoint returns a bad request response.
+     *
+     * @param request The request body containing the personal ID code of the customer
+     * @return A ResponseEntity with the stored decisions
+     */
+    @PostMapping("/search")
+    public ResponseEntity<List<StoredDecision>> requestDecisions(@RequestBody DecisionSearchRequest request) {
+        if (PersonalCodes.pack(request.getPersonalCode()) <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(decisionStore.findByPersonalCode(request.getPersonalCode()));
+    }
+}
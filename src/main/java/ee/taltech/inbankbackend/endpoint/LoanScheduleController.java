@@ -0,0 +1,81 @@
+package ee.taltech.inbankbackend.endpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.taltech.inbankbackend.config.DecisionEngineConstants;
+import ee.taltech.inbankbackend.dataobjects.Installment;
+import ee.taltech.inbankbackend.product.LoanProduct;
+import ee.taltech.inbankbackend.product.LoanProducts;
+import ee.taltech.inbankbackend.service.PricingEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@RestController
+@RequestMapping("/loan")
+@CrossOrigin
+public class LoanScheduleController {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final PricingEngine pricingEngine;
+    private final ObjectMapper objectMapper;
+    private final LoanProducts loanProducts;
+
+    @Autowired
+    LoanScheduleController(PricingEngine pricingEngine, ObjectMapper objectMapper, LoanProducts loanProducts) {
+        this.pricingEngine = pricingEngine;
+        this.objectMapper = objectMapper;
+        this.loanProducts = loanProducts;
+    }
+
+    /**
+     * A REST endpoint that returns the amortization schedule of a loan.
+     * The installments are written as newline-delimited JSON while they are being calculated,
+     * so long schedules are never held in memory as a whole.<br><br>
+     * - If the loan product is unknown, or the loan amount or period is outside its limits, or the interest rate is
+     * not between 0 and 1 with at most 6 decimal places, the endpoint returns a bad request response.<br>
+     * - Otherwise one JSON object is returned per line for every month of the loan period.
+     *
+     * @param loanAmount Loan amount
+     * @param loanPeriod Loan period in months
+     * @param annualInterestRate Nominal annual interest rate, for example 0.1490 for 14.9%
+     * @param product Loan product, the default product if omitted
+     * @return A ResponseEntity streaming the installments of the loan
+     */
+    @GetMapping("/schedule")
+    public ResponseEntity<StreamingResponseBody> requestSchedule(@RequestParam long loanAmount,
+                                                                 @RequestParam int loanPeriod,
+                                                                 @RequestParam BigDecimal annualInterestRate,
+                                                                 @RequestParam(required = false) String product) {
+        LoanProduct loanProduct = loanProducts.find(product);
+        if (loanProduct == null
+                || loanAmount < loanProduct.getMinimumLoanAmount() || loanAmount > loanProduct.getMaximumLoanAmount()
+                || loanPeriod < loanProduct.getMinimumLoanPeriod() || loanPeriod > loanProduct.getMaximumLoanPeriod()
+                || annualInterestRate.signum() < 0 || annualInterestRate.compareTo(BigDecimal.ONE) > 0
+                || annualInterestRate.stripTrailingZeros().scale()
+                > DecisionEngineConstants.MAXIMUM_INTEREST_RATE_SCALE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<Installment> schedule = pricingEngine.schedule(loanAmount, loanPeriod, annualInterestRate)) {
+                Iterator<Installment> installments = schedule.iterator();
+                while (installments.hasNext()) {
+                    outputStream.write(objectMapper.writeValueAsBytes(installments.next()));
+                    outputStream.write(NEWLINE);
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -0,0 +1,90 @@
+package ee.taltech.inbankbackend.endpoint;
+
+import ee.taltech.inbankbackend.profiling.RecordingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/admin/profiling")
+@ConditionalOnProperty(name = "profiling.enabled", havingValue = "true")
+public class ProfilingController {
+
+    private final RecordingService recordingService;
+
+    @Autowired
+    ProfilingController(RecordingService recordingService) {
+        this.recordingService = recordingService;
+    }
+
+    /**
+     * An admin endpoint that starts a flight recording with the decision stage events.<br><br>
+     * - If a recording is already running, the endpoint returns a conflict response.<br>
+     * - Otherwise the recording runs until it is stopped or for the given number of seconds, at most
+     * profiling.max-duration-seconds.
+     *
+     * @param durationSeconds Time after which the recording stops by itself
+     * @return An empty ResponseEntity
+     */
+    @PostMapping("/recording")
+    public ResponseEntity<Void> startRecording(@RequestParam(required = false) Long durationSeconds) {
+        Duration duration = durationSeconds == null ? null : Duration.ofSeconds(durationSeconds);
+        return recordingService.start(duration)
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    /**
+     * An admin endpoint that stops the running flight recording.<br><br>
+     * - If no recording is running, the endpoint returns a not found response.
+     *
+     * @return An empty ResponseEntity
+     */
+    @PostMapping("/recording/stop")
+    public ResponseEntity<Void> stopRecording() {
+        return recordingService.stop() ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * An admin endpoint that downloads the current or last flight recording, which can be opened in
+     * JDK Mission Control or summarized with the recording analyzer.<br><br>
+     * - If no recording has been started, the endpoint returns a not found response.
+     *
+     * @return A ResponseEntity streaming the recording file
+     * @throws IOException If the recording can not be written
+     */
+    @GetMapping("/recording")
+    public ResponseEntity<StreamingResponseBody> downloadRecording() throws IOException {
+        Optional<Path> file = recordingService.dump();
+        if (file.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Path recording = file.get();
+        StreamingResponseBody body = outputStream -> {
+            try {
+                Files.copy(recording, outputStream);
+            } finally {
+                Files.deleteIfExists(recording);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"inbank-decisions.jfr\"")
+                .body(body);
+    }
+}
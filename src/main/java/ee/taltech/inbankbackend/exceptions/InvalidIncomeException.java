@@ -0,0 +1,28 @@
+package ee.taltech.inbankbackend.exceptions;
+
+/**
+ * Thrown when the monthly income or debt of the customer is invalid.
+ */
+public class InvalidIncomeException extends Throwable {
+    private final String message;
+    private final Throwable cause;
+
+    public InvalidIncomeException(String message) {
+        this(message, null);
+    }
+
+    public InvalidIncomeException(String message, Throwable cause) {
+        this.message = message;
+        this.cause = cause;
+    }
+
+    @Override
+    public Throwable getCause() {
+        return cause;
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
+}
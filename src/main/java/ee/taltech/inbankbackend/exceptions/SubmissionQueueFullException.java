@@ -0,0 +1,10 @@
+package ee.taltech.inbankbackend.exceptions;
+
+/**
+ * Thrown when an asynchronous loan application cannot be queued because too many are already waiting.
+ */
+public class SubmissionQueueFullException extends Exception {
+    public SubmissionQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package ee.taltech.inbankbackend.exceptions;
+
+/**
+ * Thrown when the applicant has applied for a loan too many times within a day.
+ */
+public class TooManyApplicationsException extends Exception {
+    public TooManyApplicationsException(String message) {
+        super(message);
+    }
+}
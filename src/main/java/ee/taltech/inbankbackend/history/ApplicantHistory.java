@@ -0,0 +1,15 @@
+package ee.taltech.inbankbackend.history;
+
+/**
+ * Remembers recent loan applications per applicant, so repeated applications can be limited.
+ */
+public interface ApplicantHistory {
+
+    /**
+     * Records a loan application of the applicant if they are still within their application limit.
+     *
+     * @param personalCode Personal ID code of the applicant
+     * @return true if the application was recorded, false if the applicant has reached the limit
+     */
+    boolean tryRecordApplication(String personalCode);
+}
@@ -0,0 +1,186 @@
+package ee.taltech.inbankbackend.history;
+
+import ee.taltech.inbankbackend.util.PersonalCodes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applicant history kept in lock-striped, open-addressing hash tables of primitive arrays.
+ * Personal codes are packed into longs, and every applicant has a ring buffer of the timestamps of
+ * their last applications, stored as seconds since the history was created. An applicant may apply at most
+ * maxApplications times within the window, so the ring only needs that many slots.
+ * <br><br>
+ * A request only locks the stripe its applicant belongs to. Expired applicants are removed by a periodic
+ * compaction that rebuilds one stripe at a time.
+ */
+@Service
+public class StripedApplicantHistory implements ApplicantHistory {
+
+    private static final int INITIAL_STRIPE_CAPACITY = 1024;
+    private static final long EMPTY = 0;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final long windowSeconds;
+    private final long epochSeconds;
+    private final Clock clock;
+
+    @Autowired
+    public StripedApplicantHistory(@Value("${history.max-applications:5}") int maxApplications,
+                                   @Value("${history.window-hours:24}") long windowHours,
+                                   @Value("${history.stripes:64}") int stripes) {
+        this(maxApplications, TimeUnit.HOURS.toSeconds(windowHours), stripes, Clock.systemUTC());
+    }
+
+    StripedApplicantHistory(int maxApplications, long windowSeconds, int stripes, Clock clock) {
+        int stripeCount = stripes <= 1 ? 1 : Integer.highestOneBit((stripes - 1) << 1);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(maxApplications);
+        }
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(stripeCount);
+        this.windowSeconds = windowSeconds;
+        this.clock = clock;
+        this.epochSeconds = clock.millis() / 1000 - 1;
+    }
+
+    @Override
+    public boolean tryRecordApplication(String personalCode) {
+        long key = PersonalCodes.pack(personalCode);
+        if (key <= 0) {
+            return true;
+        }
+        long hash = PersonalCodes.hash(key);
+        return stripeFor(hash).tryRecord(key, hash, now(), windowSeconds);
+    }
+
+    /**
+     * Removes applicants whose last application is older than the window.
+     */
+    @Scheduled(fixedDelayString = "${history.compaction-interval-ms:600000}")
+    public void compact() {
+        int now = now();
+        for (Stripe stripe : stripes) {
+            stripe.compact(now, windowSeconds);
+        }
+    }
+
+    /**
+     * @return Number of applicants currently tracked
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(long hash) {
+        return stripes.length == 1 ? stripes[0] : stripes[(int) (hash >>> stripeShift)];
+    }
+
+    /**
+     * @return Seconds since the history was created, always at least 1 so 0 can mark an empty slot
+     */
+    private int now() {
+        return (int) (clock.millis() / 1000 - epochSeconds);
+    }
+
+    /**
+     * One lock-protected open-addressing table. Entry i owns the key keys[i], the ring buffer
+     * timestamps[i * slots .. (i + 1) * slots) and the position heads[i] where the next timestamp is written.
+     */
+    private static final class Stripe {
+        private final int slots;
+        private long[] keys;
+        private int[] timestamps;
+        private int[] heads;
+        private int size;
+
+        Stripe(int slots) {
+            this.slots = slots;
+            allocate(INITIAL_STRIPE_CAPACITY);
+        }
+
+        synchronized boolean tryRecord(long key, long hash, int now, long windowSeconds) {
+            int index = indexOf(key, hash);
+            if (keys[index] == EMPTY) {
+                if ((size + 1) * 2 > keys.length) {
+                    rehash(keys.length * 2, 0, windowSeconds);
+                    index = indexOf(key, hash);
+                }
+                keys[index] = key;
+                size++;
+            }
+
+            int ring = index * slots;
+            int head = heads[index];
+            int oldest = timestamps[ring + head];
+            if (oldest != 0 && now - oldest < windowSeconds) {
+                return false;
+            }
+            timestamps[ring + head] = now;
+            heads[index] = head + 1 == slots ? 0 : head + 1;
+            return true;
+        }
+
+        synchronized void compact(int now, long windowSeconds) {
+            rehash(keys.length, now, windowSeconds);
+            while (keys.length > INITIAL_STRIPE_CAPACITY && size * 8 < keys.length) {
+                rehash(keys.length / 2, now, windowSeconds);
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private int indexOf(long key, long hash) {
+            int mask = keys.length - 1;
+            int index = (int) hash & mask;
+            while (keys[index] != EMPTY && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        /**
+         * Moves all entries into tables of the given capacity. If now is positive, entries without
+         * an application inside the window are dropped on the way.
+         */
+        private void rehash(int capacity, int now, long windowSeconds) {
+            long[] oldKeys = keys;
+            int[] oldTimestamps = timestamps;
+            int[] oldHeads = heads;
+            allocate(capacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY || (now > 0 && isExpired(oldTimestamps, oldHeads[i], i * slots, now, windowSeconds))) {
+                    continue;
+                }
+                int index = indexOf(oldKeys[i], PersonalCodes.hash(oldKeys[i]));
+                keys[index] = oldKeys[i];
+                heads[index] = oldHeads[i];
+                System.arraycopy(oldTimestamps, i * slots, timestamps, index * slots, slots);
+                size++;
+            }
+        }
+
+        private boolean isExpired(int[] ringTimestamps, int head, int ring, int now, long windowSeconds) {
+            int newest = ringTimestamps[ring + (head == 0 ? slots - 1 : head - 1)];
+            return now - newest >= windowSeconds;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            timestamps = new int[capacity * slots];
+            heads = new int[capacity];
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ee.taltech.inbankbackend.product;
+
+import ee.taltech.inbankbackend.service.DefaultLoanCalculator;
+import ee.taltech.inbankbackend.service.LoanCalculator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A loan product with its own loan limits, its own loan calculator and its own share of the decision capacity.
+ * The share is a bulkhead: at most maxConcurrent decisions of the product are made at the same time, and
+ * further ones are turned away at once instead of waiting, so a surge of one product leaves the capacity of the
+ * others alone.
+ */
+public final class LoanProduct {
+
+    private final String name;
+    private final int minimumLoanAmount;
+    private final int maximumLoanAmount;
+    private final int minimumLoanPeriod;
+    private final int maximumLoanPeriod;
+    private final int maxConcurrent;
+    private final LoanCalculator loanCalculator;
+    private final Semaphore bulkhead;
+    private final Timer decisions;
+    private final Counter shed;
+
+    LoanProduct(String name, int minimumLoanAmount, int maximumLoanAmount, int minimumLoanPeriod,
+                int maximumLoanPeriod, int maxConcurrent, MeterRegistry registry) {
+        this.name = name;
+        this.minimumLoanAmount = minimumLoanAmount;
+        this.maximumLoanAmount = maximumLoanAmount;
+        this.minimumLoanPeriod = minimumLoanPeriod;
+        this.maximumLoanPeriod = maximumLoanPeriod;
+        this.maxConcurrent = maxConcurrent;
+        this.loanCalculator = new DefaultLoanCalculator(minimumLoanAmount, maximumLoanAmount, maximumLoanPeriod);
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.decisions = Timer.builder("loan.product.decisions")
+                .description("Decisions made for a loan product")
+                .tag("product", name)
+                .register(registry);
+        this.shed = Counter.builder("loan.product.shed")
+                .description("Applications turned away because the loan product had no capacity left")
+                .tag("product", name)
+                .register(registry);
+        Gauge.builder("loan.product.in_flight", bulkhead, permits -> maxConcurrent - permits.availablePermits())
+                .description("Decisions of a loan product being made")
+                .tag("product", name)
+                .register(registry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMinimumLoanAmount() {
+        return minimumLoanAmount;
+    }
+
+    public int getMaximumLoanAmount() {
+        return maximumLoanAmount;
+    }
+
+    public int getMinimumLoanPeriod() {
+        return minimumLoanPeriod;
+    }
+
+    public int getMaximumLoanPeriod() {
+        return maximumLoanPeriod;
+    }
+
+    /**
+     * @return Longest loan period of the product in whole years, rounded up, as left free by the age check
+     */
+    public int getMaximumLoanPeriodInYears() {
+        return (maximumLoanPeriod + 11) / 12;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * @return Loan calculator bound to the limits of the product
+     */
+    public LoanCalculator getLoanCalculator() {
+        return loanCalculator;
+    }
+
+    /**
+     * Takes a slot of the product's bulkhead without waiting.
+     *
+     * @return Whether a slot was free. Every successful call must be followed by {@link #exit(long)}.
+     */
+    public boolean tryEnter() {
+        if (bulkhead.tryAcquire()) {
+            return true;
+        }
+        shed.increment();
+        return false;
+    }
+
+    /**
+     * Gives the slot back and records the decision.
+     *
+     * @param startNanos Value of System.nanoTime() when the decision started
+     */
+    public void exit(long startNanos) {
+        decisions.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        bulkhead.release();
+    }
+}
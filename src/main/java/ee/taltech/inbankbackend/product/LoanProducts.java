@@ -0,0 +1,100 @@
+package ee.taltech.inbankbackend.product;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The loan products listed in the products.catalog property, resolved once at startup. Every entry has the form
+ * name:minimumAmount-maximumAmount:minimumPeriod-maximumPeriod:maxConcurrent, for example
+ * car-loan:5000-30000:24-84:16. Applications that do not name a product get products.default.
+ */
+@Component
+public class LoanProducts {
+
+    private final Map<String, LoanProduct> products = new LinkedHashMap<>();
+    private final LoanProduct defaultProduct;
+
+    /**
+     * @throws IllegalStateException If an entry of the catalog is not valid or the default product is not in it
+     */
+    @Autowired
+    public LoanProducts(@Value("${products.catalog:small-loan:2000-10000:12-60:64}") List<String> catalog,
+                        @Value("${products.default:small-loan}") String defaultProduct,
+                        MeterRegistry registry) {
+        for (String entry : catalog) {
+            if (!entry.isBlank()) {
+                LoanProduct product = parse(entry.trim(), registry);
+                if (products.putIfAbsent(product.getName(), product) != null) {
+                    throw new IllegalStateException("Duplicate loan product in products.catalog: " + product.getName());
+                }
+            }
+        }
+        this.defaultProduct = products.get(defaultProduct.trim());
+        if (this.defaultProduct == null) {
+            throw new IllegalStateException("products.default names an unknown loan product: " + defaultProduct);
+        }
+    }
+
+    /**
+     * @param name Name of the product, or null or blank for the default product
+     * @return The product, or null if there is no product with the name
+     */
+    public LoanProduct find(String name) {
+        return name == null || name.isBlank() ? defaultProduct : products.get(name);
+    }
+
+    public LoanProduct getDefault() {
+        return defaultProduct;
+    }
+
+    public Collection<LoanProduct> getAll() {
+        return products.values();
+    }
+
+    private static LoanProduct parse(String entry, MeterRegistry registry) {
+        String[] fields = entry.split(":");
+        if (fields.length != 4) {
+            throw invalid(entry);
+        }
+        int[] amounts = range(fields[1], entry);
+        int[] periods = range(fields[2], entry);
+        int maxConcurrent = number(fields[3], entry);
+        if (fields[0].isBlank() || amounts[0] <= 0 || periods[0] <= 0 || maxConcurrent <= 0) {
+            throw invalid(entry);
+        }
+        return new LoanProduct(fields[0].trim(), amounts[0], amounts[1], periods[0], periods[1], maxConcurrent,
+                registry);
+    }
+
+    private static int[] range(String field, String entry) {
+        String[] bounds = field.split("-");
+        if (bounds.length != 2) {
+            throw invalid(entry);
+        }
+        int minimum = number(bounds[0], entry);
+        int maximum = number(bounds[1], entry);
+        if (minimum > maximum) {
+            throw invalid(entry);
+        }
+        return new int[]{minimum, maximum};
+    }
+
+    private static int number(String field, String entry) {
+        try {
+            return Integer.parseInt(field.trim());
+        } catch (NumberFormatException e) {
+            throw invalid(entry);
+        }
+    }
+
+    private static IllegalStateException invalid(String entry) {
+        return new IllegalStateException("Invalid loan product in products.catalog: " + entry);
+    }
+}
@@ -0,0 +1,49 @@
+package ee.taltech.inbankbackend.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event covering one stage of a loan decision. The event's duration is the time spent in the
+ * stage. Rules of the credit policy are recorded as stages of their own, named validation/&lt;rule&gt;.
+ * <br><br>
+ * Callers check EventType.isEnabled() before creating the event, so nothing is allocated while no recording
+ * has it enabled.
+ */
+@Name(DecisionStageEvent.NAME)
+@Label("Decision Stage")
+@Description("A stage of a loan decision")
+@Category({"Inbank", "Loan Decision"})
+@StackTrace(false)
+public class DecisionStageEvent extends Event {
+
+    public static final String NAME = "ee.taltech.inbankbackend.DecisionStage";
+    public static final String OK = "ok";
+    public static final String REJECTED = "rejected";
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Outcome")
+    @Description("ok if the decision went on to the next stage, rejected if it ended in this one")
+    String outcome;
+
+    @Label("Country")
+    String countryCode;
+
+    /**
+     * Commits the event if a recording wants it.
+     */
+    public void commit(String stage, String outcome, String countryCode) {
+        if (shouldCommit()) {
+            this.stage = stage;
+            this.outcome = outcome;
+            this.countryCode = countryCode;
+            commit();
+        }
+    }
+}
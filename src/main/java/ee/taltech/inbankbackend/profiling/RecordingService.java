@@ -0,0 +1,127 @@
+package ee.taltech.inbankbackend.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Flight recordings started on demand, at most one at a time. A recording uses the JDK configuration named by
+ * profiling.settings with the decision stage events turned on, and is bounded in size, age and duration, so one
+ * that is never stopped can not fill the disk or run forever. The environment variables and system properties are
+ * never recorded, because they hold secrets such as admin.token and the outbox key.
+ */
+@Service
+@ConditionalOnProperty(name = "profiling.enabled", havingValue = "true")
+public class RecordingService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RecordingService.class);
+    static final String ENVIRONMENT_EVENT = "jdk.InitialEnvironmentVariable";
+    static final String SYSTEM_PROPERTY_EVENT = "jdk.InitialSystemProperty";
+
+    private final Configuration configuration;
+    private final Duration maxDuration;
+    private final long maxSizeBytes;
+    private Recording recording;
+
+    /**
+     * @throws IOException If the recording settings can not be read
+     * @throws ParseException If the recording settings are not valid
+     */
+    @Autowired
+    public RecordingService(@Value("${profiling.settings:profile}") String settings,
+                            @Value("${profiling.max-duration-seconds:600}") long maxDurationSeconds,
+                            @Value("${profiling.max-size-mb:100}") long maxSizeMegabytes)
+            throws IOException, ParseException {
+        this.configuration = Configuration.getConfiguration(settings);
+        this.maxDuration = Duration.ofSeconds(maxDurationSeconds);
+        this.maxSizeBytes = maxSizeMegabytes * 1024 * 1024;
+    }
+
+    /**
+     * Starts a recording, unless one is already running.
+     *
+     * @param duration Time after which the recording stops by itself, limited by profiling.max-duration-seconds
+     * @return Whether a recording was started
+     */
+    public synchronized boolean start(Duration duration) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return false;
+        }
+        close();
+        Duration bounded = duration == null || duration.isNegative() || duration.isZero()
+                || duration.compareTo(maxDuration) > 0 ? maxDuration : duration;
+        recording = new Recording(configuration);
+        recording.setName("inbank-decisions");
+        recording.enable(DecisionStageEvent.NAME);
+        recording.disable(ENVIRONMENT_EVENT);
+        recording.disable(SYSTEM_PROPERTY_EVENT);
+        recording.setDuration(bounded);
+        recording.setMaxSize(maxSizeBytes);
+        recording.setMaxAge(maxDuration);
+        recording.setToDisk(true);
+        recording.start();
+        log.info("Started a flight recording for at most {}", bounded);
+        return true;
+    }
+
+    /**
+     * Stops the running recording. Its data is kept until it is downloaded or a new recording is started.
+     *
+     * @return Whether a recording was running
+     */
+    public synchronized boolean stop() {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            return false;
+        }
+        recording.stop();
+        log.info("Stopped the flight recording");
+        return true;
+    }
+
+    /**
+     * Writes the data of the current or last recording to a temporary file, which the caller deletes.
+     *
+     * @return The file, or empty if no recording has been started
+     * @throws IOException If the file can not be written
+     */
+    public synchronized Optional<Path> dump() throws IOException {
+        if (recording == null || recording.getState() == RecordingState.NEW
+                || recording.getState() == RecordingState.CLOSED) {
+            return Optional.empty();
+        }
+        Path file = Files.createTempFile("inbank-decisions-", ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return Optional.of(file);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        close();
+    }
+
+    private void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ee.taltech.inbankbackend.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count-based circuit breaker. It keeps the outcomes of the last calls in a ring and opens once the window is full
+ * and the share of failures in it reaches the threshold. While open, calls are refused without being made.
+ * After the open duration a single trial call is let through: its success closes the breaker with an empty
+ * window, its failure opens it again.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] failed;
+    private final int failureThreshold;
+    private final long openNanos;
+    private volatile State state = State.CLOSED;
+    private int position;
+    private int calls;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    /**
+     * @param windowSize Number of most recent calls the failure rate is calculated over
+     * @param failureRate Share of failed calls, from 0 to 1, at which the breaker opens
+     * @param openMillis Time the breaker stays open before a trial call is let through
+     */
+    CircuitBreaker(int windowSize, double failureRate, long openMillis) {
+        this.failed = new boolean[Math.max(1, windowSize)];
+        this.failureThreshold = Math.max(1, (int) Math.ceil(failed.length * Math.min(1, failureRate)));
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    State state() {
+        return state;
+    }
+
+    /**
+     * @return Whether a call may be made now. Every permitted call must be followed by a success or a failure.
+     */
+    boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            return state == State.CLOSED;
+        }
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls == failed.length && failures >= failureThreshold) {
+                open();
+            }
+        }
+    }
+
+    private void record(boolean failure) {
+        if (calls == failed.length) {
+            failures -= failed[position] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        failed[position] = failure;
+        failures += failure ? 1 : 0;
+        position = (position + 1) % failed.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        calls = 0;
+        failures = 0;
+        position = 0;
+        state = State.CLOSED;
+    }
+}
@@ -0,0 +1,228 @@
+package ee.taltech.inbankbackend.resilience;
+
+import ee.taltech.inbankbackend.scoring.ScorecardChangedEvent;
+import ee.taltech.inbankbackend.service.CreditModifierCalculator;
+import ee.taltech.inbankbackend.util.CreditModifierCache;
+import ee.taltech.inbankbackend.util.PersonalCodes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Degraded mode for credit modifier lookups that may be slow or fail, such as lookups forwarded to other cluster
+ * members. A lookup runs on a bounded executor and the request waits for it no longer than its latency budget.
+ * If it has not answered within the hedge delay, the same lookup is sent once more and the first answer wins,
+ * which cuts off the tail caused by a single slow call. Timeouts, errors and a full executor count as failures
+ * of a circuit breaker, which stops making lookups for a while once most of the recent ones have failed.
+ * <br><br>
+ * When a lookup is not answered, the last modifier seen for the personal code is used. A code that has not been
+ * seen gets the conservative modifier 0, for which no loan is offered.
+ * <br><br>
+ * When the guard is disabled, lookups are made directly on the calling thread.
+ */
+@Component
+public class CreditModifierGuard implements DisposableBean {
+
+    static final int CONSERVATIVE_CREDIT_MODIFIER = 0;
+
+    private static final Logger log = LoggerFactory.getLogger(CreditModifierGuard.class);
+
+    private final boolean enabled;
+    private final long hedgeDelayNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final CreditModifierCache lastKnown;
+    private final ThreadPoolExecutor executor;
+    private final Counter succeeded;
+    private final Counter hedged;
+    private final Counter timedOut;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Counter shortCircuited;
+    private final Counter outOfBudget;
+    private final Counter lastKnownFallbacks;
+    private final Counter conservativeFallbacks;
+
+    @Autowired
+    public CreditModifierGuard(@Value("${resilience.enabled:false}") boolean enabled,
+                               @Value("${resilience.hedge-delay-ms:50}") long hedgeDelayMillis,
+                               @Value("${resilience.threads:32}") int threads,
+                               @Value("${resilience.circuit-breaker.window-size:20}") int windowSize,
+                               @Value("${resilience.circuit-breaker.failure-rate:0.5}") double failureRate,
+                               @Value("${resilience.circuit-breaker.open-ms:5000}") long openMillis,
+                               @Value("${resilience.fallback-cache-size:1048576}") int fallbackCacheSize,
+                               MeterRegistry registry) {
+        this.enabled = enabled;
+        this.hedgeDelayNanos = hedgeDelayMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(hedgeDelayMillis) : Long.MAX_VALUE;
+        this.circuitBreaker = new CircuitBreaker(windowSize, failureRate, openMillis);
+        this.lastKnown = new CreditModifierCache(enabled ? fallbackCacheSize : 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        // No queue: a lookup either gets a thread right away or is rejected, so threads stuck on a slow source
+        // can not pile up waiting work.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "credit-modifier-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.succeeded = outcome("success", registry);
+        this.hedged = outcome("hedged", registry);
+        this.timedOut = outcome("timeout", registry);
+        this.failed = outcome("error", registry);
+        this.rejected = outcome("rejected", registry);
+        this.shortCircuited = outcome("short-circuited", registry);
+        this.outOfBudget = outcome("out-of-budget", registry);
+        this.lastKnownFallbacks = fallback("last-known", registry);
+        this.conservativeFallbacks = fallback("conservative", registry);
+        Gauge.builder("loan.credit-modifier.circuit", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("State of the credit modifier circuit breaker: 0 closed, 1 open, 2 half-open")
+                .register(registry);
+    }
+
+    /**
+     * Looks up the credit modifier within the time left for it, falling back to the last known modifier or the
+     * conservative one.
+     *
+     * @param calculator Calculator making the lookup
+     * @param personalCode Personal ID code of the customer
+     * @param timeoutNanos Time the lookup may take
+     * @return The credit modifier
+     */
+    public int getCreditModifier(CreditModifierCalculator calculator, String personalCode, long timeoutNanos) {
+        if (!enabled) {
+            return calculator.getCreditModifier(personalCode);
+        }
+        long packedCode = PersonalCodes.pack(personalCode);
+        if (timeoutNanos <= 0) {
+            outOfBudget.increment();
+            return fallback(packedCode);
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            shortCircuited.increment();
+            return fallback(packedCode);
+        }
+
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            CompletableFuture<Integer> primary = lookup(calculator, personalCode);
+            CompletableFuture<Integer> first = primary;
+            boolean hedging = false;
+            if (hedgeDelayNanos < timeoutNanos && !await(primary, hedgeDelayNanos)) {
+                try {
+                    first = firstSuccessOf(primary, lookup(calculator, personalCode));
+                    hedging = true;
+                } catch (RejectedExecutionException e) {
+                    // No thread to spare for the hedge, keep waiting for the first lookup.
+                }
+            }
+            int creditModifier = first.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            circuitBreaker.onSuccess();
+            (hedging ? hedged : succeeded).increment();
+            lastKnown.put(packedCode, creditModifier);
+            return creditModifier;
+        } catch (TimeoutException e) {
+            timedOut.increment();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+        } catch (ExecutionException e) {
+            failed.increment();
+            log.debug("Credit modifier lookup failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timedOut.increment();
+        }
+        circuitBreaker.onFailure();
+        return fallback(packedCode);
+    }
+
+    /**
+     * Forgets the last known credit modifiers once the scorecard has changed, so that no fallback answers with a
+     * modifier of the previous model.
+     */
+    @EventListener
+    public void onScorecardChanged(ScorecardChangedEvent event) {
+        lastKnown.clear();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<Integer> lookup(CreditModifierCalculator calculator, String personalCode) {
+        return CompletableFuture.supplyAsync(() -> calculator.getCreditModifier(personalCode), executor);
+    }
+
+    /**
+     * @return Whether the lookup completed, successfully or not, within the given time
+     */
+    private static boolean await(CompletableFuture<Integer> lookup, long nanos) throws InterruptedException {
+        try {
+            lookup.get(nanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        }
+        return true;
+    }
+
+    /**
+     * @return A future completed by the first lookup that succeeds, or by the failure of the last one to fail
+     */
+    private static CompletableFuture<Integer> firstSuccessOf(CompletableFuture<Integer> primary,
+                                                             CompletableFuture<Integer> hedge) {
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+        primary.whenComplete((creditModifier, error) -> complete(first, creditModifier, error, hedge));
+        hedge.whenComplete((creditModifier, error) -> complete(first, creditModifier, error, primary));
+        return first;
+    }
+
+    private static void complete(CompletableFuture<Integer> first, Integer creditModifier, Throwable error,
+                                 CompletableFuture<Integer> other) {
+        if (error == null) {
+            first.complete(creditModifier);
+        } else if (other.isCompletedExceptionally()) {
+            first.completeExceptionally(error);
+        }
+    }
+
+    private int fallback(long packedCode) {
+        int creditModifier = packedCode > 0 ? lastKnown.get(packedCode) : -1;
+        if (creditModifier >= 0) {
+            lastKnownFallbacks.increment();
+            return creditModifier;
+        }
+        conservativeFallbacks.increment();
+        return CONSERVATIVE_CREDIT_MODIFIER;
+    }
+
+    private static Counter outcome(String outcome, MeterRegistry registry) {
+        return Counter.builder("loan.credit-modifier.lookups")
+                .description("Guarded credit modifier lookups, by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static Counter fallback(String source, MeterRegistry registry) {
+        return Counter.builder("loan.credit-modifier.fallbacks")
+                .description("Credit modifiers answered without a lookup, by source")
+                .tag("source", source)
+                .register(registry);
+    }
+}
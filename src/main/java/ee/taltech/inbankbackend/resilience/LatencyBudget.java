@@ -0,0 +1,72 @@
+package ee.taltech.inbankbackend.resilience;
+
+import ee.taltech.inbankbackend.profiling.DecisionStageEvent;
+import jdk.jfr.EventType;
+
+/**
+ * The latency budget of a single decision. Stages are completed in order, each one timed from the end of the
+ * previous one, and recorded as a flight recorder event when a recording asks for it. Not thread-safe: a budget
+ * belongs to the request that started it.
+ */
+public final class LatencyBudget {
+
+    private static final EventType STAGE_EVENTS = EventType.getEventType(DecisionStageEvent.class);
+
+    private final LatencyBudgets budgets;
+    private final String countryCode;
+    private final long start;
+    private long stageStart;
+    private DecisionStageEvent event;
+
+    LatencyBudget(LatencyBudgets budgets, String countryCode, long start) {
+        this.budgets = budgets;
+        this.countryCode = countryCode;
+        this.start = start;
+        this.stageStart = start;
+        beginEvent();
+    }
+
+    /**
+     * Records the time spent in a stage that has just completed, with the decision going on to the next one.
+     */
+    public void complete(Stage stage) {
+        end(stage, DecisionStageEvent.OK);
+    }
+
+    /**
+     * Records the time spent in a stage that has just ended the decision.
+     */
+    public void reject(Stage stage) {
+        end(stage, DecisionStageEvent.REJECTED);
+    }
+
+    /**
+     * @return Time the stage may still take, limited by both its own budget and what is left of the total
+     * budget of the decision. Zero or less if the decision is already out of time.
+     */
+    public long remainingNanos(Stage stage) {
+        long now = System.nanoTime();
+        return Math.min(budgets.stageNanos(stage) - (now - stageStart), start + budgets.totalNanos() - now);
+    }
+
+    private void end(Stage stage, String outcome) {
+        long now = System.nanoTime();
+        budgets.record(stage, now - stageStart);
+        stageStart = now;
+        if (event != null) {
+            event.end();
+            event.commit(stage.tag(), outcome, countryCode);
+        }
+        beginEvent();
+    }
+
+    private void beginEvent() {
+        // Checked first, so that nothing is allocated per stage unless a recording is running.
+        if (STAGE_EVENTS.isEnabled()) {
+            event = new DecisionStageEvent();
+            event.begin();
+        } else {
+            event = null;
+        }
+    }
+}
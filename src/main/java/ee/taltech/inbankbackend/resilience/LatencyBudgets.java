@@ -0,0 +1,78 @@
+package ee.taltech.inbankbackend.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency budgets of the stages of a loan decision and of the decision as a whole. Local stages can not be cut
+ * short, so they are only timed and counted when they overrun their budget. The credit modifier lookup is the
+ * one stage that may wait on other systems: it gets whichever is smaller of its own budget and what is left of
+ * the total budget, and falls back to a conservative answer when that runs out.
+ */
+@Component
+public class LatencyBudgets {
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final long totalNanos;
+    private final long[] stageNanos = new long[STAGES.length];
+    private final Timer[] timers = new Timer[STAGES.length];
+    private final Counter[] overruns = new Counter[STAGES.length];
+
+    @Autowired
+    public LatencyBudgets(@Value("${resilience.budget.total-ms:250}") long totalMillis,
+                          @Value("${resilience.budget.blacklist-ms:10}") long blacklistMillis,
+                          @Value("${resilience.budget.validation-ms:10}") long validationMillis,
+                          @Value("${resilience.budget.history-ms:10}") long historyMillis,
+                          @Value("${resilience.budget.credit-modifier-ms:150}") long creditModifierMillis,
+                          @Value("${resilience.budget.loan-calculation-ms:10}") long loanCalculationMillis,
+                          @Value("${resilience.budget.pricing-ms:10}") long pricingMillis,
+                          MeterRegistry registry) {
+        this.totalNanos = TimeUnit.MILLISECONDS.toNanos(totalMillis);
+        long[] millis = {blacklistMillis, validationMillis, historyMillis, creditModifierMillis, loanCalculationMillis,
+                pricingMillis};
+        for (Stage stage : STAGES) {
+            int i = stage.ordinal();
+            stageNanos[i] = TimeUnit.MILLISECONDS.toNanos(millis[i]);
+            timers[i] = Timer.builder("loan.decision.stage")
+                    .description("Time spent in a stage of the loan decision")
+                    .tag("stage", stage.tag())
+                    .register(registry);
+            overruns[i] = Counter.builder("loan.decision.stage.overruns")
+                    .description("Stages of the loan decision that took longer than their latency budget")
+                    .tag("stage", stage.tag())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Starts the budget of a decision.
+     *
+     * @param countryCode Country of the customer, recorded with the stage events
+     */
+    public LatencyBudget start(String countryCode) {
+        return new LatencyBudget(this, countryCode, System.nanoTime());
+    }
+
+    long totalNanos() {
+        return totalNanos;
+    }
+
+    long stageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    void record(Stage stage, long nanos) {
+        int i = stage.ordinal();
+        timers[i].record(nanos, TimeUnit.NANOSECONDS);
+        if (nanos > stageNanos[i]) {
+            overruns[i].increment();
+        }
+    }
+}
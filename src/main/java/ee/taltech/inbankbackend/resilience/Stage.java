@@ -0,0 +1,26 @@
+package ee.taltech.inbankbackend.resilience;
+
+/**
+ * Stages of a loan decision, in the order the decision engine runs them.
+ */
+public enum Stage {
+    BLACKLIST("blacklist"),
+    VALIDATION("validation"),
+    HISTORY("history"),
+    CREDIT_MODIFIER("credit-modifier"),
+    LOAN_CALCULATION("loan-calculation"),
+    PRICING("pricing");
+
+    private final String tag;
+
+    Stage(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * @return Name of the stage in metric tags and properties
+     */
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,45 @@
+package ee.taltech.inbankbackend.rules;
+
+import ee.taltech.inbankbackend.config.DecisionEngineConstants;
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import ee.taltech.inbankbackend.exceptions.InvalidAgeException;
+import ee.taltech.inbankbackend.product.LoanProduct;
+import ee.taltech.inbankbackend.validators.AgeValidator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks the customer's age against the life expectancy of their country, leaving room for the longest loan
+ * period of the loan product, or five years for applications without a product.
+ * Reads the birth date from the personal code, so it must run after {@link PersonalCodeRule}.
+ */
+@Component
+public class AgeRule implements Rule {
+
+    @Override
+    public String getName() {
+        return "age";
+    }
+
+    @Override
+    public int getCost() {
+        return 20;
+    }
+
+    @Override
+    public Rejection getRejection() {
+        return Rejection.INVALID_AGE;
+    }
+
+    @Override
+    public String check(LoanApplication application) {
+        LoanProduct product = application.getProduct();
+        int maxLoanPeriodInYears = product == null
+                ? DecisionEngineConstants.MAX_LOAN_PERIOD_IN_YEARS : product.getMaximumLoanPeriodInYears();
+        try {
+            return AgeValidator.isAgeValid(application.getPersonalCode(), application.getCountryCode(),
+                    maxLoanPeriodInYears) ? null : "Age is not valid to apply for a loan!";
+        } catch (InvalidAgeException e) {
+            return e.getMessage();
+        }
+    }
+}
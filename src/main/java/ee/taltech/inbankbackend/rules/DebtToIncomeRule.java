@@ -0,0 +1,67 @@
+package ee.taltech.inbankbackend.rules;
+
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+
+/**
+ * Rejects customers whose existing monthly debt plus the principal part of the new loan
+ * takes up more than the configured share of their monthly income.
+ * Applications without an income are left to {@link MinimumIncomeRule} and a negative income or debt to
+ * {@link IncomeRule}, which reports it as invalid input; without that rule, such applications are rejected here.
+ */
+@Component
+public class DebtToIncomeRule implements Rule {
+
+    private final long maxPercent;
+
+    @Autowired
+    public DebtToIncomeRule(@Value("${rules.debt-to-income.max-percent:50}") long maxPercent) {
+        this.maxPercent = maxPercent;
+    }
+
+    @Override
+    public String getName() {
+        return "debt-to-income";
+    }
+
+    @Override
+    public int getCost() {
+        return 2;
+    }
+
+    @Override
+    public Rejection getRejection() {
+        return Rejection.NO_VALID_LOAN;
+    }
+
+    @Override
+    public String check(LoanApplication application) {
+        Long monthlyIncome = application.getMonthlyIncome();
+        if (monthlyIncome == null || application.getLoanAmount() == null || application.getLoanPeriod() <= 0) {
+            return null;
+        }
+        long monthlyDebt = application.getMonthlyDebt() == null ? 0 : application.getMonthlyDebt();
+        if (monthlyIncome < 0 || monthlyDebt < 0) {
+            return "No valid loan found!";
+        }
+        long loanPeriod = application.getLoanPeriod();
+        long loanAmount = application.getLoanAmount();
+        // (debt + amount / period) / income <= percent / 100, multiplied out to stay in integers
+        boolean affordable;
+        try {
+            long debt = Math.multiplyExact(Math.addExact(Math.multiplyExact(monthlyDebt, loanPeriod), loanAmount), 100);
+            affordable = debt <= Math.multiplyExact(Math.multiplyExact(maxPercent, monthlyIncome), loanPeriod);
+        } catch (ArithmeticException e) {
+            BigInteger period = BigInteger.valueOf(loanPeriod);
+            BigInteger debt = BigInteger.valueOf(monthlyDebt).multiply(period).add(BigInteger.valueOf(loanAmount))
+                    .multiply(BigInteger.valueOf(100));
+            affordable = debt.compareTo(BigInteger.valueOf(maxPercent).multiply(BigInteger.valueOf(monthlyIncome))
+                    .multiply(period)) <= 0;
+        }
+        return affordable ? null : "No valid loan found!";
+    }
+}
@@ -0,0 +1,34 @@
+package ee.taltech.inbankbackend.rules;
+
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks that the monthly income and debt, when given, are not negative.
+ */
+@Component
+public class IncomeRule implements Rule {
+
+    @Override
+    public String getName() {
+        return "income";
+    }
+
+    @Override
+    public int getCost() {
+        return 1;
+    }
+
+    @Override
+    public Rejection getRejection() {
+        return Rejection.INVALID_INCOME;
+    }
+
+    @Override
+    public String check(LoanApplication application) {
+        Long monthlyIncome = application.getMonthlyIncome();
+        Long monthlyDebt = application.getMonthlyDebt();
+        boolean valid = (monthlyIncome == null || monthlyIncome >= 0) && (monthlyDebt == null || monthlyDebt >= 0);
+        return valid ? null : "Invalid monthly income or debt!";
+    }
+}
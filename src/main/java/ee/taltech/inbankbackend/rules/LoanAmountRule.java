@@ -0,0 +1,41 @@
+package ee.taltech.inbankbackend.rules;
+
+import ee.taltech.inbankbackend.config.DecisionEngineConstants;
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import ee.taltech.inbankbackend.product.LoanProduct;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks the loan amount against the limits of the loan product, or the default limits for applications
+ * without a product.
+ */
+@Component
+public class LoanAmountRule implements Rule {
+
+    private static final long MINIMUM = DecisionEngineConstants.MINIMUM_LOAN_AMOUNT;
+    private static final long MAXIMUM = DecisionEngineConstants.MAXIMUM_LOAN_AMOUNT;
+
+    @Override
+    public String getName() {
+        return "loan-amount";
+    }
+
+    @Override
+    public int getCost() {
+        return 1;
+    }
+
+    @Override
+    public Rejection getRejection() {
+        return Rejection.INVALID_LOAN_AMOUNT;
+    }
+
+    @Override
+    public String check(LoanApplication application) {
+        Long loanAmount = application.getLoanAmount();
+        LoanProduct product = application.getProduct();
+        long minimum = product == null ? MINIMUM : product.getMinimumLoanAmount();
+        long maximum = product == null ? MAXIMUM : product.getMaximumLoanAmount();
+        return loanAmount != null && minimum <= loanAmount && loanAmount <= maximum ? null : "Invalid loan amount!";
+    }
+}
@@ -0,0 +1,41 @@
+package ee.taltech.inbankbackend.rules;
+
+import ee.taltech.inbankbackend.config.DecisionEngineConstants;
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import ee.taltech.inbankbackend.product.LoanProduct;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks the loan period against the limits of the loan product, or the default limits for applications
+ * without a product.
+ */
+@Component
+public class LoanPeriodRule implements Rule {
+
+    private static final int MINIMUM = DecisionEngineConstants.MINIMUM_LOAN_PERIOD;
+    private static final int MAXIMUM = DecisionEngineConstants.MAXIMUM_LOAN_PERIOD;
+
+    @Override
+    public String getName() {
+        return "loan-period";
+    }
+
+    @Override
+    public int getCost() {
+        return 1;
+    }
+
+    @Override
+    public Rejection getRejection() {
+        return Rejection.INVALID_LOAN_PERIOD;
+    }
+
+    @Override
+    public String check(LoanApplication application) {
+        int loanPeriod = application.getLoanPeriod();
+        LoanProduct product = application.getProduct();
+        int minimum = product == null ? MINIMUM : product.getMinimumLoanPeriod();
+        int maximum = product == null ? MAXIMUM : product.getMaximumLoanPeriod();
+        return minimum <= loanPeriod && loanPeriod <= maximum ? null : "Invalid loan period!";
+    }
+}
@@ -0,0 +1,43 @@
+package ee.taltech.inbankbackend.rules;
+
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rejects customers whose monthly net income is below the configured minimum.
+ * A missing income only passes while the minimum is 0.
+ */
+@Component
+public class MinimumIncomeRule implements Rule {
+
+    private final long minimumMonthlyIncome;
+
+    @Autowired
+    public MinimumIncomeRule(@Value("${rules.minimum-income.monthly-income:0}") long minimumMonthlyIncome) {
+        this.minimumMonthlyIncome = minimumMonthlyIncome;
+    }
+
+    @Override
+    public String getName() {
+        return "minimum-income";
+    }
+
+    @Override
+    public int getCost() {
+        return 1;
+    }
+
+    @Override
+    public Rejection getRejection() {
+        return Rejection.NO_VALID_LOAN;
+    }
+
+    @Override
+    public String check(LoanApplication application) {
+        Long monthlyIncome = application.getMonthlyIncome();
+        long income = monthlyIncome == null ? 0 : monthlyIncome;
+        return income >= minimumMonthlyIncome ? null : "No valid loan found!";
+    }
+}
@@ -0,0 +1,31 @@
+package ee.taltech.inbankbackend.rules;
+
+import com.github.vladislavgoltjajev.personalcode.locale.estonia.EstonianPersonalCodeValidator;
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PersonalCodeRule implements Rule {
+
+    private static final EstonianPersonalCodeValidator personalCodeValidator = new EstonianPersonalCodeValidator();
+
+    @Override
+    public String getName() {
+        return "personal-code";
+    }
+
+    @Override
+    public int getCost() {
+        return 10;
+    }
+
+    @Override
+    public Rejection getRejection() {
+        return Rejection.INVALID_PERSONAL_CODE;
+    }
+
+    @Override
+    public String check(LoanApplication application) {
+        return personalCodeValidator.isValid(application.getPersonalCode()) ? null : "Invalid personal ID code!";
+    }
+}
@@ -0,0 +1,13 @@
+package ee.taltech.inbankbackend.rules;
+
+/**
+ * The kind of error a rule reports when it rejects an application.
+ */
+public enum Rejection {
+    INVALID_PERSONAL_CODE,
+    INVALID_AGE,
+    INVALID_LOAN_AMOUNT,
+    INVALID_LOAN_PERIOD,
+    INVALID_INCOME,
+    NO_VALID_LOAN
+}
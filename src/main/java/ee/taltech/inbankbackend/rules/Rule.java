@@ -0,0 +1,33 @@
+package ee.taltech.inbankbackend.rules;
+
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+
+/**
+ * A single credit policy check. Rules are stateless beans; the {@link RulePipeline} decides
+ * which of them run and in which order.
+ */
+public interface Rule {
+
+    /**
+     * @return Name of the rule in the rules.pipeline property
+     */
+    String getName();
+
+    /**
+     * @return Relative cost of the check, cheaper rules are evaluated first
+     */
+    int getCost();
+
+    /**
+     * @return Kind of error reported when the rule rejects an application
+     */
+    Rejection getRejection();
+
+    /**
+     * Checks the application against the rule.
+     *
+     * @param application Loan application
+     * @return Error message if the application is rejected, null otherwise
+     */
+    String check(LoanApplication application);
+}
@@ -0,0 +1,165 @@
+package ee.taltech.inbankbackend.rules;
+
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import ee.taltech.inbankbackend.exceptions.InvalidAgeException;
+import ee.taltech.inbankbackend.exceptions.InvalidIncomeException;
+import ee.taltech.inbankbackend.exceptions.InvalidLoanAmountException;
+import ee.taltech.inbankbackend.exceptions.InvalidLoanPeriodException;
+import ee.taltech.inbankbackend.exceptions.InvalidPersonalCodeException;
+import ee.taltech.inbankbackend.exceptions.NoValidLoanException;
+import ee.taltech.inbankbackend.profiling.DecisionStageEvent;
+import ee.taltech.inbankbackend.validators.InputValidator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.EventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates loan applications with the rules listed in the rules.pipeline property.
+ * The rules are resolved by name once at startup and compiled into a flat plan: the input validation rules first and
+ * the credit policy rules after them, each ordered by cost, so malformed input is always reported as such and the
+ * cheapest rejections run first. Evaluation walks the plan and stops at the first rejection; every rule has its
+ * rejection counter and latency timer resolved up front, so nothing is looked up per request. Every rule is also
+ * recorded as a flight recorder stage event named validation/&lt;rule&gt;.
+ */
+@Service
+@Primary
+public class RulePipeline implements InputValidator {
+
+    private static final EventType STAGE_EVENTS = EventType.getEventType(DecisionStageEvent.class);
+
+    private final Rule[] plan;
+    private final Counter[] rejections;
+    private final Timer[] latencies;
+    private final String[] stages;
+
+    @Autowired
+    public RulePipeline(List<Rule> rules,
+                        @Value("${rules.pipeline:loan-amount,loan-period,personal-code,age,income}") List<String> pipeline,
+                        MeterRegistry registry) {
+        this.plan = compile(rules, pipeline);
+        this.rejections = new Counter[plan.length];
+        this.latencies = new Timer[plan.length];
+        this.stages = new String[plan.length];
+        for (int i = 0; i < plan.length; i++) {
+            rejections[i] = Counter.builder("loan.rules.rejections")
+                    .description("Applications rejected by a credit policy rule")
+                    .tag("rule", plan[i].getName())
+                    .register(registry);
+            latencies[i] = Timer.builder("loan.rules.latency")
+                    .description("Time spent evaluating a credit policy rule")
+                    .tag("rule", plan[i].getName())
+                    .register(registry);
+            stages[i] = "validation/" + plan[i].getName();
+        }
+    }
+
+    /**
+     * Resolves the configured rule names and orders them by kind and cost. Input validation rules, which reject
+     * with anything else than NO_VALID_LOAN, run before the credit policy rules, so an application that is
+     * malformed and also unaffordable is rejected as malformed. Rules of equal kind and cost keep their configured
+     * order, so a rule that depends on another one can be listed after it.
+     *
+     * @throws IllegalStateException If a configured rule does not exist
+     */
+    static Rule[] compile(List<Rule> rules, List<String> pipeline) {
+        Map<String, Rule> byName = new HashMap<>();
+        for (Rule rule : rules) {
+            byName.put(rule.getName(), rule);
+        }
+        List<Rule> plan = new ArrayList<>();
+        for (String name : pipeline) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            Rule rule = byName.get(trimmed);
+            if (rule == null) {
+                throw new IllegalStateException("Unknown rule in rules.pipeline: " + trimmed);
+            }
+            if (!plan.contains(rule)) {
+                plan.add(rule);
+            }
+        }
+        plan.sort(Comparator.comparing((Rule rule) -> rule.getRejection() == Rejection.NO_VALID_LOAN)
+                .thenComparingInt(Rule::getCost));
+        return plan.toArray(new Rule[0]);
+    }
+
+    @Override
+    public void verifyInputs(String personalCode, Long loanAmount, int loanPeriod, String countryCode)
+            throws InvalidPersonalCodeException, InvalidLoanAmountException, InvalidLoanPeriodException,
+            InvalidAgeException, InvalidIncomeException, NoValidLoanException {
+        verifyApplication(new LoanApplication(personalCode, loanAmount, loanPeriod, countryCode, null, null));
+    }
+
+    /**
+     * Runs the plan against the application and stops at the first rule that rejects it.
+     *
+     * @param application Loan application
+     * @throws InvalidPersonalCodeException If the provided personal ID code is invalid
+     * @throws InvalidLoanAmountException If the requested loan amount is invalid
+     * @throws InvalidLoanPeriodException If the requested loan period is invalid
+     * @throws InvalidAgeException If the customer's age is not valid for a loan
+     * @throws InvalidIncomeException If the monthly income or debt is invalid
+     * @throws NoValidLoanException If a credit policy rule rejects the application
+     */
+    @Override
+    public void verifyApplication(LoanApplication application)
+            throws InvalidPersonalCodeException, InvalidLoanAmountException, InvalidLoanPeriodException,
+            InvalidAgeException, InvalidIncomeException, NoValidLoanException {
+        for (int i = 0; i < plan.length; i++) {
+            String message = evaluate(i, application);
+            if (message != null) {
+                reject(plan[i].getRejection(), message);
+            }
+        }
+    }
+
+    private String evaluate(int index, LoanApplication application) {
+        // Checked first, so that nothing is allocated per rule unless a recording is running.
+        DecisionStageEvent event = STAGE_EVENTS.isEnabled() ? new DecisionStageEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long start = System.nanoTime();
+        String message = plan[index].check(application);
+        latencies[index].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (message != null) {
+            rejections[index].increment();
+        }
+        if (event != null) {
+            event.commit(stages[index], message == null ? DecisionStageEvent.OK : DecisionStageEvent.REJECTED,
+                    application.getCountryCode());
+        }
+        return message;
+    }
+
+    private static void reject(Rejection rejection, String message)
+            throws InvalidPersonalCodeException, InvalidLoanAmountException, InvalidLoanPeriodException,
+            InvalidAgeException, InvalidIncomeException, NoValidLoanException {
+        switch (rejection) {
+            case INVALID_PERSONAL_CODE -> throw new InvalidPersonalCodeException(message);
+            case INVALID_AGE -> throw new InvalidAgeException(message);
+            case INVALID_LOAN_AMOUNT -> throw new InvalidLoanAmountException(message);
+            case INVALID_LOAN_PERIOD -> throw new InvalidLoanPeriodException(message);
+            case INVALID_INCOME -> throw new InvalidIncomeException(message);
+            default -> throw new NoValidLoanException(message);
+        }
+    }
+
+    Rule[] getPlan() {
+        return plan.clone();
+    }
+}
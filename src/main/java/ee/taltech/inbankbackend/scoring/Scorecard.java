@@ -0,0 +1,140 @@
+package ee.taltech.inbankbackend.scoring;
+
+import java.util.Arrays;
+
+/**
+ * A compiled points-based scorecard. Every feature of the model is split into bins by ascending boundaries and
+ * every bin is worth a number of points. The points of all features add up to a score, which is binned once more
+ * to find the credit modifier.
+ * <br><br>
+ * A value falls into the bin numbered by how many boundaries it reaches. The bins are counted with sign-bit
+ * arithmetic instead of comparisons, so scoring has no data-dependent branches and the batch loops over
+ * applicants can be vectorised by the JIT.
+ */
+public final class Scorecard {
+
+    /**
+     * Boundaries and feature values must stay within this range, so that boundary - value - 1 cannot overflow.
+     */
+    static final int MAX_MAGNITUDE = 1 << 30;
+
+    private final String version;
+    private final int[] features;
+    private final int[][] boundaries;
+    private final int[][] points;
+    private final int[] scoreBoundaries;
+    private final int[] modifiers;
+
+    Scorecard(String version, ScorecardFeature[] features, int[][] boundaries, int[][] points,
+              int[] scoreBoundaries, int[] modifiers) {
+        if (features.length != boundaries.length || features.length != points.length) {
+            throw new IllegalArgumentException("Every feature needs boundaries and points");
+        }
+        for (int i = 0; i < features.length; i++) {
+            checkBins(features[i].getName(), boundaries[i], points[i]);
+        }
+        checkBins("modifier", scoreBoundaries, modifiers);
+        long maxScore = 0;
+        for (int[] featurePoints : points) {
+            maxScore += Arrays.stream(featurePoints).mapToLong(Math::abs).max().orElse(0);
+        }
+        if (maxScore >= MAX_MAGNITUDE) {
+            throw new IllegalArgumentException("Scores must stay below " + MAX_MAGNITUDE);
+        }
+        this.version = version;
+        this.features = Arrays.stream(features).mapToInt(ScorecardFeature::ordinal).toArray();
+        this.boundaries = boundaries;
+        this.points = points;
+        this.scoreBoundaries = scoreBoundaries;
+        this.modifiers = modifiers;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Whether the score depends on the feature, that is, the feature is split into more than one bin
+     */
+    boolean uses(ScorecardFeature feature) {
+        for (int i = 0; i < features.length; i++) {
+            if (features[i] == feature.ordinal() && boundaries[i].length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param values Feature values indexed by {@link ScorecardFeature} ordinal
+     * @return Total points of the applicant
+     */
+    public int score(int[] values) {
+        int score = 0;
+        for (int i = 0; i < features.length; i++) {
+            score += points[i][bin(boundaries[i], values[features[i]])];
+        }
+        return score;
+    }
+
+    /**
+     * @param score Total points of the applicant
+     * @return Credit modifier of the score
+     */
+    public int modifier(int score) {
+        return modifiers[bin(scoreBoundaries, score)];
+    }
+
+    /**
+     * Scores a batch of applicants feature by feature. Feature values are given column-wise, so every inner loop
+     * runs over a contiguous array.
+     *
+     * @param columns Feature values indexed by {@link ScorecardFeature} ordinal, then by applicant
+     * @param count Number of applicants
+     * @param modifiers Receives the credit modifier of every applicant
+     */
+    public void modifiers(int[][] columns, int count, int[] modifiers) {
+        int[] scores = new int[count];
+        int[] bins = new int[count];
+        for (int i = 0; i < features.length; i++) {
+            int[] column = columns[features[i]];
+            int[] featurePoints = points[i];
+            bins(boundaries[i], column, count, bins);
+            for (int j = 0; j < count; j++) {
+                scores[j] += featurePoints[bins[j]];
+            }
+        }
+        bins(scoreBoundaries, scores, count, bins);
+        for (int j = 0; j < count; j++) {
+            modifiers[j] = this.modifiers[bins[j]];
+        }
+    }
+
+    private static int bin(int[] boundaries, int value) {
+        int bin = 0;
+        for (int boundary : boundaries) {
+            bin += (boundary - value - 1) >>> 31;
+        }
+        return bin;
+    }
+
+    private static void bins(int[] boundaries, int[] values, int count, int[] bins) {
+        Arrays.fill(bins, 0, count, 0);
+        for (int boundary : boundaries) {
+            for (int j = 0; j < count; j++) {
+                bins[j] += (boundary - values[j] - 1) >>> 31;
+            }
+        }
+    }
+
+    private static void checkBins(String name, int[] boundaries, int[] values) {
+        if (values.length != boundaries.length + 1) {
+            throw new IllegalArgumentException(name + " needs one more value than boundaries");
+        }
+        for (int i = 0; i < boundaries.length; i++) {
+            if (Math.abs(boundaries[i]) >= MAX_MAGNITUDE || i > 0 && boundaries[i] <= boundaries[i - 1]) {
+                throw new IllegalArgumentException(name + " boundaries must be ascending and below " + MAX_MAGNITUDE);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ee.taltech.inbankbackend.scoring;
+
+/**
+ * Published when credit modifiers calculated before may no longer hold: when the champion scorecard is swapped,
+ * and when the day changes under a champion that bins the age of the customer. Caches of credit modifiers by
+ * personal code must be cleared on it.
+ *
+ * @param version Version of the champion scorecard
+ */
+public record ScorecardChangedEvent(String version) {
+}
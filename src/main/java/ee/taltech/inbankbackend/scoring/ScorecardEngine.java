@@ -0,0 +1,237 @@
+package ee.taltech.inbankbackend.scoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Scores applicants with the champion scorecard and, if one is configured, shadow scores them with a candidate.
+ * The candidate's modifier is only compared with the champion's and counted; it never reaches the decision.
+ * Both models can be swapped at runtime: model files are reloaded when they change on disk, and a candidate can be
+ * promoted once it has proven itself. Every change of the champion, and every new day under a champion that bins
+ * the age, is published as a {@link ScorecardChangedEvent}, so that cached credit modifiers are dropped.
+ */
+@Service
+public class ScorecardEngine implements ApplicationEventPublisherAware {
+
+    private static final Logger log = LoggerFactory.getLogger(ScorecardEngine.class);
+
+    private final Path modelPath;
+    private final Path candidatePath;
+    private final Clock clock;
+    private final Counter agreements;
+    private final Counter divergences;
+    private volatile Scorecard champion;
+    private volatile Scorecard candidate;
+    private volatile Today today = new Today(0, 0, 0);
+    private volatile ApplicationEventPublisher eventPublisher;
+    private long modelModified;
+    private long candidateModified;
+
+    /**
+     * @throws IOException If a configured model file cannot be read
+     * @throws IllegalArgumentException If a configured model file is invalid
+     */
+    @Autowired
+    public ScorecardEngine(@Value("${scoring.model-path:}") String modelPath,
+                           @Value("${scoring.candidate-model-path:}") String candidatePath,
+                           MeterRegistry registry) throws IOException {
+        this(modelPath.isBlank() ? ScorecardLoader.bundled() : ScorecardLoader.load(Path.of(modelPath)),
+                candidatePath.isBlank() ? null : ScorecardLoader.load(Path.of(candidatePath)),
+                Clock.systemDefaultZone(), registry,
+                modelPath.isBlank() ? null : Path.of(modelPath), candidatePath.isBlank() ? null : Path.of(candidatePath));
+    }
+
+    public ScorecardEngine(Scorecard champion, Scorecard candidate, MeterRegistry registry) {
+        this(champion, candidate, Clock.systemDefaultZone(), registry, null, null);
+    }
+
+    ScorecardEngine(Scorecard champion, Scorecard candidate, Clock clock, MeterRegistry registry,
+                    Path modelPath, Path candidatePath) {
+        this.champion = champion;
+        this.candidate = candidate;
+        this.clock = clock;
+        this.modelPath = modelPath;
+        this.candidatePath = candidatePath;
+        this.modelModified = modelPath == null ? 0 : lastModified(modelPath);
+        this.candidateModified = candidatePath == null ? 0 : lastModified(candidatePath);
+        this.agreements = Counter.builder("loan.scorecard.shadow")
+                .description("Applicants the candidate scorecard gave the same credit modifier as the champion")
+                .tag("outcome", "agree")
+                .register(registry);
+        this.divergences = Counter.builder("loan.scorecard.shadow")
+                .description("Applicants the candidate scorecard gave a different credit modifier than the champion")
+                .tag("outcome", "diverge")
+                .register(registry);
+    }
+
+    /**
+     * @param personalCode Valid personal ID code
+     * @return Credit modifier of the champion model
+     */
+    public int getCreditModifier(String personalCode) {
+        int[] features = new int[ScorecardFeature.COUNT];
+        ScorecardFeature.extract(personalCode, today(), features);
+
+        Scorecard champion = this.champion;
+        int modifier = champion.modifier(champion.score(features));
+
+        Scorecard candidate = this.candidate;
+        if (candidate != null) {
+            int candidateModifier = candidate.modifier(candidate.score(features));
+            (candidateModifier == modifier ? agreements : divergences).increment();
+        }
+        return modifier;
+    }
+
+    /**
+     * Scores a batch of applicants with the champion model. The candidate is not consulted.
+     *
+     * @param personalCodes Valid personal ID codes
+     * @return Credit modifiers in the order of the codes
+     */
+    public int[] getCreditModifiers(String[] personalCodes) {
+        int count = personalCodes.length;
+        int today = today();
+        int[][] columns = new int[ScorecardFeature.COUNT][count];
+        int[] features = new int[ScorecardFeature.COUNT];
+        for (int i = 0; i < count; i++) {
+            ScorecardFeature.extract(personalCodes[i], today, features);
+            for (int feature = 0; feature < features.length; feature++) {
+                columns[feature][i] = features[feature];
+            }
+        }
+        int[] modifiers = new int[count];
+        champion.modifiers(columns, count, modifiers);
+        return modifiers;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void swap(Scorecard model) {
+        champion = model;
+        log.info("Scorecard {} is now the champion", model.getVersion());
+        publishChange(model);
+    }
+
+    public void setCandidate(Scorecard model) {
+        candidate = model;
+        log.info("Scorecard {} is now the candidate", model == null ? "none" : model.getVersion());
+    }
+
+    /**
+     * Makes the candidate the champion and stops shadow scoring.
+     *
+     * @return false if there is no candidate
+     */
+    public synchronized boolean promoteCandidate() {
+        Scorecard promoted = candidate;
+        if (promoted == null) {
+            return false;
+        }
+        candidate = null;
+        swap(promoted);
+        return true;
+    }
+
+    public String getVersion() {
+        return champion.getVersion();
+    }
+
+    public String getCandidateVersion() {
+        Scorecard candidate = this.candidate;
+        return candidate == null ? null : candidate.getVersion();
+    }
+
+    /**
+     * Reloads the model files that changed since they were last read. A file that fails to load is logged
+     * and the model in use is kept.
+     */
+    @Scheduled(fixedDelayString = "${scoring.reload-interval-ms:10000}")
+    public synchronized void reload() {
+        if (modelPath != null) {
+            long modified = lastModified(modelPath);
+            if (modified != modelModified) {
+                Scorecard model = load(modelPath);
+                if (model != null) {
+                    swap(model);
+                    modelModified = modified;
+                }
+            }
+        }
+        if (candidatePath != null) {
+            long modified = lastModified(candidatePath);
+            if (modified != candidateModified) {
+                Scorecard model = load(candidatePath);
+                if (model != null) {
+                    setCandidate(model);
+                    candidateModified = modified;
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolving the date takes longer than scoring, so it is only done again once the day is over.
+     */
+    private int today() {
+        long now = clock.millis();
+        Today today = this.today;
+        if (now < today.start() || now >= today.end()) {
+            boolean first = today.end() == 0;
+            LocalDate date = LocalDate.now(clock);
+            long start = date.atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+            long end = date.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+            today = new Today(ScorecardFeature.toInt(date), start, end);
+            this.today = today;
+            Scorecard champion = this.champion;
+            if (!first && champion.uses(ScorecardFeature.AGE)) {
+                publishChange(champion);
+            }
+        }
+        return today.date();
+    }
+
+    private void publishChange(Scorecard champion) {
+        ApplicationEventPublisher eventPublisher = this.eventPublisher;
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(new ScorecardChangedEvent(champion.getVersion()));
+        }
+    }
+
+    private static Scorecard load(Path path) {
+        try {
+            return ScorecardLoader.load(path);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not load scorecard {}", path, e);
+            return null;
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private record Today(int date, long start, long end) {
+    }
+}
@@ -0,0 +1,84 @@
+package ee.taltech.inbankbackend.scoring;
+
+import java.time.LocalDate;
+
+/**
+ * Applicant features a scorecard can bin. All of them are read from the personal ID code and the current date.
+ * The age changes with the date, so a modifier cached by personal code only stays valid for the day under a model
+ * that bins it; {@link ScorecardEngine} announces the change of day for such models. Codes must already be
+ * validated.
+ */
+public enum ScorecardFeature {
+    /**
+     * The last four digits of the personal code, which the credit bureau uses as its risk segment.
+     */
+    BUREAU_SEGMENT("bureau-segment"),
+    /**
+     * Age of the customer in full years.
+     */
+    AGE("age");
+
+    static final ScorecardFeature[] VALUES = values();
+    static final int COUNT = VALUES.length;
+
+    private final String name;
+
+    ScorecardFeature(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Resolves a feature by its name in a model file.
+     *
+     * @throws IllegalArgumentException If there is no such feature
+     */
+    static ScorecardFeature byName(String name) {
+        for (ScorecardFeature feature : VALUES) {
+            if (feature.name.equals(name)) {
+                return feature;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scorecard feature: " + name);
+    }
+
+    /**
+     * Reads every feature of the personal code.
+     *
+     * @param personalCode Valid personal ID code
+     * @param today Current date as yyyymmdd
+     * @param features Feature values indexed by ordinal
+     */
+    static void extract(String personalCode, int today, int[] features) {
+        features[BUREAU_SEGMENT.ordinal()] = digits(personalCode, personalCode.length() - 4, 4);
+        features[AGE.ordinal()] = (today - birthDate(personalCode)) / 10000;
+    }
+
+    /**
+     * @return The date as yyyymmdd, so that the difference of two dates divided by 10000 is the number of full years
+     */
+    static int toInt(LocalDate date) {
+        return date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    private static int birthDate(String personalCode) {
+        int century = switch (personalCode.charAt(0)) {
+            case '1', '2' -> 1800;
+            case '3', '4' -> 1900;
+            case '5', '6' -> 2000;
+            default -> 2100;
+        };
+        return (century + digits(personalCode, 1, 2)) * 10000 + digits(personalCode, 3, 4);
+    }
+
+    private static int digits(String personalCode, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            value = value * 10 + (personalCode.charAt(i) - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,92 @@
+package ee.taltech.inbankbackend.scoring;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Reads scorecard models from properties files:
+ * <pre>
+ * version=segments-v1
+ * features=bureau-segment,age
+ * feature.bureau-segment.boundaries=2500,5000,7500
+ * feature.bureau-segment.points=0,100,200,300
+ * feature.age.boundaries=
+ * feature.age.points=0
+ * modifier.boundaries=100,200,300
+ * modifier.values=0,100,300,1000
+ * </pre>
+ */
+public final class ScorecardLoader {
+
+    static final String BUNDLED_MODEL = "scorecard/default-model.properties";
+
+    private ScorecardLoader() {
+    }
+
+    /**
+     * @return The model bundled with the application, which reproduces the four credit segments
+     */
+    public static Scorecard bundled() {
+        try (InputStream in = ScorecardLoader.class.getClassLoader().getResourceAsStream(BUNDLED_MODEL)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing " + BUNDLED_MODEL);
+            }
+            return load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Scorecard load(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return load(in);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException If the model is incomplete or its bins are invalid
+     */
+    public static Scorecard load(InputStream in) throws IOException {
+        Properties model = new Properties();
+        model.load(in);
+
+        List<String> names = split(required(model, "features"));
+        ScorecardFeature[] features = new ScorecardFeature[names.size()];
+        int[][] boundaries = new int[names.size()][];
+        int[][] points = new int[names.size()][];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = ScorecardFeature.byName(names.get(i));
+            boundaries[i] = ints(model, "feature." + names.get(i) + ".boundaries");
+            points[i] = ints(model, "feature." + names.get(i) + ".points");
+        }
+
+        return new Scorecard(required(model, "version"), features, boundaries, points,
+                ints(model, "modifier.boundaries"), ints(model, "modifier.values"));
+    }
+
+    private static String required(Properties model, String key) {
+        String value = model.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Scorecard model is missing " + key);
+        }
+        return value.trim();
+    }
+
+    private static int[] ints(Properties model, String key) {
+        try {
+            return split(required(model, key)).stream().mapToInt(Integer::parseInt).toArray();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Scorecard model has a non-integer in " + key, e);
+        }
+    }
+
+    private static List<String> split(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
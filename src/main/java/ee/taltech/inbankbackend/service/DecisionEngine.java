@@ -1,8 +1,17 @@
 package ee.taltech.inbankbackend.service;
 
+import ee.taltech.inbankbackend.blacklist.BlacklistService;
 import ee.taltech.inbankbackend.dataobjects.Decision;
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import ee.taltech.inbankbackend.dataobjects.LoanPricing;
 import ee.taltech.inbankbackend.exceptions.*;
-import ee.taltech.inbankbackend.validators.DefaultInputValidator;
+import ee.taltech.inbankbackend.history.ApplicantHistory;
+import ee.taltech.inbankbackend.product.LoanProduct;
+import ee.taltech.inbankbackend.resilience.CreditModifierGuard;
+import ee.taltech.inbankbackend.resilience.LatencyBudget;
+import ee.taltech.inbankbackend.resilience.LatencyBudgets;
+import ee.taltech.inbankbackend.resilience.Stage;
+import ee.taltech.inbankbackend.shadow.ShadowEvaluator;
 import ee.taltech.inbankbackend.validators.InputValidator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -18,13 +27,27 @@ public class DecisionEngine {
     private final LoanCalculator loanCalculator;
     private final CreditModifierCalculator creditModifierCalculator;
     private final InputValidator inputValidator;
-
+    private final BlacklistService blacklistService;
+    private final ApplicantHistory applicantHistory;
+    private final PricingEngine pricingEngine;
+    private final ShadowEvaluator shadowEvaluator;
+    private final LatencyBudgets latencyBudgets;
+    private final CreditModifierGuard creditModifierGuard;
 
     @Autowired
-    public DecisionEngine(LoanCalculator loanCalculator, CreditModifierCalculator creditModifier, InputValidator inputValidator){
+    public DecisionEngine(LoanCalculator loanCalculator, CreditModifierCalculator creditModifier, InputValidator inputValidator,
+                          BlacklistService blacklistService, ApplicantHistory applicantHistory, PricingEngine pricingEngine,
+                          ShadowEvaluator shadowEvaluator, LatencyBudgets latencyBudgets,
+                          CreditModifierGuard creditModifierGuard){
         this.loanCalculator = loanCalculator;
         this.creditModifierCalculator = creditModifier;
         this.inputValidator = inputValidator;
+        this.blacklistService = blacklistService;
+        this.applicantHistory = applicantHistory;
+        this.pricingEngine = pricingEngine;
+        this.shadowEvaluator = shadowEvaluator;
+        this.latencyBudgets = latencyBudgets;
+        this.creditModifierGuard = creditModifierGuard;
     }
 
     /**
@@ -36,24 +59,90 @@ public class DecisionEngine {
      * @param personalCode ID code of the customer that made the request.
      * @param loanAmount Requested loan amount
      * @param loanPeriod Requested loan period
-     * @return A Decision object containing the approved loan amount and period, and an error message (if any)
+     * @return A Decision object containing the approved loan amount and period, its pricing, and an error message (if any)
      * @throws InvalidPersonalCodeException If the provided personal ID code is invalid
      * @throws InvalidLoanAmountException If the requested loan amount is invalid
      * @throws InvalidLoanPeriodException If the requested loan period is invalid
      * @throws NoValidLoanException If there is no valid loan found for the given ID code, loan amount and loan period
+     * @throws TooManyApplicationsException If the customer has already applied too many times within a day
      */
     public Decision calculateApprovedLoan(String personalCode, Long loanAmount, int loanPeriod, String countryCode)
             throws InvalidPersonalCodeException, InvalidLoanAmountException, InvalidLoanPeriodException,
-            NoValidLoanException, InvalidAgeException{
+            NoValidLoanException, InvalidAgeException, InvalidIncomeException, TooManyApplicationsException {
+        return calculateApprovedLoan(new LoanApplication(personalCode, loanAmount, loanPeriod, countryCode, null, null));
+    }
+
+    /**
+     * Calculates the maximum loan amount and period for a loan application, which may also carry
+     * the customer's monthly income and debt for the credit policy rules. Applications of a loan product are
+     * checked and calculated with the limits of the product.
+     *
+     * @param application Loan application of the customer
+     * @return A Decision object containing the approved loan amount and period, its pricing, and an error message (if any)
+     * @throws InvalidPersonalCodeException If the provided personal ID code is invalid
+     * @throws InvalidLoanAmountException If the requested loan amount is invalid
+     * @throws InvalidLoanPeriodException If the requested loan period is invalid
+     * @throws InvalidIncomeException If the monthly income or debt is invalid
+     * @throws NoValidLoanException If the customer is blacklisted, the application is rejected by a credit policy rule
+     * or no valid loan is found
+     * @throws TooManyApplicationsException If the customer has already applied too many times within a day
+     */
+    public Decision calculateApprovedLoan(LoanApplication application)
+            throws InvalidPersonalCodeException, InvalidLoanAmountException, InvalidLoanPeriodException,
+            NoValidLoanException, InvalidAgeException, InvalidIncomeException, TooManyApplicationsException {
+        String personalCode = application.getPersonalCode();
+        Long loanAmount = application.getLoanAmount();
+        int loanPeriod = application.getLoanPeriod();
+        LatencyBudget budget = latencyBudgets.start(application.getCountryCode());
+        if (blacklistService.isBlacklisted(personalCode)) {
+            budget.reject(Stage.BLACKLIST);
+            throw new NoValidLoanException("No valid loan found!");
+        }
+        budget.complete(Stage.BLACKLIST);
+
         try {
-            inputValidator.verifyInputs(personalCode, loanAmount, loanPeriod,countryCode);
+            inputValidator.verifyApplication(application);
         } catch (Exception e) {
+            budget.reject(Stage.VALIDATION);
             return new Decision(null, null, e.getMessage());
+        } catch (Throwable e) {
+            budget.reject(Stage.VALIDATION);
+            throw e;
+        }
+        budget.complete(Stage.VALIDATION);
+
+        if (!applicantHistory.tryRecordApplication(personalCode)) {
+            budget.reject(Stage.HISTORY);
+            throw new TooManyApplicationsException("Too many loan applications!");
         }
+        budget.complete(Stage.HISTORY);
+
+        // The modifier is looked up within what is left of the budget, or falls back to a conservative one.
+        long lookupNanos = budget.remainingNanos(Stage.CREDIT_MODIFIER);
+        boolean shadowed = shadowEvaluator.sample();
+        int creditModifier = shadowed
+                ? shadowEvaluator.getCreditModifier(
+                        code -> creditModifierGuard.getCreditModifier(creditModifierCalculator, code, lookupNanos),
+                        personalCode)
+                : creditModifierGuard.getCreditModifier(creditModifierCalculator, personalCode, lookupNanos);
+        budget.complete(Stage.CREDIT_MODIFIER);
 
-        int creditModifier = creditModifierCalculator.getCreditModifier(personalCode);
+        LoanProduct product = application.getProduct();
+        LoanCalculator calculator = product == null ? loanCalculator : product.getLoanCalculator();
+        Decision decision;
+        try {
+            decision = shadowed
+                    ? shadowEvaluator.calculateApprovedLoan(calculator, product, creditModifier, loanAmount, loanPeriod)
+                    : calculator.calculateApprovedLoan(creditModifier, loanAmount, loanPeriod);
+        } catch (NoValidLoanException e) {
+            budget.reject(Stage.LOAN_CALCULATION);
+            throw e;
+        }
+        budget.complete(Stage.LOAN_CALCULATION);
 
-        return loanCalculator.calculateApprovedLoan(creditModifier, loanAmount, loanPeriod);
+        LoanPricing pricing = pricingEngine.price(creditModifier, decision.getLoanAmount(), decision.getLoanPeriod());
+        budget.complete(Stage.PRICING);
+        return new Decision(decision.getLoanAmount(), decision.getLoanPeriod(), decision.getErrorMessage(), pricing);
     }
 
 
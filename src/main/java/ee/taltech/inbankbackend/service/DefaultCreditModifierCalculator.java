@@ -1,33 +1,31 @@
 package ee.taltech.inbankbackend.service;
 
-import ee.taltech.inbankbackend.config.DecisionEngineConstants;
+import ee.taltech.inbankbackend.scoring.ScorecardEngine;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 public class DefaultCreditModifierCalculator implements CreditModifierCalculator {
 
+    private final ScorecardEngine scorecardEngine;
+
+    @Autowired
+    public DefaultCreditModifierCalculator(ScorecardEngine scorecardEngine) {
+        this.scorecardEngine = scorecardEngine;
+    }
 
     /**
-     * Calculates the credit modifier of the customer to according to the last four digits of their ID code.
+     * Calculates the credit modifier of the customer with the champion scorecard model.
+     * The bundled model scores the last four digits of their ID code:
      * Debt - 0000...2499
      * Segment 1 - 2500...4999
      * Segment 2 - 5000...7499
      * Segment 3 - 7500...9999
      *
      * @param personalCode ID code of the customer that made the request.
-     * @return Segment to which the customer belongs.
+     * @return Credit modifier of the customer.
      */
     public int getCreditModifier(String personalCode) {
-        int segment = Integer.parseInt(personalCode.substring(personalCode.length() - 4));
-
-        if (segment < 2500) {
-            return 0;
-        } else if (segment < 5000) {
-            return DecisionEngineConstants.SEGMENT_1_CREDIT_MODIFIER;
-        } else if (segment < 7500) {
-            return DecisionEngineConstants.SEGMENT_2_CREDIT_MODIFIER;
-        }
-
-        return DecisionEngineConstants.SEGMENT_3_CREDIT_MODIFIER;
+        return scorecardEngine.getCreditModifier(personalCode);
     }
 }
@@ -6,31 +6,55 @@ import ee.taltech.inbankbackend.exceptions.*;
 
 import org.springframework.stereotype.Service;
 
+/**
+ * Finds the largest loan the credit modifier allows within the loan limits. The limits are fixed when the
+ * calculator is created, so every loan product has its own calculator and nothing is looked up per request.
+ */
 @Service
 public class DefaultLoanCalculator implements LoanCalculator {
 
+    private final int minimumLoanAmount;
+    private final int maximumLoanAmount;
+    private final int maximumLoanPeriod;
+
+    public DefaultLoanCalculator() {
+        this(DecisionEngineConstants.MINIMUM_LOAN_AMOUNT, DecisionEngineConstants.MAXIMUM_LOAN_AMOUNT,
+                DecisionEngineConstants.MAXIMUM_LOAN_PERIOD);
+    }
+
+    public DefaultLoanCalculator(int minimumLoanAmount, int maximumLoanAmount, int maximumLoanPeriod) {
+        this.minimumLoanAmount = minimumLoanAmount;
+        this.maximumLoanAmount = maximumLoanAmount;
+        this.maximumLoanPeriod = maximumLoanPeriod;
+    }
+
     @Override
     public Decision calculateApprovedLoan(int creditModifier, Long loanAmount, int loanPeriod)
             throws NoValidLoanException {
 
         int outputLoanAmount;
 
-        if (creditModifier == 0) {
+        if (creditModifier <= 0) {
             throw new NoValidLoanException("No valid loan found!");
         }
 
-        while (highestValidLoanAmount(creditModifier, loanPeriod) < DecisionEngineConstants.MINIMUM_LOAN_AMOUNT) {
-            loanPeriod++;
-        }
+        // The shortest period whose largest valid loan reaches the minimum amount
+        loanPeriod = Math.max(loanPeriod, (minimumLoanAmount + creditModifier - 1) / creditModifier);
 
-        if (loanPeriod <= DecisionEngineConstants.MAXIMUM_LOAN_PERIOD) {
-            outputLoanAmount = Math.min(DecisionEngineConstants.MAXIMUM_LOAN_AMOUNT, highestValidLoanAmount(creditModifier, loanPeriod));
+        if (loanPeriod <= maximumLoanPeriod) {
+            outputLoanAmount = Math.min(maximumLoanAmount, highestValidLoanAmount(creditModifier, loanPeriod));
         } else {
             throw new NoValidLoanException("No valid loan found!");
         }
 
         return new Decision(outputLoanAmount, loanPeriod, null);
     }
+
+    @Override
+    public LoanCalculator withLimits(int minimumLoanAmount, int maximumLoanAmount, int maximumLoanPeriod) {
+        return new DefaultLoanCalculator(minimumLoanAmount, maximumLoanAmount, maximumLoanPeriod);
+    }
+
     /**
      * Calculates the largest valid loan for the current credit modifier and loan period.
      *
@@ -0,0 +1,227 @@
+package ee.taltech.inbankbackend.service;
+
+import ee.taltech.inbankbackend.config.DecisionEngineConstants;
+import ee.taltech.inbankbackend.dataobjects.Installment;
+import ee.taltech.inbankbackend.dataobjects.LoanPricing;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Prices approved loans as annuities with a risk-based interest rate.
+ * All amounts are calculated with BigDecimal and rounded to cents once per installment. The last installment
+ * pays off whatever is left, so the principal parts always add up to the loan amount exactly.
+ * Prices are cached per (amount, period, rate), and schedules are generated month by month while
+ * they are being consumed instead of being kept in memory. Interest rates are rounded to
+ * {@link DecisionEngineConstants#MAXIMUM_INTEREST_RATE_SCALE} decimal places first, so a rate like 1E-40 is
+ * priced as zero instead of dividing by a growth factor that rounds to exactly one.
+ */
+@Service
+public class DefaultPricingEngine implements PricingEngine {
+
+    private static final MathContext PRECISION = MathContext.DECIMAL128;
+    private static final BigDecimal MONTHS_IN_YEAR = BigDecimal.valueOf(12);
+    private static final int CENTS = 2;
+    private static final int APR_SCALE = 4;
+    private static final int APR_ITERATIONS = 100;
+    private static final BigDecimal HALF_RATE_STEP =
+            BigDecimal.valueOf(5, DecisionEngineConstants.MAXIMUM_INTEREST_RATE_SCALE + 1);
+
+    private final ConcurrentMap<Long, LoanPricing> cache = new ConcurrentHashMap<>();
+    private final BigDecimal contractFee;
+    private final int cacheSize;
+
+    @Autowired
+    public DefaultPricingEngine(@Value("${pricing.contract-fee:0}") BigDecimal contractFee,
+                                @Value("${pricing.cache-size:100000}") int cacheSize) {
+        this.contractFee = contractFee;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Prices a loan with the interest rate of the customer's credit segment.
+     *
+     * @param creditModifier Credit modifier of the customer
+     * @param loanAmount Approved loan amount
+     * @param loanPeriod Approved loan period in months
+     * @return Interest rate, monthly payment, total repayment and APR of the loan
+     */
+    @Override
+    public LoanPricing price(int creditModifier, long loanAmount, int loanPeriod) {
+        return price(loanAmount, loanPeriod, annualInterestRate(creditModifier));
+    }
+
+    /**
+     * Generates the amortization schedule of a loan lazily, one installment at a time.
+     *
+     * @param loanAmount Loan amount
+     * @param loanPeriod Loan period in months
+     * @param annualInterestRate Nominal annual interest rate, for example 0.1490 for 14.9%
+     * @return Installments in order of payment
+     */
+    @Override
+    public Stream<Installment> schedule(long loanAmount, int loanPeriod, BigDecimal annualInterestRate) {
+        LoanPricing pricing = price(loanAmount, loanPeriod, annualInterestRate);
+        Iterator<Installment> installments = new ScheduleIterator(loanAmount, loanPeriod,
+                monthlyRate(pricing.getAnnualInterestRate()), pricing.getMonthlyPayment());
+        return StreamSupport.stream(Spliterators.spliterator(installments, loanPeriod,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    LoanPricing price(long loanAmount, int loanPeriod, BigDecimal annualInterestRate) {
+        annualInterestRate = rounded(annualInterestRate);
+        long key = cacheKey(loanAmount, loanPeriod, annualInterestRate);
+        LoanPricing pricing = key < 0 ? null : cache.get(key);
+        if (pricing == null) {
+            pricing = calculate(loanAmount, loanPeriod, annualInterestRate);
+            if (key >= 0) {
+                if (cache.size() >= cacheSize) {
+                    cache.clear();
+                }
+                cache.put(key, pricing);
+            }
+        }
+        return pricing;
+    }
+
+    private LoanPricing calculate(long loanAmount, int loanPeriod, BigDecimal annualInterestRate) {
+        BigDecimal monthlyRate = monthlyRate(annualInterestRate);
+        BigDecimal monthlyPayment = monthlyPayment(loanAmount, loanPeriod, monthlyRate);
+
+        BigDecimal totalRepayment = BigDecimal.ZERO;
+        ScheduleIterator installments = new ScheduleIterator(loanAmount, loanPeriod, monthlyRate, monthlyPayment);
+        while (installments.hasNext()) {
+            totalRepayment = totalRepayment.add(installments.next().getPayment());
+        }
+
+        return new LoanPricing(loanAmount, loanPeriod, annualInterestRate, monthlyPayment, totalRepayment,
+                apr(loanAmount, loanPeriod, monthlyPayment));
+    }
+
+    /**
+     * Annuity payment P * r / (1 - (1 + r)^-n), rounded to cents.
+     */
+    private static BigDecimal monthlyPayment(long loanAmount, int loanPeriod, BigDecimal monthlyRate) {
+        BigDecimal principal = BigDecimal.valueOf(loanAmount);
+        if (monthlyRate.signum() == 0) {
+            return principal.divide(BigDecimal.valueOf(loanPeriod), CENTS, RoundingMode.HALF_UP);
+        }
+        BigDecimal growth = BigDecimal.ONE.add(monthlyRate).pow(loanPeriod, PRECISION);
+        return principal.multiply(monthlyRate, PRECISION)
+                .multiply(growth, PRECISION)
+                .divide(growth.subtract(BigDecimal.ONE), PRECISION)
+                .setScale(CENTS, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Annual percentage rate: the yearly rate at which the payments are worth the amount paid out to the customer,
+     * which is the loan amount less the contract fee. The monthly rate is found by bisection, because the present
+     * value of the payments falls as the rate grows.
+     */
+    private BigDecimal apr(long loanAmount, int loanPeriod, BigDecimal monthlyPayment) {
+        double paidOut = loanAmount - contractFee.doubleValue();
+        double payment = monthlyPayment.doubleValue();
+        if (paidOut <= 0 || payment * loanPeriod <= paidOut) {
+            return BigDecimal.ZERO.setScale(APR_SCALE, RoundingMode.HALF_UP);
+        }
+        double low = 0;
+        double high = 1;
+        for (int i = 0; i < APR_ITERATIONS; i++) {
+            double rate = (low + high) / 2;
+            double presentValue = payment * (1 - Math.pow(1 + rate, -loanPeriod)) / rate;
+            if (presentValue > paidOut) {
+                low = rate;
+            } else {
+                high = rate;
+            }
+        }
+        return BigDecimal.valueOf(Math.pow(1 + (low + high) / 2, 12) - 1).setScale(APR_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal annualInterestRate(int creditModifier) {
+        if (creditModifier >= DecisionEngineConstants.SEGMENT_3_CREDIT_MODIFIER) {
+            return DecisionEngineConstants.SEGMENT_3_ANNUAL_INTEREST_RATE;
+        } else if (creditModifier >= DecisionEngineConstants.SEGMENT_2_CREDIT_MODIFIER) {
+            return DecisionEngineConstants.SEGMENT_2_ANNUAL_INTEREST_RATE;
+        }
+        return DecisionEngineConstants.SEGMENT_1_ANNUAL_INTEREST_RATE;
+    }
+
+    /**
+     * Rounds the rate to the maximum scale. Rates below half of the smallest step are zero; they are compared
+     * rather than rounded, because rounding 1E-999999999 would first expand it to a billion digits.
+     */
+    private static BigDecimal rounded(BigDecimal annualInterestRate) {
+        if (annualInterestRate.abs().compareTo(HALF_RATE_STEP) < 0) {
+            return BigDecimal.ZERO;
+        }
+        if (annualInterestRate.scale() <= DecisionEngineConstants.MAXIMUM_INTEREST_RATE_SCALE) {
+            return annualInterestRate;
+        }
+        return annualInterestRate.setScale(DecisionEngineConstants.MAXIMUM_INTEREST_RATE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal monthlyRate(BigDecimal annualInterestRate) {
+        return annualInterestRate.divide(MONTHS_IN_YEAR, PRECISION);
+    }
+
+    /**
+     * Packs amount, period and rate in basis points into one key, or returns -1 if they do not fit.
+     */
+    private static long cacheKey(long loanAmount, int loanPeriod, BigDecimal annualInterestRate) {
+        BigDecimal basisPoints = annualInterestRate.movePointRight(4);
+        if (loanAmount < 0 || loanAmount > Integer.MAX_VALUE || loanPeriod < 0 || loanPeriod > 0xFFFF
+                || basisPoints.signum() < 0 || basisPoints.compareTo(BigDecimal.valueOf(0xFFFF)) > 0
+                || basisPoints.stripTrailingZeros().scale() > 0) {
+            return -1;
+        }
+        return loanAmount << 32 | (long) loanPeriod << 16 | basisPoints.longValue();
+    }
+
+    /**
+     * Produces the installments of a schedule one at a time from the remaining balance.
+     */
+    private static class ScheduleIterator implements Iterator<Installment> {
+        private final int loanPeriod;
+        private final BigDecimal monthlyRate;
+        private final BigDecimal monthlyPayment;
+        private BigDecimal balance;
+        private int month;
+
+        ScheduleIterator(long loanAmount, int loanPeriod, BigDecimal monthlyRate, BigDecimal monthlyPayment) {
+            this.loanPeriod = loanPeriod;
+            this.monthlyRate = monthlyRate;
+            this.monthlyPayment = monthlyPayment;
+            this.balance = BigDecimal.valueOf(loanAmount).setScale(CENTS, RoundingMode.UNNECESSARY);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return month < loanPeriod;
+        }
+
+        @Override
+        public Installment next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            month++;
+            BigDecimal interest = balance.multiply(monthlyRate, PRECISION).setScale(CENTS, RoundingMode.HALF_UP);
+            BigDecimal principal = month == loanPeriod ? balance : monthlyPayment.subtract(interest).min(balance);
+            balance = balance.subtract(principal);
+            return new Installment(month, principal.add(interest), principal, interest, balance);
+        }
+    }
+}
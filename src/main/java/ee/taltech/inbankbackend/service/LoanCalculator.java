@@ -6,4 +6,12 @@ import ee.taltech.inbankbackend.exceptions.*;
 public interface LoanCalculator {
     Decision calculateApprovedLoan(int creditModifier, Long loanAmount, int loanPeriod)
             throws NoValidLoanException;
+
+    /**
+     * @return A calculator of the same kind bound to the given loan limits, or null if the calculator only
+     * works with its own limits
+     */
+    default LoanCalculator withLimits(int minimumLoanAmount, int maximumLoanAmount, int maximumLoanPeriod) {
+        return null;
+    }
 }
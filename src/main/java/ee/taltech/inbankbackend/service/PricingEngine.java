@@ -0,0 +1,13 @@
+package ee.taltech.inbankbackend.service;
+
+import ee.taltech.inbankbackend.dataobjects.Installment;
+import ee.taltech.inbankbackend.dataobjects.LoanPricing;
+
+import java.math.BigDecimal;
+import java.util.stream.Stream;
+
+public interface PricingEngine {
+    LoanPricing price(int creditModifier, long loanAmount, int loanPeriod);
+
+    Stream<Installment> schedule(long loanAmount, int loanPeriod, BigDecimal annualInterestRate);
+}
@@ -0,0 +1,270 @@
+package ee.taltech.inbankbackend.shadow;
+
+import ee.taltech.inbankbackend.dataobjects.Decision;
+import ee.taltech.inbankbackend.exceptions.NoValidLoanException;
+import ee.taltech.inbankbackend.product.LoanProduct;
+import ee.taltech.inbankbackend.service.CreditModifierCalculator;
+import ee.taltech.inbankbackend.service.LoanCalculator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs challenger implementations of the credit modifier calculator and the loan calculator in shadow.
+ * For a sampled share of requests, the champion's result is returned as usual and the same inputs are handed to
+ * the challenger on a separate, bounded executor. Its result is compared with the champion's and both latencies
+ * are recorded. When the executor's queue is full, the comparison is dropped rather than slowing the request down.
+ * <br><br>
+ * Challengers are beans of the same interface, selected by bean name. Mark the champion with @Primary, so the
+ * decision engine keeps using it.
+ */
+@Component
+public class ShadowEvaluator implements DisposableBean {
+
+    static final String CREDIT_MODIFIER = "credit-modifier";
+    static final String LOAN_CALCULATOR = "loan-calculator";
+
+    private static final Logger log = LoggerFactory.getLogger(ShadowEvaluator.class);
+    private static final int SAMPLE_SCALE = 1 << 20;
+
+    private final CreditModifierCalculator creditModifierChallenger;
+    private final LoanCalculator loanChallenger;
+    private final Map<LoanProduct, LoanCalculator> productLoanChallengers = new ConcurrentHashMap<>();
+    private final int sampleThreshold;
+    private final ThreadPoolExecutor executor;
+    private final Comparison creditModifierComparison;
+    private final Comparison loanComparison;
+
+    @Autowired
+    public ShadowEvaluator(Map<String, CreditModifierCalculator> creditModifierCalculators,
+                           Map<String, LoanCalculator> loanCalculators,
+                           @Value("${shadow.credit-modifier-calculator:}") String creditModifierChallenger,
+                           @Value("${shadow.loan-calculator:}") String loanChallenger,
+                           @Value("${shadow.sample-rate:0}") double sampleRate,
+                           @Value("${shadow.threads:1}") int threads,
+                           @Value("${shadow.queue-capacity:1000}") int queueCapacity,
+                           MeterRegistry registry) {
+        this(challenger(creditModifierCalculators, creditModifierChallenger, "shadow.credit-modifier-calculator"),
+                challenger(loanCalculators, loanChallenger, "shadow.loan-calculator"),
+                sampleRate, threads, queueCapacity, registry);
+    }
+
+    public ShadowEvaluator(CreditModifierCalculator creditModifierChallenger, LoanCalculator loanChallenger,
+                           double sampleRate, int threads, int queueCapacity, MeterRegistry registry) {
+        this.creditModifierChallenger = creditModifierChallenger;
+        this.loanChallenger = loanChallenger;
+        this.sampleThreshold = creditModifierChallenger == null && loanChallenger == null
+                ? 0 : (int) Math.round(Math.max(0, Math.min(1, sampleRate)) * SAMPLE_SCALE);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "shadow-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        this.creditModifierComparison = new Comparison(CREDIT_MODIFIER, registry);
+        this.loanComparison = new Comparison(LOAN_CALCULATOR, registry);
+    }
+
+    /**
+     * @return Whether the current request should be evaluated in shadow
+     */
+    public boolean sample() {
+        return sampleThreshold > 0 && ThreadLocalRandom.current().nextInt(SAMPLE_SCALE) < sampleThreshold;
+    }
+
+    /**
+     * Returns the champion's credit modifier and compares it with the challenger's in the background.
+     */
+    public int getCreditModifier(CreditModifierCalculator champion, String personalCode) {
+        long start = System.nanoTime();
+        int creditModifier = champion.getCreditModifier(personalCode);
+        long championNanos = System.nanoTime() - start;
+        if (creditModifierChallenger != null) {
+            submit(creditModifierComparison, championNanos,
+                    () -> creditModifierChallenger.getCreditModifier(personalCode) == creditModifier);
+        }
+        return creditModifier;
+    }
+
+    /**
+     * Returns the champion's decision and compares it with the challenger's in the background. The challenger
+     * gets the champion's credit modifier, so only differences of the loan calculators are counted.
+     *
+     * @throws NoValidLoanException If the champion finds no valid loan
+     */
+    public Decision calculateApprovedLoan(LoanCalculator champion, int creditModifier, Long loanAmount, int loanPeriod)
+            throws NoValidLoanException {
+        return calculateApprovedLoan(champion, null, creditModifier, loanAmount, loanPeriod);
+    }
+
+    /**
+     * Like {@link #calculateApprovedLoan(LoanCalculator, int, Long, int)} for a loan product. The challenger is
+     * bound to the limits of the product, and a challenger that can not be bound to other limits is not compared
+     * for products, since its decisions would differ for that reason alone.
+     *
+     * @param product Loan product of the application, or null for the default limits
+     * @throws NoValidLoanException If the champion finds no valid loan
+     */
+    public Decision calculateApprovedLoan(LoanCalculator champion, LoanProduct product, int creditModifier,
+                                          Long loanAmount, int loanPeriod) throws NoValidLoanException {
+        long start = System.nanoTime();
+        Decision decision = null;
+        NoValidLoanException noValidLoan = null;
+        try {
+            decision = champion.calculateApprovedLoan(creditModifier, loanAmount, loanPeriod);
+        } catch (NoValidLoanException e) {
+            noValidLoan = e;
+        }
+        long championNanos = System.nanoTime() - start;
+
+        LoanCalculator challenger = loanChallenger(product);
+        if (challenger != null) {
+            Decision championDecision = decision;
+            submit(loanComparison, championNanos, () -> sameLoan(championDecision,
+                    approvedLoanOrNull(challenger, creditModifier, loanAmount, loanPeriod)));
+        }
+        if (noValidLoan != null) {
+            throw noValidLoan;
+        }
+        return decision;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Waits for the comparisons that are already queued and stops the executor.
+     */
+    void drain() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private LoanCalculator loanChallenger(LoanProduct product) {
+        if (loanChallenger == null || product == null) {
+            return loanChallenger;
+        }
+        return productLoanChallengers.computeIfAbsent(product, p -> loanChallenger.withLimits(
+                p.getMinimumLoanAmount(), p.getMaximumLoanAmount(), p.getMaximumLoanPeriod()));
+    }
+
+    private void submit(Comparison comparison, long championNanos, BooleanSupplier challenge) {
+        try {
+            executor.execute(() -> comparison.run(championNanos, challenge));
+        } catch (RejectedExecutionException e) {
+            comparison.dropped.increment();
+        }
+    }
+
+    private static Decision approvedLoanOrNull(LoanCalculator calculator, int creditModifier, Long loanAmount,
+                                               int loanPeriod) {
+        try {
+            return calculator.calculateApprovedLoan(creditModifier, loanAmount, loanPeriod);
+        } catch (NoValidLoanException e) {
+            return null;
+        }
+    }
+
+    private static boolean sameLoan(Decision champion, Decision challenger) {
+        if (champion == null || challenger == null) {
+            return champion == challenger;
+        }
+        return Objects.equals(champion.getLoanAmount(), challenger.getLoanAmount())
+                && Objects.equals(champion.getLoanPeriod(), challenger.getLoanPeriod());
+    }
+
+    private static <T> T challenger(Map<String, T> candidates, String name, String property) {
+        if (name.isBlank()) {
+            return null;
+        }
+        T challenger = candidates.get(name);
+        if (challenger == null) {
+            throw new IllegalStateException(property + " names an unknown bean: " + name);
+        }
+        return challenger;
+    }
+
+    /**
+     * Meters of one shadowed component.
+     */
+    private static class Comparison {
+        private final String component;
+        private final Counter matches;
+        private final Counter divergences;
+        private final Counter errors;
+        private final Counter dropped;
+        private final Timer championLatency;
+        private final Timer challengerLatency;
+        private final DistributionSummary latencyRatio;
+
+        Comparison(String component, MeterRegistry registry) {
+            this.component = component;
+            this.matches = outcome(component, "match", registry);
+            this.divergences = outcome(component, "diverge", registry);
+            this.errors = outcome(component, "error", registry);
+            this.dropped = outcome(component, "dropped", registry);
+            this.championLatency = latency(component, "champion", registry);
+            this.challengerLatency = latency(component, "challenger", registry);
+            this.latencyRatio = DistributionSummary.builder("loan.shadow.latency.ratio")
+                    .description("Challenger latency divided by champion latency")
+                    .tag("component", component)
+                    .register(registry);
+        }
+
+        void run(long championNanos, BooleanSupplier challenge) {
+            long start = System.nanoTime();
+            boolean match;
+            try {
+                match = challenge.getAsBoolean();
+            } catch (RuntimeException e) {
+                errors.increment();
+                log.debug("Shadow {} failed", component, e);
+                return;
+            }
+            long challengerNanos = System.nanoTime() - start;
+
+            championLatency.record(championNanos, TimeUnit.NANOSECONDS);
+            challengerLatency.record(challengerNanos, TimeUnit.NANOSECONDS);
+            latencyRatio.record((double) challengerNanos / Math.max(1, championNanos));
+            (match ? matches : divergences).increment();
+        }
+
+        private static Counter outcome(String component, String outcome, MeterRegistry registry) {
+            return Counter.builder("loan.shadow.comparisons")
+                    .description("Shadow comparisons of a challenger with the champion")
+                    .tag("component", component)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+
+        private static Timer latency(String component, String role, MeterRegistry registry) {
+            return Timer.builder("loan.shadow.latency")
+                    .description("Latency of shadowed champion and challenger calls")
+                    .tag("component", component)
+                    .tag("role", role)
+                    .register(registry);
+        }
+    }
+}
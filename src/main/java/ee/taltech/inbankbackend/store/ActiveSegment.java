@@ -0,0 +1,204 @@
+package ee.taltech.inbankbackend.store;
+
+import ee.taltech.inbankbackend.util.ApplicationIds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The segment decisions are currently appended to. Its indexes are kept in memory, mapping the keys of
+ * application ids and personal codes to the offsets of their records in the log.
+ * <br><br>
+ * Once the day is over, the segment is sealed: its indexes are written to disk next to the log, and lookups
+ * that still reach this object are answered by the sealed segment.
+ */
+final class ActiveSegment implements Segment {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveSegment.class);
+    private static final long[] NONE = {};
+
+    private final long day;
+    private final Path logFile;
+    private final FileChannel channel;
+    private final PersonalCodeCipher cipher;
+    private final Map<Long, long[]> byId = new HashMap<>();
+    private final Map<Long, long[]> byPersonalCode = new HashMap<>();
+    private long size;
+    private int records;
+    private SealedSegment sealed;
+
+    private ActiveSegment(long day, Path logFile, FileChannel channel, PersonalCodeCipher cipher) {
+        this.day = day;
+        this.logFile = logFile;
+        this.channel = channel;
+        this.cipher = cipher;
+    }
+
+    /**
+     * Opens the log for appending, indexing the records already in it. A record torn by a crash is cut off.
+     */
+    static ActiveSegment open(long day, Path logFile, PersonalCodeCipher cipher) throws IOException {
+        FileChannel channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ActiveSegment segment = new ActiveSegment(day, logFile, channel, cipher);
+        try {
+            segment.recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return segment;
+    }
+
+    @Override
+    public long day() {
+        return day;
+    }
+
+    /**
+     * @return Number of decisions in the segment
+     */
+    synchronized int size() {
+        return records;
+    }
+
+    /**
+     * Appends a decision to the log and indexes it.
+     */
+    synchronized void append(StoredDecision decision) throws IOException {
+        if (sealed != null) {
+            throw new IllegalStateException("Segment " + logFile + " has been sealed");
+        }
+        byte[] record = DecisionCodec.encode(decision, cipher);
+        long offset = size;
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+        size += record.length;
+        index(decision, offset);
+    }
+
+    /**
+     * Writes the indexes to disk and switches lookups over to the sealed segment.
+     *
+     * @param indexFile File the indexes are written to
+     * @return The sealed segment
+     */
+    synchronized SealedSegment seal(Path indexFile) throws IOException {
+        if (sealed == null) {
+            channel.force(true);
+            SealedSegment.writeIndex(indexFile, byId, byPersonalCode, records);
+            sealed = SealedSegment.open(day, logFile, indexFile, cipher);
+            channel.close();
+            byId.clear();
+            byPersonalCode.clear();
+        }
+        return sealed;
+    }
+
+    @Override
+    public synchronized StoredDecision find(String applicationId, long key) throws IOException {
+        if (sealed != null) {
+            return sealed.find(applicationId, key);
+        }
+        for (long offset : byId.getOrDefault(key, NONE)) {
+            StoredDecision decision = read(offset);
+            if (decision.applicationId().equals(applicationId)) {
+                return decision;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized List<StoredDecision> findByPersonalCode(long codeKey) throws IOException {
+        if (sealed != null) {
+            return sealed.findByPersonalCode(codeKey);
+        }
+        long[] offsets = byPersonalCode.getOrDefault(codeKey, NONE);
+        List<StoredDecision> decisions = new ArrayList<>(offsets.length);
+        for (int i = offsets.length - 1; i >= 0; i--) {
+            decisions.add(read(offsets[i]));
+        }
+        return decisions;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (sealed != null) {
+            sealed.close();
+        } else {
+            channel.close();
+        }
+    }
+
+    private void recover() throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(DecisionCodec.HEADER_BYTES);
+        while (size + DecisionCodec.HEADER_BYTES <= fileSize) {
+            header.clear();
+            readFully(header, size);
+            int length = header.getInt(0);
+            if (!DecisionCodec.isValidLength(length) || size + DecisionCodec.HEADER_BYTES + length > fileSize) {
+                break;
+            }
+            byte[] payload = readPayload(size, length);
+            if (DecisionCodec.checksum(payload, 0, length) != header.getInt(4)) {
+                break;
+            }
+            index(DecisionCodec.decode(payload, cipher), size);
+            size += DecisionCodec.HEADER_BYTES + length;
+        }
+        if (size < fileSize) {
+            log.warn("Cutting off {} bytes torn by a crash from {}", fileSize - size, logFile);
+            channel.truncate(size);
+        }
+    }
+
+    private void index(StoredDecision decision, long offset) {
+        byId.merge(ApplicationIds.key(decision.applicationId()), new long[]{offset}, ActiveSegment::concat);
+        long codeKey = cipher.indexKey(decision.personalCode());
+        if (codeKey > 0) {
+            byPersonalCode.merge(codeKey, new long[]{offset}, ActiveSegment::concat);
+        }
+        records++;
+    }
+
+    private StoredDecision read(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(DecisionCodec.HEADER_BYTES);
+        readFully(header, offset);
+        return DecisionCodec.decode(readPayload(offset, header.getInt(0)), cipher);
+    }
+
+    private byte[] readPayload(long offset, int length) throws IOException {
+        byte[] payload = new byte[length];
+        readFully(ByteBuffer.wrap(payload), offset + DecisionCodec.HEADER_BYTES);
+        return payload;
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of " + logFile);
+            }
+        }
+    }
+
+    private static long[] concat(long[] offsets, long[] offset) {
+        long[] merged = Arrays.copyOf(offsets, offsets.length + 1);
+        merged[offsets.length] = offset[0];
+        return merged;
+    }
+}
@@ -0,0 +1,151 @@
+package ee.taltech.inbankbackend.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary form of the stored decisions. Every record is framed by its length and a checksum of its payload,
+ * so a record torn by a crash is recognized when the log is read back. Personal codes are encrypted; records
+ * written before that keep their plaintext code and are still read.
+ */
+final class DecisionCodec {
+
+    static final int HEADER_BYTES = 8;
+    static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+    private static final int PLAINTEXT = 1;
+    private static final int ENCRYPTED = 2;
+
+    private DecisionCodec() {
+    }
+
+    /**
+     * @return The framed record
+     */
+    static byte[] encode(StoredDecision decision, PersonalCodeCipher cipher) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(160);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeUTF(decision.applicationId());
+            out.writeLong(decision.decidedAt().toEpochMilli());
+            writePersonalCode(out, decision.personalCode(), cipher);
+            writeString(out, decision.countryCode());
+            out.writeLong(decision.requestedLoanAmount() == null ? Long.MIN_VALUE : decision.requestedLoanAmount());
+            out.writeInt(decision.requestedLoanPeriod());
+            out.writeShort(decision.status());
+            out.writeInt(decision.loanAmount() == null ? Integer.MIN_VALUE : decision.loanAmount());
+            out.writeInt(decision.loanPeriod() == null ? Integer.MIN_VALUE : decision.loanPeriod());
+            writeString(out, decision.errorMessage());
+            writeString(out, decision.annualInterestRate() == null ? null : decision.annualInterestRate().toString());
+            writeString(out, decision.monthlyPayment() == null ? null : decision.monthlyPayment().toString());
+            writeString(out, decision.apr() == null ? null : decision.apr().toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] record = bytes.toByteArray();
+        int length = record.length - HEADER_BYTES;
+        writeInt(record, 0, length);
+        writeInt(record, 4, checksum(record, HEADER_BYTES, length));
+        return record;
+    }
+
+    /**
+     * @param payload Payload of a record, without the header
+     * @return The decision
+     */
+    static StoredDecision decode(byte[] payload, PersonalCodeCipher cipher) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String applicationId = in.readUTF();
+            Instant decidedAt = Instant.ofEpochMilli(in.readLong());
+            String personalCode = readPersonalCode(in, cipher);
+            String countryCode = readString(in);
+            long requestedLoanAmount = in.readLong();
+            int requestedLoanPeriod = in.readInt();
+            int status = in.readShort();
+            int loanAmount = in.readInt();
+            int loanPeriod = in.readInt();
+            String errorMessage = readString(in);
+            String annualInterestRate = readString(in);
+            String monthlyPayment = readString(in);
+            String apr = readString(in);
+            return new StoredDecision(applicationId, decidedAt, personalCode, countryCode,
+                    requestedLoanAmount == Long.MIN_VALUE ? null : requestedLoanAmount, requestedLoanPeriod, status,
+                    loanAmount == Integer.MIN_VALUE ? null : loanAmount,
+                    loanPeriod == Integer.MIN_VALUE ? null : loanPeriod, errorMessage,
+                    annualInterestRate == null ? null : new BigDecimal(annualInterestRate),
+                    monthlyPayment == null ? null : new BigDecimal(monthlyPayment),
+                    apr == null ? null : new BigDecimal(apr));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return Whether the length read from a header can belong to a record
+     */
+    static boolean isValidLength(int length) {
+        return length > 0 && length <= MAX_PAYLOAD_BYTES;
+    }
+
+    static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void writePersonalCode(DataOutputStream out, String personalCode, PersonalCodeCipher cipher)
+            throws IOException {
+        if (personalCode == null) {
+            out.writeByte(0);
+            return;
+        }
+        byte[] encrypted = cipher.encrypt(personalCode);
+        out.writeByte(ENCRYPTED);
+        out.writeShort(encrypted.length);
+        out.write(encrypted);
+    }
+
+    private static String readPersonalCode(DataInputStream in, PersonalCodeCipher cipher) throws IOException {
+        int format = in.readUnsignedByte();
+        if (format == 0) {
+            return null;
+        } else if (format == PLAINTEXT) {
+            return in.readUTF();
+        } else if (format != ENCRYPTED) {
+            throw new IOException("Unknown personal code format " + format);
+        }
+        byte[] encrypted = new byte[in.readUnsignedShort()];
+        in.readFully(encrypted);
+        try {
+            return cipher.decrypt(encrypted);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Personal code was encrypted with another decisions.store-key", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,29 @@
+package ee.taltech.inbankbackend.store;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the decisions of the last days for looking them up later.
+ */
+public interface DecisionStore {
+
+    /**
+     * Stores a decision in the background. Never blocks the caller; a decision that can not be queued is dropped.
+     *
+     * @param decision The decision
+     */
+    void record(StoredDecision decision);
+
+    /**
+     * @param applicationId Id of the loan application
+     * @return The decision of the application, if it was made within the retention period
+     */
+    Optional<StoredDecision> findByApplicationId(String applicationId);
+
+    /**
+     * @param personalCode Personal ID code of the customer
+     * @return The decisions for the customer made within the retention period, newest first
+     */
+    List<StoredDecision> findByPersonalCode(String personalCode);
+}
@@ -0,0 +1,350 @@
+package ee.taltech.inbankbackend.store;
+
+import ee.taltech.inbankbackend.util.ApplicationIds;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Decision store made of one append-only log per day. Decisions are handed to a single writer thread through a
+ * bounded queue, so the request that made the decision never waits for the disk.
+ * <br><br>
+ * The log of the current day is indexed in memory by application id and personal code. When the day is over,
+ * the writer seals it: the indexes are written to a sorted, memory-mapped index file and the log is never
+ * written again. Personal codes are encrypted in the logs and indexed by a keyed hash, see
+ * {@link PersonalCodeCipher}. Lookups only visit the days within the retention period. Application ids carry
+ * their time, so a lookup by id usually reads a single day. Days older than the retention period are deleted.
+ */
+@Service
+public class PartitionedDecisionStore implements DecisionStore, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionedDecisionStore.class);
+    private static final String LOG_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final Path directory;
+    private final int retentionDays;
+    private final Clock clock;
+    private final PersonalCodeCipher cipher;
+    private final BlockingQueue<StoredDecision> queue;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Thread writer;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Timer idLookups;
+    private final Timer personalCodeLookups;
+    private ActiveSegment active;
+    private long sealedUntilDay = Long.MIN_VALUE;
+
+    /**
+     * @throws IOException If the store directory can not be read
+     * @throws IllegalStateException If the store key is missing or not an AES key
+     */
+    @Autowired
+    public PartitionedDecisionStore(@Value("${decisions.store-dir:decision-store}") String directory,
+                                    @Value("${decisions.retention-days:90}") int retentionDays,
+                                    @Value("${decisions.queue-capacity:10000}") int queueCapacity,
+                                    @Value("${decisions.store-key:}") String storeKey,
+                                    MeterRegistry registry) throws IOException {
+        this(Path.of(directory), retentionDays, queueCapacity, storeKey, Clock.systemUTC(), registry);
+    }
+
+    PartitionedDecisionStore(Path directory, int retentionDays, int queueCapacity, String storeKey, Clock clock,
+                             MeterRegistry registry) throws IOException {
+        this.directory = directory;
+        this.retentionDays = retentionDays;
+        this.clock = clock;
+        this.cipher = new PersonalCodeCipher(storeKey);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.written = outcome("written", registry);
+        this.dropped = outcome("dropped", registry);
+        this.failed = outcome("failed", registry);
+        this.idLookups = lookup("application-id", registry);
+        this.personalCodeLookups = lookup("personal-code", registry);
+        Gauge.builder("loan.decisions.store.partitions", segments, Map::size)
+                .description("Days kept in the decision store")
+                .register(registry);
+        Files.createDirectories(directory);
+        open();
+        this.writer = new Thread(this::write, "decision-store-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void record(StoredDecision decision) {
+        pending.incrementAndGet();
+        if (!queue.offer(decision)) {
+            pending.decrementAndGet();
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public Optional<StoredDecision> findByApplicationId(String applicationId) {
+        long start = System.nanoTime();
+        try {
+            long cutoff = cutoff();
+            long created = ApplicationIds.timestamp(applicationId);
+            if (created >= 0 && created < cutoff) {
+                return Optional.empty();
+            }
+            long key = ApplicationIds.key(applicationId);
+            StoredDecision decision = null;
+            if (created >= 0) {
+                // A decision is stored on the day its id was created, or the next one if it was made around midnight.
+                long day = Math.floorDiv(created, MILLIS_PER_DAY);
+                decision = find(segments.subMap(day, true, day + 1, true), applicationId, key);
+            }
+            if (decision == null) {
+                decision = find(segments.tailMap(Math.floorDiv(cutoff, MILLIS_PER_DAY), true), applicationId, key);
+            }
+            return Optional.ofNullable(decision).filter(found -> found.decidedAt().toEpochMilli() >= cutoff);
+        } finally {
+            idLookups.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<StoredDecision> findByPersonalCode(String personalCode) {
+        long start = System.nanoTime();
+        try {
+            long codeKey = cipher.indexKey(personalCode);
+            List<StoredDecision> decisions = new ArrayList<>();
+            if (codeKey <= 0) {
+                return decisions;
+            }
+            long cutoff = cutoff();
+            for (Segment segment : segments.tailMap(Math.floorDiv(cutoff, MILLIS_PER_DAY), true)
+                    .descendingMap().values()) {
+                for (StoredDecision decision : segment.findByPersonalCode(codeKey)) {
+                    // Keys are truncated hashes, so a key may be shared by another code.
+                    if (decision.decidedAt().toEpochMilli() >= cutoff && personalCode.equals(decision.personalCode())) {
+                        decisions.add(decision);
+                    }
+                }
+            }
+            return decisions;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            personalCodeLookups.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        for (Segment segment : segments.values()) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.debug("Could not close the decision store segment of day {}", segment.day(), e);
+            }
+        }
+    }
+
+    /**
+     * Waits until the decisions recorded so far have been written.
+     */
+    void flush() throws InterruptedException {
+        while (pending.get() > 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Opens the logs left by the previous run. Logs of past days that were not sealed yet are sealed now.
+     */
+    private void open() throws IOException {
+        long today = today();
+        long oldestDay = Math.floorDiv(cutoff(), MILLIS_PER_DAY);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path logFile : files.filter(file -> file.toString().endsWith(LOG_SUFFIX)).sorted().toList()) {
+                long day;
+                try {
+                    day = LocalDate.parse(logFile.getFileName().toString().replace(LOG_SUFFIX, "")).toEpochDay();
+                } catch (DateTimeParseException e) {
+                    continue;
+                }
+                if (day < oldestDay) {
+                    delete(day);
+                } else if (day >= today) {
+                    active = ActiveSegment.open(day, logFile, cipher);
+                    segments.put(day, active);
+                } else {
+                    segments.put(day, openSealed(day, logFile));
+                    sealedUntilDay = day;
+                }
+            }
+        }
+    }
+
+    private SealedSegment openSealed(long day, Path logFile) throws IOException {
+        Path indexFile = indexFile(day);
+        if (Files.exists(indexFile)) {
+            try {
+                return SealedSegment.open(day, logFile, indexFile, cipher);
+            } catch (IOException e) {
+                log.warn("Rebuilding the damaged index of {}", logFile, e);
+            }
+        }
+        return ActiveSegment.open(day, logFile, cipher).seal(indexFile);
+    }
+
+    private void write() {
+        long lastDay = today();
+        while (true) {
+            StoredDecision decision;
+            try {
+                decision = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                decision = queue.poll();
+                if (decision == null) {
+                    return;
+                }
+                Thread.currentThread().interrupt();
+            }
+            long today = today();
+            if (today != lastDay) {
+                rollOver(today);
+                lastDay = today;
+            }
+            if (decision != null) {
+                append(decision);
+            }
+            if (Thread.currentThread().isInterrupted() && queue.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    private void append(StoredDecision decision) {
+        try {
+            // Sealed days are never written again, so a decision arriving late goes to the next open day.
+            long day = Math.max(Math.floorDiv(decision.decidedAt().toEpochMilli(), MILLIS_PER_DAY), sealedUntilDay + 1);
+            if (active == null || active.day() < day) {
+                if (active != null) {
+                    seal(active);
+                }
+                active = ActiveSegment.open(day, logFile(day), cipher);
+                segments.put(day, active);
+            }
+            active.append(decision);
+            written.increment();
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.error("Could not store the decision of application {}", decision.applicationId(), e);
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Seals the days that are over and deletes the days older than the retention period.
+     */
+    private void rollOver(long today) {
+        if (active != null && active.day() < today) {
+            try {
+                seal(active);
+                active = null;
+            } catch (IOException e) {
+                log.error("Could not seal the decision store segment of day {}", active.day(), e);
+            }
+        }
+        long oldestDay = Math.floorDiv(cutoff(), MILLIS_PER_DAY);
+        for (Segment expired : new ArrayList<>(segments.headMap(oldestDay, false).values())) {
+            segments.remove(expired.day());
+            try {
+                expired.close();
+                delete(expired.day());
+            } catch (IOException e) {
+                log.warn("Could not delete the decision store segment of day {}", expired.day(), e);
+            }
+        }
+    }
+
+    private void seal(ActiveSegment segment) throws IOException {
+        segments.put(segment.day(), segment.seal(indexFile(segment.day())));
+        sealedUntilDay = Math.max(sealedUntilDay, segment.day());
+    }
+
+    private void delete(long day) throws IOException {
+        Files.deleteIfExists(indexFile(day));
+        Files.deleteIfExists(logFile(day));
+    }
+
+    private static StoredDecision find(Map<Long, Segment> days, String applicationId, long key) {
+        try {
+            for (Segment segment : days.values()) {
+                StoredDecision decision = segment.find(applicationId, key);
+                if (decision != null) {
+                    return decision;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long today() {
+        return Math.floorDiv(clock.millis(), MILLIS_PER_DAY);
+    }
+
+    private long cutoff() {
+        return clock.millis() - retentionDays * MILLIS_PER_DAY;
+    }
+
+    private Path logFile(long day) {
+        return directory.resolve(LocalDate.ofEpochDay(day) + LOG_SUFFIX);
+    }
+
+    private Path indexFile(long day) {
+        return directory.resolve(LocalDate.ofEpochDay(day) + INDEX_SUFFIX);
+    }
+
+    private static Counter outcome(String outcome, MeterRegistry registry) {
+        return Counter.builder("loan.decisions.store.records")
+                .description("Decisions handed to the decision store, by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static Timer lookup(String index, MeterRegistry registry) {
+        return Timer.builder("loan.decisions.store.lookup")
+                .description("Time taken to look up decisions")
+                .tag("index", index)
+                .register(registry);
+    }
+}
@@ -0,0 +1,108 @@
+package ee.taltech.inbankbackend.store;
+
+import ee.taltech.inbankbackend.util.PersonalCodes;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Keeps personal codes out of the decision store in plaintext. Codes are encrypted with AES-GCM in the logs,
+ * like in the callback outbox, and the personal code index is keyed by an HMAC-SHA256 of the code instead of
+ * the packed code, so neither file can be read back into codes without decisions.store-key.
+ */
+final class PersonalCodeCipher {
+
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final String MAC = "HmacSHA256";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec key;
+    private final SecretKeySpec indexKey;
+
+    /**
+     * @param key Base64 AES key of 16, 24 or 32 bytes
+     * @throws IllegalStateException If the key is missing or not an AES key
+     */
+    PersonalCodeCipher(String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalStateException("decisions.store-key must be set to a Base64 AES key");
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(key.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("decisions.store-key is not Base64", e);
+        }
+        if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+            throw new IllegalStateException("decisions.store-key must be a Base64 AES key of 16, 24 or 32 bytes");
+        }
+        this.key = new SecretKeySpec(bytes, "AES");
+        // The index is keyed separately, so the same key is never used by both algorithms.
+        this.indexKey = new SecretKeySpec(mac(new SecretKeySpec(bytes, MAC), "index"), MAC);
+    }
+
+    /**
+     * @return The initialization vector followed by the ciphertext
+     */
+    byte[] encrypt(String personalCode) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+            byte[] encrypted = cipher.doFinal(personalCode.getBytes(StandardCharsets.UTF_8));
+            byte[] sealed = Arrays.copyOf(iv, IV_LENGTH + encrypted.length);
+            System.arraycopy(encrypted, 0, sealed, IV_LENGTH, encrypted.length);
+            return sealed;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+    }
+
+    /**
+     * @throws GeneralSecurityException If the code was encrypted with another key or has been tampered with
+     */
+    String decrypt(byte[] sealed) throws GeneralSecurityException {
+        if (sealed.length <= IV_LENGTH) {
+            throw new GeneralSecurityException("Encrypted personal code is too short");
+        }
+        Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, sealed, 0, IV_LENGTH));
+        return new String(cipher.doFinal(sealed, IV_LENGTH, sealed.length - IV_LENGTH), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Positive key of the code in the personal code index, or -1 if the code is not a number
+     */
+    long indexKey(String personalCode) {
+        if (PersonalCodes.pack(personalCode) <= 0) {
+            return -1;
+        }
+        byte[] mac = mac(indexKey, personalCode);
+        long key = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            key = key << 8 | (mac[i] & 0xff);
+        }
+        key &= Long.MAX_VALUE;
+        return key == 0 ? 1 : key;
+    }
+
+    private static byte[] mac(SecretKeySpec key, String value) {
+        try {
+            Mac mac = Mac.getInstance(MAC);
+            mac.init(key);
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package ee.taltech.inbankbackend.store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A segment of a past day, which is never written to again. Its indexes are kept in a file next to the log as
+ * two arrays of (key, offset) pairs sorted by key, one for application ids and one for personal code keys.
+ * The index file is memory-mapped, so a lookup is a binary search in the page cache followed by one read from
+ * the log, and the heap only holds the segments of the days that are still open.
+ */
+final class SealedSegment implements Segment {
+
+    private static final int MAGIC = 0x44454349;
+    // Version 1 indexed packed personal codes; such index files are rebuilt with keyed ones.
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 16;
+
+    private final long day;
+    private final Path logFile;
+    private final FileChannel log;
+    private final MappedByteBuffer index;
+    private final PersonalCodeCipher cipher;
+    private final int idEntries;
+    private final int codeEntries;
+
+    private SealedSegment(long day, Path logFile, FileChannel log, MappedByteBuffer index, PersonalCodeCipher cipher,
+                          int idEntries, int codeEntries) {
+        this.day = day;
+        this.logFile = logFile;
+        this.log = log;
+        this.index = index;
+        this.cipher = cipher;
+        this.idEntries = idEntries;
+        this.codeEntries = codeEntries;
+    }
+
+    /**
+     * @throws IOException If the files can not be read or the index file is damaged
+     */
+    static SealedSegment open(long day, Path logFile, Path indexFile, PersonalCodeCipher cipher) throws IOException {
+        MappedByteBuffer index;
+        try (FileChannel channel = FileChannel.open(indexFile)) {
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (index.capacity() < HEADER_BYTES || index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new IOException("Invalid index file " + indexFile);
+        }
+        int idEntries = index.getInt(8);
+        int codeEntries = index.getInt(12);
+        if (index.capacity() != HEADER_BYTES + (long) (idEntries + codeEntries) * ENTRY_BYTES) {
+            throw new IOException("Invalid index file " + indexFile);
+        }
+        return new SealedSegment(day, logFile, FileChannel.open(logFile), index, cipher, idEntries, codeEntries);
+    }
+
+    /**
+     * Writes the indexes of a segment, replacing the index file atomically once it is complete.
+     */
+    static void writeIndex(Path indexFile, Map<Long, long[]> byId, Map<Long, long[]> byPersonalCode, int records)
+            throws IOException {
+        int codeEntries = byPersonalCode.values().stream().mapToInt(offsets -> offsets.length).sum();
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(records);
+            out.writeInt(codeEntries);
+            writeEntries(out, byId);
+            writeEntries(out, byPersonalCode);
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public long day() {
+        return day;
+    }
+
+    @Override
+    public StoredDecision find(String applicationId, long key) throws IOException {
+        for (int i = lowerBound(HEADER_BYTES, idEntries, key); i < idEntries; i++) {
+            int entry = HEADER_BYTES + i * ENTRY_BYTES;
+            if (index.getLong(entry) != key) {
+                break;
+            }
+            StoredDecision decision = read(index.getLong(entry + 8));
+            if (decision.applicationId().equals(applicationId)) {
+                return decision;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<StoredDecision> findByPersonalCode(long codeKey) throws IOException {
+        int start = HEADER_BYTES + idEntries * ENTRY_BYTES;
+        int first = lowerBound(start, codeEntries, codeKey);
+        int end = first;
+        while (end < codeEntries && index.getLong(start + end * ENTRY_BYTES) == codeKey) {
+            end++;
+        }
+        List<StoredDecision> decisions = new ArrayList<>(end - first);
+        for (int i = end - 1; i >= first; i--) {
+            decisions.add(read(index.getLong(start + i * ENTRY_BYTES + 8)));
+        }
+        return decisions;
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * @return Position of the first entry whose key is not less than the key
+     */
+    private int lowerBound(int start, int entries, long key) {
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (index.getLong(start + middle * ENTRY_BYTES) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private StoredDecision read(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(DecisionCodec.HEADER_BYTES);
+        readFully(header, offset);
+        ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+        readFully(payload, offset + DecisionCodec.HEADER_BYTES);
+        return DecisionCodec.decode(payload.array(), cipher);
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of " + logFile);
+            }
+        }
+    }
+
+    private static void writeEntries(DataOutputStream out, Map<Long, long[]> index) throws IOException {
+        long[] keys = index.keySet().stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(keys);
+        for (long key : keys) {
+            for (long offset : index.get(key)) {
+                out.writeLong(key);
+                out.writeLong(offset);
+            }
+        }
+    }
+}
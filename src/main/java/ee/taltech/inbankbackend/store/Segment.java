@@ -0,0 +1,33 @@
+package ee.taltech.inbankbackend.store;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The decisions of one day, kept in a log file.
+ */
+interface Segment {
+
+    /**
+     * @return Day of the segment, counted from the epoch
+     */
+    long day();
+
+    /**
+     * @param applicationId Id of the loan application
+     * @param key Key of the id from {@link ee.taltech.inbankbackend.util.ApplicationIds#key(String)}
+     * @return The decision, or null if it is not in this segment
+     */
+    StoredDecision find(String applicationId, long key) throws IOException;
+
+    /**
+     * @param codeKey Key of the personal ID code from {@link PersonalCodeCipher#indexKey(String)}
+     * @return The decisions indexed under the key in this segment, newest first
+     */
+    List<StoredDecision> findByPersonalCode(long codeKey) throws IOException;
+
+    /**
+     * Releases the files of the segment.
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,27 @@
+package ee.taltech.inbankbackend.store;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A loan decision as it was answered to the customer or partner.
+ *
+ * @param applicationId Id of the loan application
+ * @param decidedAt Time of the decision
+ * @param personalCode Personal ID code given in the application
+ * @param countryCode Country given in the application
+ * @param requestedLoanAmount Requested loan amount
+ * @param requestedLoanPeriod Requested loan period
+ * @param status HTTP status of the decision
+ * @param loanAmount Approved loan amount, or null if no loan was approved
+ * @param loanPeriod Approved loan period, or null if no loan was approved
+ * @param errorMessage Error message, if any
+ * @param annualInterestRate Nominal annual interest rate of the approved loan
+ * @param monthlyPayment Monthly payment of the approved loan
+ * @param apr Annual percentage rate of the approved loan
+ */
+public record StoredDecision(String applicationId, Instant decidedAt, String personalCode, String countryCode,
+                             Long requestedLoanAmount, int requestedLoanPeriod, int status, Integer loanAmount,
+                             Integer loanPeriod, String errorMessage, BigDecimal annualInterestRate,
+                             BigDecimal monthlyPayment, BigDecimal apr) {
+}
@@ -0,0 +1,63 @@
+package ee.taltech.inbankbackend.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Identifiers of loan applications. They are version 7 UUIDs, which start with the time they were created at,
+ * so the time of an application can be read from its id without looking it up.
+ */
+public final class ApplicationIds {
+
+    private ApplicationIds() {
+    }
+
+    /**
+     * @param epochMillis Time the application was made at
+     * @return New random id carrying the time
+     */
+    public static String next(long epochMillis) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = epochMillis << 16 | 0x7000 | random.nextInt(1 << 12);
+        long leastSigBits = random.nextLong() >>> 2 | Long.MIN_VALUE;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    /**
+     * @param id Application id
+     * @return Time the application was made at, or -1 if the id does not carry one
+     */
+    public static long timestamp(String id) {
+        UUID uuid = parse(id);
+        return uuid == null || uuid.version() != 7 ? -1 : uuid.getMostSignificantBits() >>> 16;
+    }
+
+    /**
+     * Hashes an id into a long for primitive indexes. Different ids may get the same key.
+     *
+     * @param id Application id
+     * @return Well-mixed 64-bit hash of the id
+     */
+    public static long key(String id) {
+        UUID uuid = parse(id);
+        if (uuid != null) {
+            return PersonalCodes.hash(uuid.getMostSignificantBits()) ^ uuid.getLeastSignificantBits();
+        }
+        long hash = 0;
+        for (int i = 0; i < id.length(); i++) {
+            hash = hash * 31 + id.charAt(i);
+        }
+        return PersonalCodes.hash(hash);
+    }
+
+    private static UUID parse(String id) {
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
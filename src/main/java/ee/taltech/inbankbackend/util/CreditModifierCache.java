@@ -0,0 +1,53 @@
+package ee.taltech.inbankbackend.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Direct-mapped, lossy cache of credit modifiers by packed personal code. A packed code (at most 37 bits for
+ * 11 digits) and its modifier are stored together in a single long, so an entry is written and read atomically
+ * without locks. A colliding code simply replaces the previous entry.
+ */
+public class CreditModifierCache {
+
+    private static final int VALUE_BITS = 27;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+    private static final long MAX_KEY = (1L << (Long.SIZE - VALUE_BITS)) - 1;
+
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    public CreditModifierCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        this.entries = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return Cached modifier of the code, or -1 if it is not cached
+     */
+    public int get(long packedCode) {
+        long entry = entries.get(index(packedCode));
+        return entry != 0 && entry >>> VALUE_BITS == packedCode ? (int) (entry & VALUE_MASK) : -1;
+    }
+
+    public void put(long packedCode, int creditModifier) {
+        if (packedCode <= 0 || packedCode > MAX_KEY || creditModifier < 0 || creditModifier > VALUE_MASK) {
+            return;
+        }
+        entries.lazySet(index(packedCode), packedCode << VALUE_BITS | creditModifier);
+    }
+
+    /**
+     * Drops every entry, for example when the model that calculated them has changed. A put racing with the
+     * clear may survive it.
+     */
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, 0);
+        }
+    }
+
+    private int index(long packedCode) {
+        return (int) PersonalCodes.hash(packedCode) & mask;
+    }
+}
@@ -0,0 +1,50 @@
+package ee.taltech.inbankbackend.util;
+
+/**
+ * Helpers for storing personal ID codes in primitive structures.
+ */
+public final class PersonalCodes {
+
+    private static final int MAX_DIGITS = 18;
+
+    private PersonalCodes() {
+    }
+
+    /**
+     * Packs a numeric personal ID code into a long without allocating.
+     * Baltic personal ID codes have 11 digits and never start with 0, so a packed code is always positive.
+     *
+     * @param personalCode Personal ID code consisting of digits only
+     * @return The code as a positive long, or -1 if it is not a number of at most 18 digits
+     */
+    public static long pack(String personalCode) {
+        if (personalCode == null || personalCode.isEmpty() || personalCode.length() > MAX_DIGITS) {
+            return -1;
+        }
+        long packed = 0;
+        for (int i = 0; i < personalCode.length(); i++) {
+            char digit = personalCode.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            packed = packed * 10 + (digit - '0');
+        }
+        return packed == 0 ? -1 : packed;
+    }
+
+    /**
+     * Spreads the bits of a packed code, so that consecutive codes end up in different buckets.
+     *
+     * @param packedCode Packed personal ID code
+     * @return Well-mixed 64-bit hash of the code
+     */
+    public static long hash(long packedCode) {
+        long hash = packedCode;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
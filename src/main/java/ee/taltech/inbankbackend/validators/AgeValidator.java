@@ -9,6 +9,16 @@ import java.time.Period;
 public class AgeValidator{
 
     public static Boolean isAgeValid(String personalCode,String countryCode) throws InvalidAgeException {
+        return isAgeValid(personalCode, countryCode, DecisionEngineConstants.MAX_LOAN_PERIOD_IN_YEARS);
+    }
+
+    /**
+     * Checks that the customer is an adult and is expected to outlive a loan of the given length.
+     *
+     * @param maxLoanPeriodInYears Longest loan period the customer may get, in whole years rounded up
+     */
+    public static Boolean isAgeValid(String personalCode, String countryCode, int maxLoanPeriodInYears)
+            throws InvalidAgeException {
 
         int age = getAge(personalCode);
         LocalDate birthDate = getBirthDate(personalCode);
@@ -19,17 +29,17 @@ public class AgeValidator{
         if (age <18 ){
             return false;
         }
-        return isAgeWithinCountryLifeExpectancy(countryCode, age);
+        return isAgeWithinCountryLifeExpectancy(countryCode, age, maxLoanPeriodInYears);
     }
 
-    private static Boolean isAgeWithinCountryLifeExpectancy(String countryCode, int age) {
+    private static Boolean isAgeWithinCountryLifeExpectancy(String countryCode, int age, int maxLoanPeriodInYears) {
         return switch (countryCode) {
             case "EE" ->
-                    (DecisionEngineConstants.LIFE_EXPECTANCY_EST - DecisionEngineConstants.MAX_LOAN_PERIOD_IN_YEARS) > age;
+                    (DecisionEngineConstants.LIFE_EXPECTANCY_EST - maxLoanPeriodInYears) > age;
             case "LV" ->
-                    (DecisionEngineConstants.LIFE_EXPECTANCY_LV - DecisionEngineConstants.MAX_LOAN_PERIOD_IN_YEARS) > age;
+                    (DecisionEngineConstants.LIFE_EXPECTANCY_LV - maxLoanPeriodInYears) > age;
             case "LT" ->
-                    (DecisionEngineConstants.LIFE_EXPECTANCY_LT - DecisionEngineConstants.MAX_LOAN_PERIOD_IN_YEARS) > age;
+                    (DecisionEngineConstants.LIFE_EXPECTANCY_LT - maxLoanPeriodInYears) > age;
             default -> false; // since we are implementing only the baltic scope
         };
     }
@@ -1,11 +1,22 @@
 package ee.taltech.inbankbackend.validators;
 
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
 import ee.taltech.inbankbackend.exceptions.InvalidAgeException;
+import ee.taltech.inbankbackend.exceptions.InvalidIncomeException;
 import ee.taltech.inbankbackend.exceptions.InvalidLoanAmountException;
 import ee.taltech.inbankbackend.exceptions.InvalidLoanPeriodException;
 import ee.taltech.inbankbackend.exceptions.InvalidPersonalCodeException;
+import ee.taltech.inbankbackend.exceptions.NoValidLoanException;
 
 public interface InputValidator {
     void verifyInputs(String personalCode, Long loanAmount, int loanPeriod, String countryCode)
-            throws InvalidPersonalCodeException, InvalidLoanAmountException, InvalidLoanPeriodException, InvalidAgeException;
+            throws InvalidPersonalCodeException, InvalidLoanAmountException, InvalidLoanPeriodException,
+            InvalidAgeException, InvalidIncomeException, NoValidLoanException;
+
+    default void verifyApplication(LoanApplication application)
+            throws InvalidPersonalCodeException, InvalidLoanAmountException, InvalidLoanPeriodException,
+            InvalidAgeException, InvalidIncomeException, NoValidLoanException {
+        verifyInputs(application.getPersonalCode(), application.getLoanAmount(), application.getLoanPeriod(),
+                application.getCountryCode());
+    }
 }
@@ -3,7 +3,7 @@ package ee.taltech.inbankbackend;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "decisions.store-key=MDEyMzQ1Njc4OWFiY2RlZg==")
 class InbankBackendApplicationTests {
 
     @Test
@@ -0,0 +1,135 @@
+package ee.taltech.inbankbackend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the native executable next to the JVM build and checks that both return the same decisions.
+ * Application ids differ between every response, so they are left out of the comparison, and each instance
+ * writes its decisions to a temporary store of its own.
+ * Run with {@code gradle nativeSmokeTest}, which builds the executable and passes its path in native.binary.
+ */
+@Tag("native")
+@EnabledIfSystemProperty(named = "native.binary", matches = ".+")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        NativeImageSmokeTest.RATE_LIMIT, NativeImageSmokeTest.BURST, NativeImageSmokeTest.MAX_APPLICATIONS,
+        NativeImageSmokeTest.STORE_KEY})
+class NativeImageSmokeTest {
+
+    static final String RATE_LIMIT = "admission.rate-limit.requests-per-second=100000";
+    static final String BURST = "admission.rate-limit.burst=100000";
+    // Every personal code is sent many times, far more than the 5 applications a day allowed by default
+    static final String MAX_APPLICATIONS = "history.max-applications=100000";
+    static final String STORE_KEY = "decisions.store-key=MDEyMzQ1Njc4OWFiY2RlZg==";
+
+    private static final String[] PERSONAL_CODES = {
+            "37605030299", "50307172740", "38411266610", "35006069515",
+            "12345678901", "33103236020", "61308269999"
+    };
+    private static final String[] COUNTRY_CODES = {"EE", "LV", "LT"};
+    private static final long[] LOAN_AMOUNTS = {1999, 2000, 4000, 10000, 10001};
+    private static final int[] LOAN_PERIODS = {11, 12, 36, 60};
+
+    @LocalServerPort
+    private int jvmPort;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Process nativeProcess;
+    private int nativePort;
+
+    @DynamicPropertySource
+    static void jvmStoreDirectory(DynamicPropertyRegistry registry) throws IOException {
+        String directory = Files.createTempDirectory("inbank-jvm-store").toString();
+        registry.add("decisions.store-dir", () -> directory);
+    }
+
+    @BeforeEach
+    void startNativeBinary() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            nativePort = socket.getLocalPort();
+        }
+        Path nativeStore = Files.createTempDirectory("inbank-native-store");
+        nativeProcess = new ProcessBuilder(System.getProperty("native.binary"), "--server.port=" + nativePort,
+                "--" + RATE_LIMIT, "--" + BURST, "--" + MAX_APPLICATIONS, "--" + STORE_KEY,
+                "--decisions.store-dir=" + nativeStore)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (true) {
+            assertTrue(nativeProcess.isAlive(), "Native executable exited during startup");
+            assertTrue(System.nanoTime() < deadline, "Native executable did not start in time");
+            try {
+                decide(nativePort, PERSONAL_CODES[0], COUNTRY_CODES[0], LOAN_AMOUNTS[0], LOAN_PERIODS[0]);
+                return;
+            } catch (ConnectException e) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @AfterEach
+    void stopNativeBinary() throws InterruptedException {
+        nativeProcess.destroy();
+        nativeProcess.waitFor(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testNativeAndJvmDecisionsMatch() throws Exception {
+        for (String personalCode : PERSONAL_CODES) {
+            for (String countryCode : COUNTRY_CODES) {
+                for (long loanAmount : LOAN_AMOUNTS) {
+                    for (int loanPeriod : LOAN_PERIODS) {
+                        String jvm = decide(jvmPort, personalCode, countryCode, loanAmount, loanPeriod);
+                        String nativeImage = decide(nativePort, personalCode, countryCode, loanAmount, loanPeriod);
+                        assertEquals(jvm, nativeImage,
+                                personalCode + " " + countryCode + " " + loanAmount + " " + loanPeriod);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Status code and body of the decision response without the application id
+     */
+    private String decide(int port, String personalCode, String countryCode, long loanAmount, int loanPeriod)
+            throws IOException, InterruptedException {
+        String body = "{\"personalCode\":\"" + personalCode + "\",\"loanAmount\":" + loanAmount
+                + ",\"loanPeriod\":" + loanPeriod + ",\"countryCode\":\"" + countryCode + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/loan/decision"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        ObjectNode decision = (ObjectNode) objectMapper.readTree(response.body());
+        assertFalse(decision.path("applicationId").asText().isEmpty(), "Decision without an application id");
+        decision.remove("applicationId");
+        return response.statusCode() + " " + decision;
+    }
+}
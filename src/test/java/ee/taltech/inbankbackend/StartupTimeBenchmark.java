@@ -0,0 +1,158 @@
+package ee.taltech.inbankbackend;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures startup time and time-to-first-decision of a fresh JVM, as started by {@code bootRun} and by
+ * {@code bootRunFast}, and checks that the fast startup is faster. Every run starts a new process, so classes
+ * loaded by other tests do not skew the results.
+ * <br><br>
+ * Both variants run on the AOT classpath, because the class data sharing archive only matches the classpath it
+ * was recorded with. The baseline uses the default profile without AOT or the archive; the fast startup adds
+ * spring.aot.enabled, the fast-startup profile and the archive. Run with {@code gradle benchmark}, which records
+ * the archive and passes the classpath in startup.classpath and the archive in startup.cds-archive.
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "startup.classpath", matches = ".+")
+class StartupTimeBenchmark {
+
+    private static final int RUNS = 5;
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+    private static final Pattern STARTED = Pattern.compile("Started InbankBackendApplication in ([0-9.]+) seconds");
+    private static final String REQUEST_BODY =
+            "{\"personalCode\":\"50307172740\",\"loanAmount\":4000,\"loanPeriod\":12,\"countryCode\":\"EE\"}";
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void testFastStartupIsFaster() throws Exception {
+        Path archive = Path.of(System.getProperty("startup.cds-archive"));
+        assertTrue(Files.isRegularFile(archive), "No class data sharing archive at " + archive);
+
+        long baseline = measure("default", List.of(), "default");
+        long fast = measure("fast", List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true"),
+                "fast-startup");
+
+        System.out.printf("Fast startup: first decision %d ms sooner than the default (%d%%)%n",
+                baseline - fast, 100 * (baseline - fast) / baseline);
+        assertTrue(fast < baseline, "Fast startup took " + fast + " ms, the default " + baseline + " ms");
+    }
+
+    /**
+     * @return Median milliseconds to the first decision
+     */
+    private long measure(String name, List<String> jvmArgs, String profile) throws Exception {
+        List<Long> timesToFirstDecision = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            timesToFirstDecision.add(timeToFirstDecision(name, jvmArgs, profile));
+        }
+        timesToFirstDecision.sort(null);
+        long median = timesToFirstDecision.get(RUNS / 2);
+        System.out.printf("%s: time to first decision min %d ms, median %d ms over %d runs%n",
+                name, timesToFirstDecision.get(0), median, RUNS);
+        return median;
+    }
+
+    /**
+     * Starts the application in a new JVM and sends decision requests until the first one is answered.
+     *
+     * @return Milliseconds from launching the process until the first decision was received
+     */
+    private long timeToFirstDecision(String name, List<String> jvmArgs, String profile) throws Exception {
+        int port = findFreePort();
+        Path store = Files.createTempDirectory("inbank-startup-store");
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-cp", System.getProperty("startup.classpath"),
+                InbankBackendApplication.class.getName(), "--server.port=" + port,
+                "--spring.profiles.active=" + profile, "--decisions.store-dir=" + store,
+                "--decisions.store-key=MDEyMzQ1Njc4OWFiY2RlZg=="));
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .start();
+        long launched = System.nanoTime();
+        try {
+            StartupLogReader log = new StartupLogReader(process);
+            log.start();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/loan/decision"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(REQUEST_BODY))
+                    .build();
+            while (true) {
+                assertTrue(System.nanoTime() - launched < TIMEOUT.toNanos(), "Application did not start in time");
+                assertTrue(process.isAlive(), "Application exited during startup");
+                try {
+                    HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+                    assertEquals(200, response.statusCode());
+                    System.out.printf("%s: started in %s s, first decision after %d ms%n",
+                            name, log.startedIn, elapsed);
+                    return elapsed;
+                } catch (ConnectException e) {
+                    Thread.sleep(10);
+                }
+            }
+        } finally {
+            process.destroy();
+            process.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Drains the output of the application and picks up the startup time reported by Spring Boot.
+     */
+    private static class StartupLogReader extends Thread {
+        private final Process process;
+        private volatile String startedIn = "?";
+
+        StartupLogReader(Process process) {
+            this.process = process;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Matcher matcher = STARTED.matcher(line);
+                    if (matcher.find()) {
+                        startedIn = matcher.group(1);
+                    }
+                }
+            } catch (IOException ignored) {
+                // The process was stopped
+            }
+        }
+    }
+}
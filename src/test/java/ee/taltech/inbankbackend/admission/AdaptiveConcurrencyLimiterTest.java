@@ -0,0 +1,153 @@
+package ee.taltech.inbankbackend.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a simulated decision engine with a fixed capacity well past that capacity and checks that
+ * the adaptive limiter keeps the tail latency of admitted requests bounded.
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final int CAPACITY = 4;
+    private static final int CLIENTS = 48;
+    private static final long SERVICE_TIME_MILLIS = 2;
+    private static final long TARGET_LATENCY_MILLIS = 10;
+    private static final long WARM_UP_MILLIS = 500;
+    private static final long RUN_MILLIS = 1500;
+
+    @Test
+    void testLimitGrowsWhileLatencyIsBelowTarget() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(4);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            assertTrue(limiter.tryAcquire());
+            assertTrue(limiter.tryAcquire());
+            limiter.release(0);
+            limiter.release(0);
+            limiter.release(0);
+        }
+
+        assertTrue(limiter.getLimit() > 4);
+    }
+
+    @Test
+    void testRequestsOverLimitAreRejected() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyExceedsTarget() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(32);
+        long slow = TimeUnit.MILLISECONDS.toNanos(TARGET_LATENCY_MILLIS * 2);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+            Thread.sleep(TARGET_LATENCY_MILLIS + 1);
+            limiter.release(slow);
+        }
+
+        assertTrue(limiter.getLimit() < 32);
+    }
+
+    @Test
+    void testTailLatencyStaysBoundedUnderOverload() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(CLIENTS);
+        LatencyRecorder unprotected = drive(null);
+        LatencyRecorder protectedByLimiter = drive(limiter);
+
+        long unprotectedP99 = unprotected.percentile(0.99);
+        long protectedP99 = protectedByLimiter.percentile(0.99);
+
+        assertTrue(unprotectedP99 > TimeUnit.MILLISECONDS.toNanos(TARGET_LATENCY_MILLIS * 2),
+                "Offered load should exceed the capacity of the simulated engine");
+        assertTrue(protectedP99 < TimeUnit.MILLISECONDS.toNanos(TARGET_LATENCY_MILLIS * 2),
+                () -> "p99 of admitted requests was " + TimeUnit.NANOSECONDS.toMillis(protectedP99) + " ms");
+        assertTrue(protectedByLimiter.rejected.get() > 0);
+        assertTrue(limiter.getLimit() < CLIENTS);
+    }
+
+    private static AdaptiveConcurrencyLimiter newLimiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, 1, 256, TARGET_LATENCY_MILLIS, 0.9,
+                new SimpleMeterRegistry());
+    }
+
+    /**
+     * Offers closed-loop load from many clients to an engine that can only work on {@link #CAPACITY}
+     * requests at a time, optionally behind the given limiter.
+     */
+    private static LatencyRecorder drive(AdaptiveConcurrencyLimiter limiter) throws Exception {
+        Semaphore engine = new Semaphore(CAPACITY, true);
+        LatencyRecorder recorder = new LatencyRecorder();
+        long warmUpEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WARM_UP_MILLIS);
+        long end = warmUpEnd + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        if (limiter != null && !limiter.tryAcquire()) {
+                            recorder.rejected.incrementAndGet();
+                            Thread.sleep(1);
+                            continue;
+                        }
+                        long start = System.nanoTime();
+                        engine.acquire();
+                        try {
+                            Thread.sleep(SERVICE_TIME_MILLIS);
+                        } finally {
+                            engine.release();
+                        }
+                        long latency = System.nanoTime() - start;
+                        if (limiter != null) {
+                            limiter.release(latency);
+                        }
+                        if (start > warmUpEnd) {
+                            recorder.record(latency);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        return recorder;
+    }
+
+    private static class LatencyRecorder {
+        private final List<Long> latencies = new ArrayList<>();
+        private final AtomicLong rejected = new AtomicLong();
+
+        synchronized void record(long latencyNanos) {
+            latencies.add(latencyNanos);
+        }
+
+        synchronized long percentile(double percentile) {
+            List<Long> sorted = new ArrayList<>(latencies);
+            sorted.sort(null);
+            return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1));
+        }
+    }
+}
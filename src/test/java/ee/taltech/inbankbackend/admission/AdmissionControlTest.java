@@ -0,0 +1,174 @@
+package ee.taltech.inbankbackend.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void testBurstIsAdmittedAndThenLimited() {
+        ClientRateLimiter limiter = new ClientRateLimiter(10, 5, 100, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("partner", 0));
+        }
+        assertFalse(limiter.tryAcquire("partner", 0));
+    }
+
+    @Test
+    void testTokensAreRefilledOverTime() {
+        ClientRateLimiter limiter = new ClientRateLimiter(10, 1, 100, new SimpleMeterRegistry());
+
+        assertTrue(limiter.tryAcquire("partner", 0));
+        assertFalse(limiter.tryAcquire("partner", SECOND / 20));
+        assertTrue(limiter.tryAcquire("partner", SECOND / 10));
+    }
+
+    @Test
+    void testClientsHaveSeparateBuckets() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 100, new SimpleMeterRegistry());
+
+        assertTrue(limiter.tryAcquire("partner", 0));
+        assertFalse(limiter.tryAcquire("partner", 0));
+        assertTrue(limiter.tryAcquire("web", 0));
+    }
+
+    @Test
+    void testIdleBucketsAreEvictedWithoutLosingLimits() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 1, new SimpleMeterRegistry());
+
+        assertTrue(limiter.tryAcquire("partner", 0));
+        assertTrue(limiter.tryAcquire("web", 2 * SECOND));
+        assertTrue(limiter.tryAcquire("partner", 2 * SECOND));
+        assertFalse(limiter.tryAcquire("partner", 2 * SECOND));
+    }
+
+    @Test
+    void testLeastRecentlyUsedBucketIsEvicted() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 2, new SimpleMeterRegistry());
+
+        assertTrue(limiter.tryAcquire("partner", 0));
+        assertTrue(limiter.tryAcquire("web", 0));
+        assertFalse(limiter.tryAcquire("partner", 0));
+        assertTrue(limiter.tryAcquire("mobile", 0));
+
+        assertEquals(2, limiter.size());
+        assertFalse(limiter.tryAcquire("partner", 0));
+        assertTrue(limiter.tryAcquire("web", 0));
+    }
+
+    @Test
+    void testBucketsAreBoundedAcrossStripes() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 1024, new SimpleMeterRegistry());
+
+        assertTrue(limiter.tryAcquire("partner", 0));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire("client-" + i, 0));
+        }
+        assertFalse(limiter.tryAcquire("partner", 0));
+        for (int i = 100; i < 5000; i++) {
+            limiter.tryAcquire("client-" + i, 0);
+        }
+        assertTrue(limiter.size() <= 1024);
+        assertTrue(limiter.size() > 900);
+    }
+
+    @Test
+    void testClientIdHeaderIsOnlyTrustedFromProxies() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionControlFilter filter = new AdmissionControlFilter(new ClientRateLimiter(1, 1, 100, registry),
+                new DefaultConcurrencyLimiter(1, 0, 0, registry), new ObjectMapper(), registry, "X-Client-Id",
+                Set.of("10.0.0.1"));
+
+        MockHttpServletRequest direct = new MockHttpServletRequest("POST", "/loan/decision");
+        direct.setRemoteAddr("192.0.2.7");
+        direct.addHeader("X-Client-Id", "someone-else");
+        assertEquals("192.0.2.7", filter.getClientId(direct));
+
+        MockHttpServletRequest proxied = new MockHttpServletRequest("POST", "/loan/decision");
+        proxied.setRemoteAddr("10.0.0.1");
+        proxied.addHeader("X-Client-Id", "partner");
+        assertEquals("partner", filter.getClientId(proxied));
+
+        proxied = new MockHttpServletRequest("POST", "/loan/decision");
+        proxied.setRemoteAddr("10.0.0.1");
+        assertEquals("10.0.0.1", filter.getClientId(proxied));
+    }
+
+    @Test
+    void testConcurrencyLimiterShedsAfterQueueTime() throws Exception {
+        DefaultConcurrencyLimiter limiter = new DefaultConcurrencyLimiter(1, 20, 10, new SimpleMeterRegistry());
+
+        assertTrue(limiter.tryAcquire());
+        long start = System.nanoTime();
+        assertFalse(limiter.tryAcquire());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+
+        limiter.release(0);
+        assertTrue(limiter.tryAcquire());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    void testConcurrencyLimiterRejectsWhenQueueIsFull() throws Exception {
+        DefaultConcurrencyLimiter limiter = new DefaultConcurrencyLimiter(1, 1000, 1, new SimpleMeterRegistry());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch waiting = new CountDownLatch(1);
+        try {
+            assertTrue(limiter.tryAcquire());
+            Future<Boolean> queued = executor.submit(() -> {
+                waiting.countDown();
+                return limiter.tryAcquire();
+            });
+            waiting.await();
+            Thread.sleep(50);
+
+            assertFalse(limiter.tryAcquire());
+
+            limiter.release(0);
+            assertTrue(queued.get(1, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testOnlyDecisionRequestsAreAdmissionControlled() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionControlFilter filter = new AdmissionControlFilter(new ClientRateLimiter(1, 1, 100, registry),
+                new DefaultConcurrencyLimiter(1, 0, 0, registry), new ObjectMapper(), registry, "X-Client-Id", Set.of());
+
+        assertFalse(filter.shouldNotFilter(new MockHttpServletRequest("POST", "/loan/decision")));
+        assertFalse(filter.shouldNotFilter(new MockHttpServletRequest("POST", "/loan/decision/async")));
+        assertTrue(filter.shouldNotFilter(new MockHttpServletRequest("POST", "/admin/decisions/search")));
+        assertTrue(filter.shouldNotFilter(new MockHttpServletRequest("GET", "/admin/decisions/0123456789abcdef")));
+        assertTrue(filter.shouldNotFilter(new MockHttpServletRequest("GET", "/loan/schedule")));
+    }
+
+    @Test
+    void testEncodedAndParameterizedDecisionPathsAreAdmissionControlled() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionControlFilter filter = new AdmissionControlFilter(new ClientRateLimiter(1, 1, 100, registry),
+                new DefaultConcurrencyLimiter(1, 0, 0, registry), new ObjectMapper(), registry, "X-Client-Id", Set.of());
+
+        assertFalse(filter.shouldNotFilter(new MockHttpServletRequest("POST", "/loan/decision;x")));
+        assertFalse(filter.shouldNotFilter(new MockHttpServletRequest("POST", "/loan;x=1/decision/async")));
+        assertFalse(filter.shouldNotFilter(new MockHttpServletRequest("POST", "/loan/%64ecision")));
+        assertFalse(filter.shouldNotFilter(new MockHttpServletRequest("POST", "//loan/decision")));
+    }
+}
@@ -0,0 +1,82 @@
+package ee.taltech.inbankbackend.blacklist;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures memory per entry and lookup cost of the blacklist, and compares its memory with a HashSet of strings.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class BlacklistBenchmark {
+
+    private static final int ENTRIES = 1_000_000;
+    private static final int LOOKUPS = 1_000_000;
+    private static final int ROUNDS = 10;
+
+    @Test
+    void testMemoryAndLookupCost() {
+        long[] codes = BlacklistServiceTest.randomCodes(new Random(1), ENTRIES);
+        long[] misses = BlacklistServiceTest.randomCodes(new Random(2), LOOKUPS);
+        long[] hits = Arrays.copyOf(codes, LOOKUPS);
+
+        for (boolean offHeap : new boolean[]{false, true}) {
+            Blacklist blacklist = BlacklistServiceTest.blacklist(codes, offHeap);
+            System.out.printf("Blacklist (%s) of %d codes: filter %.2f bytes per entry, %.2f bytes per entry in total%n",
+                    offHeap ? "off-heap" : "heap", blacklist.size(),
+                    (double) blacklist.filterSizeInBytes() / blacklist.size(),
+                    (double) blacklist.sizeInBytes() / blacklist.size());
+            System.out.printf("  lookup of a code not on the list %.1f ns, of a blacklisted code %.1f ns%n",
+                    lookupNanos(blacklist, misses), lookupNanos(blacklist, hits));
+        }
+
+        long before = usedMemory();
+        Set<String> hashSet = new HashSet<>();
+        for (long code : codes) {
+            hashSet.add(Long.toString(code));
+        }
+        long hashSetBytes = usedMemory() - before;
+        System.out.printf("HashSet<String> of %d codes: about %.1f bytes per entry%n",
+                hashSet.size(), (double) hashSetBytes / hashSet.size());
+        assertTrue(hashSet.size() > 0);
+    }
+
+    private static double lookupNanos(Blacklist blacklist, long[] codes) {
+        long found = 0;
+        for (int round = 0; round < 3; round++) {
+            found += lookups(blacklist, codes);
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            found += lookups(blacklist, codes);
+        }
+        double nanos = (System.nanoTime() - start) / (double) ((long) ROUNDS * codes.length);
+        assertTrue(found >= 0);
+        return nanos;
+    }
+
+    private static long lookups(Blacklist blacklist, long[] codes) {
+        long found = 0;
+        for (long code : codes) {
+            if (blacklist.mightContain(code) && blacklist.contains(code)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static long usedMemory() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,132 @@
+package ee.taltech.inbankbackend.blacklist;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlacklistServiceTest {
+
+    private static final int ENTRIES = 100_000;
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testNoFalseNegatives() {
+        long[] codes = randomCodes(new Random(1), ENTRIES);
+        Blacklist blacklist = blacklist(codes, false);
+
+        assertEquals(ENTRIES, blacklist.size());
+        for (long code : codes) {
+            assertTrue(blacklist.mightContain(code));
+            assertTrue(blacklist.contains(code));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRate() {
+        Blacklist blacklist = blacklist(randomCodes(new Random(1), ENTRIES), true);
+
+        int falsePositives = 0;
+        for (long code : randomCodes(new Random(2), ENTRIES)) {
+            if (blacklist.mightContain(code) && !blacklist.contains(code)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < ENTRIES * 0.015, "false positives " + falsePositives);
+    }
+
+    @Test
+    void testOffHeapMatchesHeap() {
+        long[] codes = randomCodes(new Random(3), 1000);
+        Blacklist heap = blacklist(codes, false);
+        Blacklist offHeap = blacklist(codes, true);
+
+        for (long code : randomCodes(new Random(4), 10_000)) {
+            assertEquals(heap.mightContain(code), offHeap.mightContain(code));
+            assertEquals(heap.contains(code), offHeap.contains(code));
+        }
+        assertEquals(heap.sizeInBytes(), offHeap.sizeInBytes());
+    }
+
+    @Test
+    void testIsBlacklisted() {
+        BlacklistService service = new BlacklistService(
+                Blacklist.of(List.of("38411266610", "50307172740"), 0.01, false), registry);
+
+        assertTrue(service.isBlacklisted("38411266610"));
+        assertFalse(service.isBlacklisted("37605030299"));
+        assertFalse(service.isBlacklisted("not a code"));
+        assertEquals(1, registry.get("loan.blacklist.checks").tag("outcome", "blocked").counter().count());
+        assertEquals(2, registry.get("loan.blacklist.entries").gauge().value());
+    }
+
+    @Test
+    void testNullAndBlankCodesAreSkipped() {
+        Blacklist blacklist = Blacklist.of(Arrays.asList("38411266610", null, "", "   ", " 50307172740 "), 0.01, false);
+
+        assertEquals(2, blacklist.size());
+        assertTrue(blacklist.contains(50307172740L));
+    }
+
+    @Test
+    void testLoadAndReload(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("blacklist.txt");
+        Files.writeString(path, "# fraud\n38411266610\n\n50307172740\n38411266610\n");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(1_000_000));
+        BlacklistService service = new BlacklistService(path.toString(), 0.01, true, registry);
+
+        assertTrue(service.isBlacklisted("38411266610"));
+        assertEquals(2, registry.get("loan.blacklist.entries").gauge().value());
+
+        Files.writeString(path, "38411266610\nnot a code\n");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(2_000_000));
+        service.reload();
+        assertTrue(service.isBlacklisted("50307172740"));
+
+        Files.writeString(path, "37605030299\n");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(3_000_000));
+        service.reload();
+        assertTrue(service.isBlacklisted("37605030299"));
+        assertFalse(service.isBlacklisted("38411266610"));
+    }
+
+    @Test
+    void testInvalidFile(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("blacklist.txt");
+        Files.writeString(path, "38411266610\n3841126661O\n");
+        assertThrows(IllegalArgumentException.class, () -> new BlacklistService(path.toString(), 0.01, false, registry));
+    }
+
+    static long[] randomCodes(Random random, int count) {
+        long[] codes = new long[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = 30_000_000_000L + (long) (random.nextDouble() * 40_000_000_000L);
+        }
+        return codes;
+    }
+
+    static Blacklist blacklist(long[] codes, boolean offHeap) {
+        List<String> personalCodes = Arrays.stream(codes).mapToObj(Long::toString).toList();
+        return Blacklist.of(personalCodes, 0.01, offHeap);
+    }
+}
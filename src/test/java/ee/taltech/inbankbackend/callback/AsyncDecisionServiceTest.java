@@ -0,0 +1,411 @@
+package ee.taltech.inbankbackend.callback;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import ee.taltech.inbankbackend.DTOs.AsyncDecisionRequest;
+import ee.taltech.inbankbackend.blacklist.Blacklist;
+import ee.taltech.inbankbackend.blacklist.BlacklistService;
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import ee.taltech.inbankbackend.exceptions.SubmissionQueueFullException;
+import ee.taltech.inbankbackend.history.StripedApplicantHistory;
+import ee.taltech.inbankbackend.product.LoanProducts;
+import ee.taltech.inbankbackend.resilience.CreditModifierGuard;
+import ee.taltech.inbankbackend.resilience.LatencyBudgets;
+import ee.taltech.inbankbackend.rules.AgeRule;
+import ee.taltech.inbankbackend.rules.LoanAmountRule;
+import ee.taltech.inbankbackend.rules.LoanPeriodRule;
+import ee.taltech.inbankbackend.rules.PersonalCodeRule;
+import ee.taltech.inbankbackend.rules.RulePipeline;
+import ee.taltech.inbankbackend.scoring.ScorecardEngine;
+import ee.taltech.inbankbackend.scoring.ScorecardLoader;
+import ee.taltech.inbankbackend.service.DecisionEngine;
+import ee.taltech.inbankbackend.service.DefaultCreditModifierCalculator;
+import ee.taltech.inbankbackend.service.DefaultLoanCalculator;
+import ee.taltech.inbankbackend.service.DefaultPricingEngine;
+import ee.taltech.inbankbackend.shadow.ShadowEvaluator;
+import ee.taltech.inbankbackend.store.PartitionedDecisionStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Submits applications to the asynchronous decision service and receives the callbacks on a local HTTP server.
+ */
+class AsyncDecisionServiceTest {
+
+    private static final String SEGMENT_3_PERSONAL_CODE = "35006069515";
+    private static final String DEBTOR_PERSONAL_CODE = "37605030299";
+    private static final Pattern CALLBACK = Pattern.compile("\\{[^{}]*}");
+    private static final String OUTBOX_KEY = "MDEyMzQ1Njc4OWFiY2RlZg==";
+    private static final SecretKey KEY = new SecretKeySpec(Base64.getDecoder().decode(OUTBOX_KEY), "AES");
+
+    @TempDir
+    Path outboxDir;
+
+    private final List<AsyncDecisionService> services = new ArrayList<>();
+    private final List<PartitionedDecisionStore> stores = new ArrayList<>();
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private HttpServer receiver;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new SimpleMeterRegistry();
+        receiver = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        receiver.createContext("/callback", exchange -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Integer status = statuses.poll();
+            received.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(status == null ? 204 : status, -1);
+            exchange.close();
+        });
+        receiver.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        services.forEach(AsyncDecisionService::stop);
+        for (PartitionedDecisionStore store : stores) {
+            store.destroy();
+        }
+        receiver.stop(0);
+    }
+
+    @Test
+    void testDecisionIsDeliveredToCallbackUrl() throws Exception {
+        AsyncDecisionService service = start(10, 5);
+
+        String approved = service.submit(request(SEGMENT_3_PERSONAL_CODE));
+        String rejected = service.submit(request(DEBTOR_PERSONAL_CODE));
+
+        awaitDelivered(2);
+        String approvedCallback = callback(approved);
+        assertTrue(approvedCallback.contains("\"status\":200"));
+        assertTrue(approvedCallback.contains("\"loanAmount\":10000"));
+        assertTrue(approvedCallback.contains("\"loanPeriod\":12"));
+        String rejectedCallback = callback(rejected);
+        assertTrue(rejectedCallback.contains("\"status\":404"));
+        assertTrue(rejectedCallback.contains("\"errorMessage\":\"No valid loan found!\""));
+    }
+
+    @Test
+    void testDecisionsForSameUrlAreBatched() throws Exception {
+        AsyncDecisionService service = start(10, 5);
+        release = new CountDownLatch(1);
+
+        for (int i = 0; i < 5; i++) {
+            service.submit(request(SEGMENT_3_PERSONAL_CODE));
+        }
+        await(() -> registry.get("loan.callback.queued").gauge().value() == 0);
+        Thread.sleep(100);
+        release.countDown();
+
+        awaitDelivered(5);
+        assertEquals(2, received.size());
+        assertEquals(5, received.stream().mapToLong(body -> CALLBACK.matcher(body).results().count()).sum());
+    }
+
+    @Test
+    void testFailedDeliveryIsRetried() throws Exception {
+        AsyncDecisionService service = start(10, 5);
+        statuses.add(500);
+        statuses.add(503);
+
+        service.submit(request(SEGMENT_3_PERSONAL_CODE));
+
+        awaitDelivered(1);
+        assertEquals(3, received.size());
+        assertEquals(2, registry.get("loan.callback.deliveries").tag("outcome", "retried").counter().count());
+    }
+
+    @Test
+    void testDeliveryIsGivenUpAfterMaxAttempts() throws Exception {
+        AsyncDecisionService service = start(10, 2);
+        statuses.add(500);
+        statuses.add(500);
+
+        service.submit(request(SEGMENT_3_PERSONAL_CODE));
+
+        await(() -> registry.get("loan.callback.deliveries").tag("outcome", "failed").counter().count() == 1);
+        assertEquals(2, received.size());
+        assertEquals(0, registry.get("loan.callback.outbox").gauge().value());
+    }
+
+    @Test
+    void testUndeliveredDecisionIsDeliveredAfterRestart() throws Exception {
+        AsyncDecisionService first = start(60_000, 5);
+        statuses.add(500);
+        String id = first.submit(request(SEGMENT_3_PERSONAL_CODE));
+        await(() -> registry.get("loan.callback.deliveries").tag("outcome", "retried").counter().count() == 1);
+        first.stop();
+
+        registry = new SimpleMeterRegistry();
+        start(10, 5);
+
+        awaitDelivered(1);
+        assertEquals(2, received.size());
+        assertTrue(received.get(1).contains(callback(id)));
+    }
+
+    @Test
+    void testUndecidedSubmissionIsDecidedAfterRestart() throws Exception {
+        try (CallbackOutbox outbox = CallbackOutbox.open(outboxDir, true, KEY)) {
+            outbox.submitted(new Submission("accepted-before-crash", callbackUrl(),
+                    new LoanApplication(SEGMENT_3_PERSONAL_CODE, 4000L, 12, "EE", null, null), null));
+        }
+        Files.writeString(outboxDir.resolve(CallbackOutbox.FILE_NAME), "S\ttorn-by-cra",
+                StandardOpenOption.APPEND);
+
+        start(10, 5);
+
+        awaitDelivered(1);
+        assertEquals(1, received.size());
+        assertTrue(callback("accepted-before-crash").contains("\"status\":200"));
+    }
+
+    @Test
+    void testOutboxKeepsOnlyOpenRecordsAfterCompaction() throws IOException {
+        try (CallbackOutbox outbox = CallbackOutbox.open(outboxDir, false, KEY)) {
+            for (int i = 0; i < 10; i++) {
+                outbox.decided(new Delivery("id-" + i, callbackUrl(), "{\"id\":\"id-" + i + "\"}"));
+            }
+            for (int i = 0; i < 9; i++) {
+                outbox.delivered(List.of("id-" + i));
+            }
+            outbox.compact();
+        }
+
+        assertEquals(1, Files.readAllLines(outboxDir.resolve(CallbackOutbox.FILE_NAME)).size());
+        try (CallbackOutbox outbox = CallbackOutbox.open(outboxDir, false, KEY)) {
+            assertEquals(List.of(new Delivery("id-9", callbackUrl(), "{\"id\":\"id-9\"}")), outbox.getUndelivered());
+        }
+    }
+
+    @Test
+    void testOutboxKeepsAppendingWhenCompactionFails() throws IOException {
+        Path log = outboxDir.resolve(CallbackOutbox.FILE_NAME);
+        try (CallbackOutbox outbox = CallbackOutbox.open(outboxDir, false, KEY)) {
+            outbox.decided(new Delivery("id-0", callbackUrl(), "{\"id\":\"id-0\"}"));
+            // A non-empty directory in place of the log makes the move of the compacted file fail
+            Files.delete(log);
+            Files.createDirectories(log.resolve("blocker"));
+
+            assertThrows(IOException.class, outbox::compact);
+
+            assertFalse(Files.exists(outboxDir.resolve(CallbackOutbox.FILE_NAME + ".compacting")));
+            outbox.decided(new Delivery("id-1", callbackUrl(), "{\"id\":\"id-1\"}"));
+            outbox.delivered(List.of("id-0"));
+            assertEquals(1, outbox.getUndelivered().size());
+        }
+    }
+
+    @Test
+    void testInvalidSubmissionsDoNotCountAsApplications() throws Exception {
+        AsyncDecisionService service = new AsyncDecisionService(decisionEngine(1), decisionStore(), loanProducts(),
+                new ObjectMapper(), outboxDir.toString(), false, OUTBOX_KEY, Set.of("localhost"), 100, 1, 10, 1000, 10, 40, 5,
+                registry);
+        service.start();
+        services.add(service);
+
+        String tooSmall = service.submit(new AsyncDecisionRequest(SEGMENT_3_PERSONAL_CODE, 1L, 12, "EE", null, null,
+                null, callbackUrl()));
+        String tooShort = service.submit(new AsyncDecisionRequest(SEGMENT_3_PERSONAL_CODE, 4000L, 1, "EE", null, null,
+                null, callbackUrl()));
+        String valid = service.submit(request(SEGMENT_3_PERSONAL_CODE));
+        String repeated = service.submit(request(SEGMENT_3_PERSONAL_CODE));
+
+        awaitDelivered(4);
+        assertTrue(callback(tooSmall).contains("\"status\":400"));
+        assertTrue(callback(tooShort).contains("\"status\":400"));
+        assertTrue(callback(valid).contains("\"status\":200"));
+        assertTrue(callback(repeated).contains("\"status\":429"));
+    }
+
+    @Test
+    void testSubmissionIsDecidedWithItsProduct() throws Exception {
+        AsyncDecisionService service = start(10, 5);
+
+        String carLoan = service.submit(new AsyncDecisionRequest(SEGMENT_3_PERSONAL_CODE, 20000L, 36, "EE", null, null,
+                "car-loan", callbackUrl()));
+        String smallLoan = service.submit(new AsyncDecisionRequest(SEGMENT_3_PERSONAL_CODE, 20000L, 36, "EE", null,
+                null, null, callbackUrl()));
+
+        awaitDelivered(2);
+        assertTrue(callback(carLoan).contains("\"status\":200"));
+        assertTrue(callback(smallLoan).contains("\"status\":400"));
+        assertFalse(service.isValidProduct("mortgage"));
+        assertThrows(IllegalArgumentException.class, () -> service.submit(new AsyncDecisionRequest(
+                SEGMENT_3_PERSONAL_CODE, 4000L, 12, "EE", null, null, "mortgage", callbackUrl())));
+    }
+
+    @Test
+    void testProductIsKeptInOutbox() throws IOException {
+        try (CallbackOutbox outbox = CallbackOutbox.open(outboxDir, false, KEY)) {
+            outbox.submitted(new Submission("car-loan", callbackUrl(),
+                    new LoanApplication(SEGMENT_3_PERSONAL_CODE, 20000L, 36, "EE", null, null), "car-loan"));
+        }
+
+        try (CallbackOutbox outbox = CallbackOutbox.open(outboxDir, false, KEY)) {
+            assertEquals("car-loan", outbox.getUndecided().get(0).product());
+        }
+    }
+
+    @Test
+    void testSubmissionsBeyondQueueCapacityAreRejected() throws Exception {
+        AsyncDecisionService service = new AsyncDecisionService(decisionEngine(), decisionStore(), loanProducts(),
+                new ObjectMapper(), outboxDir.toString(), false, OUTBOX_KEY, Set.of("localhost"), 2, 1, 10, 1000, 10, 10, 5,
+                registry);
+
+        service.submit(request(SEGMENT_3_PERSONAL_CODE));
+        service.submit(request(SEGMENT_3_PERSONAL_CODE));
+
+        assertThrows(SubmissionQueueFullException.class, () -> service.submit(request(SEGMENT_3_PERSONAL_CODE)));
+    }
+
+    @Test
+    void testCallbackUrlValidation() throws Exception {
+        AsyncDecisionService service = new AsyncDecisionService(decisionEngine(), decisionStore(), loanProducts(),
+                new ObjectMapper(), outboxDir.toString(), false, OUTBOX_KEY, Set.of("partner.example"), 10, 1, 10, 1000, 10,
+                10, 5, registry);
+
+        assertTrue(service.isValidCallbackUrl("https://partner.example/decisions"));
+        assertFalse(service.isValidCallbackUrl("https://other.example/decisions"));
+        assertFalse(service.isValidCallbackUrl("file:///etc/passwd"));
+        assertFalse(service.isValidCallbackUrl("not a url"));
+        assertFalse(service.isValidCallbackUrl(null));
+    }
+
+    @Test
+    void testServiceRequiresAllowedHostsAndOutboxKey() {
+        assertThrows(IllegalStateException.class, () -> new AsyncDecisionService(decisionEngine(), decisionStore(),
+                loanProducts(), new ObjectMapper(), outboxDir.toString(), false, OUTBOX_KEY, Set.of(" "), 10, 1, 10, 1000, 10,
+                10, 5, registry));
+        assertThrows(IllegalStateException.class, () -> new AsyncDecisionService(decisionEngine(), decisionStore(),
+                loanProducts(), new ObjectMapper(), outboxDir.toString(), false, "", Set.of("localhost"), 10, 1, 10, 1000, 10,
+                10, 5, registry));
+    }
+
+    @Test
+    void testOutboxDoesNotStorePersonalCodes() throws IOException {
+        try (CallbackOutbox outbox = CallbackOutbox.open(outboxDir, false, KEY)) {
+            outbox.submitted(new Submission("submitted", callbackUrl(),
+                    new LoanApplication(SEGMENT_3_PERSONAL_CODE, 4000L, 12, "EE", null, null), null));
+        }
+
+        assertFalse(Files.readString(outboxDir.resolve(CallbackOutbox.FILE_NAME)).contains(SEGMENT_3_PERSONAL_CODE));
+        try (CallbackOutbox outbox = CallbackOutbox.open(outboxDir, false, KEY)) {
+            assertEquals(SEGMENT_3_PERSONAL_CODE, outbox.getUndecided().get(0).application().getPersonalCode());
+        }
+        SecretKey otherKey = new SecretKeySpec(new byte[16], "AES");
+        try (CallbackOutbox outbox = CallbackOutbox.open(outboxDir, false, otherKey)) {
+            assertTrue(outbox.getUndecided().isEmpty());
+        }
+    }
+
+    private AsyncDecisionService start(long initialBackoffMillis, int maxAttempts) throws IOException {
+        AsyncDecisionService service = new AsyncDecisionService(decisionEngine(), decisionStore(), loanProducts(),
+                new ObjectMapper(), outboxDir.toString(), false, OUTBOX_KEY, Set.of("localhost"), 100, 1, 10, 1000,
+                initialBackoffMillis, initialBackoffMillis * 4, maxAttempts, registry);
+        service.start();
+        services.add(service);
+        return service;
+    }
+
+    private AsyncDecisionRequest request(String personalCode) {
+        return new AsyncDecisionRequest(personalCode, 4000L, 12, "EE", null, null, null, callbackUrl());
+    }
+
+    private String callbackUrl() {
+        return "http://localhost:" + receiver.getAddress().getPort() + "/callback";
+    }
+
+    /**
+     * @return The callback with the id among the received batches
+     */
+    private String callback(String id) {
+        return received.stream()
+                .flatMap(body -> CALLBACK.matcher(body).results().map(MatchResult::group))
+                .filter(callback -> callback.contains("\"id\":\"" + id + "\""))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private void awaitDelivered(int count) throws InterruptedException {
+        await(() -> registry.get("loan.callback.deliveries").tag("outcome", "delivered").counter().count() == count);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition was not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private PartitionedDecisionStore decisionStore() throws IOException {
+        PartitionedDecisionStore store = new PartitionedDecisionStore(outboxDir.resolve("decisions").toString(), 90, 100,
+                OUTBOX_KEY, new SimpleMeterRegistry());
+        stores.add(store);
+        return store;
+    }
+
+    private static LoanProducts loanProducts() {
+        return new LoanProducts(List.of("small-loan:2000-10000:12-60:64", "car-loan:5000-30000:24-84:1"),
+                "small-loan", new SimpleMeterRegistry());
+    }
+
+    private static DecisionEngine decisionEngine() {
+        return decisionEngine(100);
+    }
+
+    private static DecisionEngine decisionEngine(int maxApplications) {
+        RulePipeline rules = new RulePipeline(List.of(new LoanAmountRule(), new LoanPeriodRule(),
+                new PersonalCodeRule(), new AgeRule()), List.of("loan-amount", "loan-period", "personal-code", "age"),
+                new SimpleMeterRegistry());
+        return new DecisionEngine(new DefaultLoanCalculator(), creditModifierCalculator(), rules,
+                new BlacklistService(Blacklist.empty(), new SimpleMeterRegistry()),
+                new StripedApplicantHistory(maxApplications, 24, 4), new DefaultPricingEngine(BigDecimal.ZERO, 100),
+                new ShadowEvaluator(null, null, 0, 1, 1, new SimpleMeterRegistry()),
+                new LatencyBudgets(250, 10, 10, 10, 150, 10, 10, new SimpleMeterRegistry()),
+                new CreditModifierGuard(false, 50, 1, 20, 0.5, 5000, 2, new SimpleMeterRegistry()));
+    }
+
+    private static DefaultCreditModifierCalculator creditModifierCalculator() {
+        return new DefaultCreditModifierCalculator(new ScorecardEngine(ScorecardLoader.bundled(), null,
+                new SimpleMeterRegistry()));
+    }
+}
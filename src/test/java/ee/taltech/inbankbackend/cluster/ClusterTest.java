@@ -0,0 +1,170 @@
+package ee.taltech.inbankbackend.cluster;
+
+import ee.taltech.inbankbackend.history.StripedApplicantHistory;
+import ee.taltech.inbankbackend.scoring.ScorecardEngine;
+import ee.taltech.inbankbackend.scoring.ScorecardLoader;
+import ee.taltech.inbankbackend.service.DefaultCreditModifierCalculator;
+import ee.taltech.inbankbackend.util.PersonalCodes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs several cluster members on localhost in the same JVM.
+ */
+class ClusterTest {
+
+    private static final int MAX_APPLICATIONS = 2;
+    private static final String SECRET = "test-secret";
+
+    private final List<Cluster> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(Cluster::stop);
+    }
+
+    @Test
+    void testMembersAgreeOnOwners() {
+        Cluster first = startNode("a", List.of());
+        Cluster second = startNode("b", List.of(first.getSelf().address()));
+        Cluster third = startNode("c", List.of(first.getSelf().address()));
+
+        for (Cluster node : nodes) {
+            assertEquals(3, node.getMembers().size());
+        }
+        Set<String> owners = new HashSet<>();
+        for (long code = 30000000000L; code < 30000001000L; code++) {
+            String owner = first.ownerOf(code).id();
+            assertEquals(owner, second.ownerOf(code).id());
+            assertEquals(owner, third.ownerOf(code).id());
+            owners.add(owner);
+        }
+        assertEquals(3, owners.size());
+    }
+
+    @Test
+    void testApplicationLimitIsSharedByMembers() {
+        Cluster first = startNode("a", List.of());
+        Cluster second = startNode("b", List.of(first.getSelf().address()));
+        Cluster third = startNode("c", List.of(second.getSelf().address()));
+
+        for (String personalCode : List.of("50307172740", "38411266610", "35006069515")) {
+            assertTrue(first.tryRecordApplication(personalCode));
+            assertTrue(second.tryRecordApplication(personalCode));
+            assertFalse(third.tryRecordApplication(personalCode));
+        }
+    }
+
+    @Test
+    void testCreditModifiersAreServedByOwner() {
+        DefaultCreditModifierCalculator calculator = creditModifierCalculator();
+        Cluster first = startNode("a", List.of());
+        Cluster second = startNode("b", List.of(first.getSelf().address()));
+
+        for (String personalCode : List.of("37605030299", "50307172740", "38411266610", "35006069515")) {
+            assertEquals(calculator.getCreditModifier(personalCode), first.getCreditModifier(personalCode));
+            assertEquals(calculator.getCreditModifier(personalCode), second.getCreditModifier(personalCode));
+        }
+    }
+
+    @Test
+    void testMembersLeaveAndJoin() {
+        Cluster first = startNode("a", List.of());
+        Cluster second = startNode("b", List.of(first.getSelf().address()));
+        Cluster third = startNode("c", List.of(first.getSelf().address()));
+
+        third.stop();
+        assertEquals(2, first.getMembers().size());
+        assertEquals(2, second.getMembers().size());
+        long code = PersonalCodes.pack("50307172740");
+        assertEquals(first.ownerOf(code), second.ownerOf(code));
+        assertFalse(first.ownerOf(code).id().equals("c"));
+
+        Cluster fourth = startNode("d", List.of(second.getSelf().address()));
+        assertEquals(3, first.getMembers().size());
+        assertEquals(3, fourth.getMembers().size());
+        assertEquals(first.ownerOf(code), fourth.ownerOf(code));
+    }
+
+    @Test
+    void testUnreachableMemberIsDropped() throws InterruptedException {
+        Cluster first = startNode("a", List.of());
+        Cluster second = startNode("b", List.of(first.getSelf().address()));
+        nodes.remove(second);
+        second.shutdown();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (first.getMembers().size() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, first.getMembers().size());
+        assertTrue(first.tryRecordApplication("50307172740"));
+    }
+
+    @Test
+    void testUnauthenticatedJoinIsRefused() throws IOException {
+        Cluster first = startNode("a", List.of());
+        ClusterNode intruder = new ClusterNode("intruder", "localhost", 1);
+
+        try (Socket socket = new Socket("localhost", first.getSelf().port())) {
+            socket.setSoTimeout(5_000);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            in.readFully(new byte[16]);
+            out.writeByte(PeerProtocol.JOIN);
+            PeerProtocol.writeNode(out, intruder);
+            // Pads the request to the length of a handshake, so the server reads it whole as one
+            out.write(new byte[48 - out.size()]);
+            out.flush();
+            assertEquals(-1, in.read());
+        }
+        assertEquals(1, first.getMembers().size());
+    }
+
+    @Test
+    void testJoinWithWrongSecretIsRefused() {
+        Cluster first = startNode("a", List.of());
+        PeerClient client = new PeerClient(1_000, new PeerAuthenticator("wrong-secret"), 500);
+        ClusterNode intruder = new ClusterNode("intruder", "localhost", 1);
+
+        assertThrows(IOException.class, () -> client.call("localhost", first.getSelf().port(), PeerProtocol.JOIN,
+                out -> PeerProtocol.writeNode(out, intruder), PeerProtocol::readNodes));
+        assertEquals(1, first.getMembers().size());
+    }
+
+    @Test
+    void testSecretIsRequired() {
+        assertThrows(IllegalStateException.class, () -> new Cluster("a", "localhost", 0, List.of(), 64, 50, 200,
+                1024, "", 64, 1_000, new StripedApplicantHistory(MAX_APPLICATIONS, 24, 4),
+                creditModifierCalculator(), new SimpleMeterRegistry()));
+    }
+
+    private Cluster startNode(String id, List<String> seeds) {
+        Cluster node = new Cluster(id, "localhost", 0, seeds, 64, 50, 200, 1024, SECRET, 64, 1_000,
+                new StripedApplicantHistory(MAX_APPLICATIONS, 24, 4), creditModifierCalculator(),
+                new SimpleMeterRegistry());
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private static DefaultCreditModifierCalculator creditModifierCalculator() {
+        return new DefaultCreditModifierCalculator(new ScorecardEngine(ScorecardLoader.bundled(), null,
+                new SimpleMeterRegistry()));
+    }
+}
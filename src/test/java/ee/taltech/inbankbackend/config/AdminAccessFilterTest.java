@@ -0,0 +1,75 @@
+package ee.taltech.inbankbackend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AdminAccessFilterTest {
+
+    @Test
+    void testAdminRequestsAreRefusedWithoutConfiguredToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin/decisions/0123456789abcdef");
+        request.addHeader(AdminAccessFilter.TOKEN_HEADER, "");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        new AdminAccessFilter("").doFilter(request, response, chain);
+
+        assertEquals(403, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void testAdminRequestsRequireToken() throws Exception {
+        AdminAccessFilter filter = new AdminAccessFilter("s3cret");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("POST", "/admin/decisions/search"), response, chain);
+        assertEquals(401, response.getStatus());
+        assertNull(chain.getRequest());
+
+        MockHttpServletRequest wrongToken = new MockHttpServletRequest("POST", "/admin/decisions/search");
+        wrongToken.addHeader(AdminAccessFilter.TOKEN_HEADER, "s3cre");
+        response = new MockHttpServletResponse();
+        filter.doFilter(wrongToken, response, chain);
+        assertEquals(401, response.getStatus());
+        assertNull(chain.getRequest());
+
+        MockHttpServletRequest rightToken = new MockHttpServletRequest("POST", "/admin/decisions/search");
+        rightToken.addHeader(AdminAccessFilter.TOKEN_HEADER, "s3cret");
+        response = new MockHttpServletResponse();
+        filter.doFilter(rightToken, response, chain);
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void testEncodedAndParameterizedAdminPathsRequireToken() throws Exception {
+        AdminAccessFilter filter = new AdminAccessFilter("s3cret");
+
+        for (String path : new String[]{"/admin;x=1/decisions/0123456789abcdef", "/%61dmin/decisions/search",
+                "/admin/profiling;jsessionid=1/recording", "//admin/profiling/recording"}) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(new MockHttpServletRequest("GET", path), response, chain);
+            assertEquals(401, response.getStatus(), path);
+            assertNull(chain.getRequest(), path);
+        }
+    }
+
+    @Test
+    void testOtherRequestsPass() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        new AdminAccessFilter("").doFilter(new MockHttpServletRequest("POST", "/loan/decision"),
+                new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+    }
+}
@@ -0,0 +1,37 @@
+package ee.taltech.inbankbackend.config;
+
+import ee.taltech.inbankbackend.blacklist.BlacklistService;
+import ee.taltech.inbankbackend.endpoint.DecisionEngineController;
+import ee.taltech.inbankbackend.endpoint.LoanScheduleController;
+import ee.taltech.inbankbackend.history.StripedApplicantHistory;
+import ee.taltech.inbankbackend.scoring.ScorecardEngine;
+import ee.taltech.inbankbackend.service.DecisionEngine;
+import ee.taltech.inbankbackend.service.DefaultPricingEngine;
+import ee.taltech.inbankbackend.store.PartitionedDecisionStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LazyInitializationConfigTest {
+
+    private final LazyInitializationExcludeFilter filter = LazyInitializationConfig.eagerBeans();
+
+    @Test
+    void testScheduledAndRequestPathBeansAreEager() {
+        for (Class<?> type : List.of(ScorecardEngine.class, BlacklistService.class, StripedApplicantHistory.class,
+                PartitionedDecisionStore.class, DecisionEngine.class, DecisionEngineController.class,
+                LoanScheduleController.class)) {
+            assertTrue(filter.isExcluded("bean", null, type), type.getName());
+        }
+    }
+
+    @Test
+    void testOtherBeansStayLazy() {
+        assertFalse(filter.isExcluded("bean", null, DefaultPricingEngine.class));
+        assertFalse(filter.isExcluded("bean", null, null));
+    }
+}
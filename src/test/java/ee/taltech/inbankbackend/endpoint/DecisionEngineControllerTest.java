@@ -5,6 +5,7 @@ import ee.taltech.inbankbackend.DTOs.DecisionRequest;
 import ee.taltech.inbankbackend.DTOs.DecisionResponse;
 import ee.taltech.inbankbackend.exceptions.*;
 import ee.taltech.inbankbackend.dataobjects.Decision;
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
 import ee.taltech.inbankbackend.service.DecisionEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,7 +28,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 /**
  * This class holds integration tests for the DecisionEngineController endpoint.
  */
-@SpringBootTest
+@SpringBootTest(properties = "decisions.store-key=MDEyMzQ1Njc4OWFiY2RlZg==")
 @AutoConfigureMockMvc
 @ExtendWith(SpringExtension.class)
 @ExtendWith(MockitoExtension.class)
@@ -63,10 +64,10 @@ public class DecisionEngineControllerTest {
      */
     @Test
     public void givenValidRequest_whenRequestDecision_thenReturnsExpectedResponse()
-            throws Exception, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException,
-            InvalidLoanAmountException {
+            throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidPersonalCodeException, InvalidLoanAmountException {
         Decision decision = new Decision(1000, 12, null);
-        when(decisionEngine.calculateApprovedLoan(anyString(), anyLong(), anyInt(),anyString())).thenReturn(decision);
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class))).thenReturn(decision);
 
         DecisionRequest request = new DecisionRequest("1234", 10L, 10,countryCodeEE);
 
@@ -75,6 +76,7 @@ public class DecisionEngineControllerTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.applicationId").isNotEmpty())
                 .andExpect(jsonPath("$.loanAmount").value(1000))
                 .andExpect(jsonPath("$.loanPeriod").value(12))
                 .andExpect(jsonPath("$.errorMessage").isEmpty())
@@ -92,9 +94,9 @@ public class DecisionEngineControllerTest {
      */
     @Test
     public void givenInvalidPersonalCode_whenRequestDecision_thenReturnsBadRequest()
-            throws Exception, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException,
-            InvalidLoanAmountException {
-        when(decisionEngine.calculateApprovedLoan(anyString(), anyLong(), anyInt(),anyString()))
+            throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidPersonalCodeException, InvalidLoanAmountException {
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class)))
                 .thenThrow(new InvalidPersonalCodeException("Invalid personal code"));
 
         DecisionRequest request = new DecisionRequest("1234", 10L, 10,countryCodeEE);
@@ -121,9 +123,9 @@ public class DecisionEngineControllerTest {
      */
     @Test
     public void givenInvalidLoanAmount_whenRequestDecision_thenReturnsBadRequest()
-            throws Exception, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException,
-            InvalidLoanAmountException {
-        when(decisionEngine.calculateApprovedLoan(anyString(), anyLong(), anyInt(),anyString()))
+            throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidPersonalCodeException, InvalidLoanAmountException {
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class)))
                 .thenThrow(new InvalidLoanAmountException("Invalid loan amount"));
 
         DecisionRequest request = new DecisionRequest("1234", 10L, 10,countryCodeEE);
@@ -150,9 +152,9 @@ public class DecisionEngineControllerTest {
      */
     @Test
     public void givenInvalidLoanPeriod_whenRequestDecision_thenReturnsBadRequest()
-            throws Exception, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException,
-            InvalidLoanAmountException {
-        when(decisionEngine.calculateApprovedLoan(anyString(), anyLong(), anyInt(),anyString()))
+            throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidPersonalCodeException, InvalidLoanAmountException {
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class)))
                 .thenThrow(new InvalidLoanPeriodException("Invalid loan period"));
 
         DecisionRequest request = new DecisionRequest("1234", 10L, 10,countryCodeEE);
@@ -179,9 +181,9 @@ public class DecisionEngineControllerTest {
      */
     @Test
     public void givenNoValidLoan_whenRequestDecision_thenReturnsBadRequest()
-            throws Exception, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException,
-            InvalidLoanAmountException {
-        when(decisionEngine.calculateApprovedLoan(anyString(), anyLong(), anyInt(),anyString()))
+            throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidPersonalCodeException, InvalidLoanAmountException {
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class)))
                 .thenThrow(new NoValidLoanException("No valid loan available"));
 
         DecisionRequest request = new DecisionRequest("1234", 1000L, 12,countryCodeEE);
@@ -208,9 +210,9 @@ public class DecisionEngineControllerTest {
      */
     @Test
     public void givenUnexpectedError_whenRequestDecision_thenReturnsInternalServerError()
-            throws Exception, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException,
-            InvalidLoanAmountException {
-        when(decisionEngine.calculateApprovedLoan(anyString(), anyLong(), anyInt(),anyString())).thenThrow(new RuntimeException());
+            throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidPersonalCodeException, InvalidLoanAmountException {
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class))).thenThrow(new RuntimeException());
 
         DecisionRequest request = new DecisionRequest("1234", 10L, 10,countryCodeEE);
 
@@ -230,9 +232,38 @@ public class DecisionEngineControllerTest {
         assert response.getErrorMessage().equals("An unexpected error occurred");
     }
 
+    /**
+     * This test ensures that if the customer has applied too many times, the controller returns
+     * an HTTP Too Many Requests (429) response with the appropriate error message in the response body.
+     */
+    @Test
+    public void givenTooManyApplications_whenRequestDecision_thenReturnsTooManyRequests()
+            throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidPersonalCodeException, InvalidLoanAmountException {
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class)))
+                .thenThrow(new TooManyApplicationsException("Too many loan applications!"));
+
+        DecisionRequest request = new DecisionRequest("1234", 4000L, 12,countryCodeEE);
+
+        MvcResult result = mockMvc.perform(post("/loan/decision")
+                        .content(objectMapper.writeValueAsString(request))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.loanAmount").isEmpty())
+                .andExpect(jsonPath("$.loanPeriod").isEmpty())
+                .andExpect(jsonPath("$.errorMessage").value("Too many loan applications!"))
+                .andReturn();
+
+        DecisionResponse response = objectMapper.readValue(result.getResponse().getContentAsString(), DecisionResponse.class);
+        assert response.getLoanAmount() == null;
+        assert response.getLoanPeriod() == null;
+        assert response.getErrorMessage().equals("Too many loan applications!");
+    }
+
     @Test
-    void testInvalidAgeEE() throws Exception, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
-        when(decisionEngine.calculateApprovedLoan(anyString(), anyLong(), anyInt(), anyString()))
+    void testInvalidAgeEE() throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class)))
                 .thenThrow(new InvalidAgeException("Age is not valid to apply for a loan!"));
 
         DecisionRequest request = new DecisionRequest(personalCodeWithInvalidAge, 4000L, 12, countryCodeEE);
@@ -253,8 +284,8 @@ public class DecisionEngineControllerTest {
     }
 
     @Test
-    void testInvalidAgeLV() throws Exception, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
-        when(decisionEngine.calculateApprovedLoan(anyString(), anyLong(), anyInt(), anyString()))
+    void testInvalidAgeLV() throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class)))
                 .thenThrow(new InvalidAgeException("Age is not valid to apply for a loan!"));
 
         DecisionRequest request = new DecisionRequest(personalCodeWithInvalidAge, 4000L, 12, countryCodeLV);
@@ -275,8 +306,8 @@ public class DecisionEngineControllerTest {
     }
 
     @Test
-    void testInvalidAgeLT() throws Exception, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
-        when(decisionEngine.calculateApprovedLoan(anyString(), anyLong(), anyInt(), anyString()))
+    void testInvalidAgeLT() throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class)))
                 .thenThrow(new InvalidAgeException("Age is not valid to apply for a loan!"));
 
         DecisionRequest request = new DecisionRequest(personalCodeWithInvalidAge, 4000L, 12, countryCodeLT);
@@ -297,8 +328,8 @@ public class DecisionEngineControllerTest {
     }
 
     @Test
-    void testAgeInFuture() throws Exception, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
-        when(decisionEngine.calculateApprovedLoan(anyString(), anyLong(), anyInt(), anyString()))
+    void testAgeInFuture() throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class)))
                 .thenThrow(new InvalidAgeException("Birthdate is in the future"));
 
         DecisionRequest request = new DecisionRequest(personalCodeAgeinFuture, 4000L, 12, countryCodeEE);
@@ -319,8 +350,8 @@ public class DecisionEngineControllerTest {
     }
 
     @Test
-    void testUnderage() throws Exception, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
-        when(decisionEngine.calculateApprovedLoan(anyString(), anyLong(), anyInt(), anyString()))
+    void testUnderage() throws Exception, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
+        when(decisionEngine.calculateApprovedLoan(any(LoanApplication.class)))
                 .thenThrow(new InvalidAgeException("Age is not valid to apply for a loan!"));
 
         DecisionRequest request = new DecisionRequest(personalCodeWithInvalidAge, 4000L, 12, countryCodeLT);
@@ -340,6 +371,16 @@ public class DecisionEngineControllerTest {
         assert response.getErrorMessage().equals("Age is not valid to apply for a loan!");
     }
 
+    @Test
+    void testUnknownLoanProduct() throws Exception {
+        DecisionRequest request = new DecisionRequest("50307172740", 4000L, 12, countryCodeEE, null, null, "mortgage");
 
-
+        mockMvc.perform(post("/loan/decision")
+                        .content(objectMapper.writeValueAsString(request))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.loanAmount").isEmpty())
+                .andExpect(jsonPath("$.loanPeriod").isEmpty())
+                .andExpect(jsonPath("$.errorMessage").value("Invalid loan product!"));
+    }
 }
@@ -0,0 +1,50 @@
+package ee.taltech.inbankbackend.endpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.taltech.inbankbackend.product.LoanProducts;
+import ee.taltech.inbankbackend.service.DefaultPricingEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LoanScheduleControllerTest {
+
+    private LoanScheduleController controller;
+
+    @BeforeEach
+    void setUp() {
+        LoanProducts loanProducts = new LoanProducts(List.of("small-loan:2000-10000:12-60:2"), "small-loan",
+                new SimpleMeterRegistry());
+        controller = new LoanScheduleController(new DefaultPricingEngine(BigDecimal.ZERO, 100), new ObjectMapper(),
+                loanProducts);
+    }
+
+    @Test
+    void testScheduleIsStreamed() throws IOException {
+        ResponseEntity<StreamingResponseBody> response =
+                controller.requestSchedule(2400, 12, new BigDecimal("0.149000"), null);
+
+        assertEquals(200, response.getStatusCode().value());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+        assertEquals(12, body.toString().lines().count());
+    }
+
+    @Test
+    void testInterestRateWithTooManyDecimalsIsRejected() {
+        for (String rate : List.of("1E-40", "1E-999999999", "0.1490001")) {
+            ResponseEntity<StreamingResponseBody> response =
+                    controller.requestSchedule(2400, 12, new BigDecimal(rate), null);
+            assertEquals(400, response.getStatusCode().value(), rate);
+        }
+    }
+}
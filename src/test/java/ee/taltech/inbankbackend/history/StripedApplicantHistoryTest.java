@@ -0,0 +1,124 @@
+package ee.taltech.inbankbackend.history;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedApplicantHistoryTest {
+
+    private static final long DAY_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    private MutableClock clock;
+    private StripedApplicantHistory history;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        history = new StripedApplicantHistory(3, DAY_SECONDS, 8, clock);
+    }
+
+    @Test
+    void testApplicationsOverLimitAreRejected() {
+        assertTrue(history.tryRecordApplication("50307172740"));
+        assertTrue(history.tryRecordApplication("50307172740"));
+        assertTrue(history.tryRecordApplication("50307172740"));
+        assertFalse(history.tryRecordApplication("50307172740"));
+        assertTrue(history.tryRecordApplication("38411266610"));
+    }
+
+    @Test
+    void testOldestApplicationExpiresAfterWindow() {
+        history.tryRecordApplication("50307172740");
+        clock.advanceSeconds(3600);
+        history.tryRecordApplication("50307172740");
+        history.tryRecordApplication("50307172740");
+
+        clock.advanceSeconds(DAY_SECONDS - 3600 - 1);
+        assertFalse(history.tryRecordApplication("50307172740"));
+        clock.advanceSeconds(1);
+        assertTrue(history.tryRecordApplication("50307172740"));
+        assertFalse(history.tryRecordApplication("50307172740"));
+    }
+
+    @Test
+    void testCompactionRemovesOnlyExpiredApplicants() {
+        for (int i = 0; i < 10_000; i++) {
+            history.tryRecordApplication(String.valueOf(30000000000L + i));
+        }
+        clock.advanceSeconds(DAY_SECONDS / 2);
+        history.tryRecordApplication("50307172740");
+        assertEquals(10_001, history.size());
+
+        clock.advanceSeconds(DAY_SECONDS / 2);
+        history.compact();
+
+        assertEquals(1, history.size());
+        history.tryRecordApplication("50307172740");
+        history.tryRecordApplication("50307172740");
+        assertFalse(history.tryRecordApplication("50307172740"));
+    }
+
+    @Test
+    void testConcurrentApplicationsRespectLimit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger recorded = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        if (history.tryRecordApplication(String.valueOf(40000000000L + i))) {
+                            recorded.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(3000, recorded.get());
+        assertEquals(1000, history.size());
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advanceSeconds(long seconds) {
+            instant = instant.plusSeconds(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
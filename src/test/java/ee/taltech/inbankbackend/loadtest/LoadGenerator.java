@@ -0,0 +1,185 @@
+package ee.taltech.inbankbackend.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator for a running instance of the decision service.
+ * Requests are sent at a constant arrival rate, independently of how fast the service answers.
+ * Latency is measured from the time a request was scheduled to be sent, not from the time it was actually
+ * sent, which corrects for coordinated omission: when the service or the generator stalls, the requests that
+ * should have been sent in the meantime are charged with the time they spent waiting.
+ * <br><br>
+ * Run with {@code gradle loadTest -PloadTestArgs="--rate=200 --duration=60"}. Options:
+ * --url, --rate (requests per second), --duration and --warmup (seconds), --countries (e.g. EE:50,LV:25,LT:25),
+ * --invalid-ratio (0..1), --clients (number of X-Client-Id values the requests are spread over), --timeout
+ * (seconds) and --output (directory for the reports).
+ * <br><br>
+ * All requests come from one address, which admission control limits like a single client unless the target
+ * trusts it as a proxy for the client ids or is started with a higher rate limit; see the README.
+ */
+public class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final HttpClient httpClient;
+    private final URI uri;
+    private final PersonalCodeMix mix;
+    private final double rate;
+    private final int clients;
+    private final Duration timeout;
+    private final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final ConcurrentMap<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+
+    LoadGenerator(URI uri, PersonalCodeMix mix, double rate, int clients, Duration timeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newCachedThreadPool())
+                .connectTimeout(timeout)
+                .build();
+        this.uri = uri;
+        this.mix = mix;
+        this.rate = rate;
+        this.clients = clients;
+        this.timeout = timeout;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        URI uri = URI.create(options.getOrDefault("url", "http://localhost:8080/loan/decision"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "100"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        long warmUpSeconds = Long.parseLong(options.getOrDefault("warmup", "5"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "10")));
+        Path output = Path.of(options.getOrDefault("output", "build/reports/loadtest"));
+        PersonalCodeMix mix = new PersonalCodeMix(options.getOrDefault("countries", "EE:50,LV:25,LT:25"),
+                Double.parseDouble(options.getOrDefault("invalid-ratio", "0.1")));
+
+        LoadGenerator generator = new LoadGenerator(uri, mix, rate, clients, timeout);
+        if (warmUpSeconds > 0) {
+            System.out.printf("Warming up for %d s at %.0f requests/s%n", warmUpSeconds, rate);
+            generator.run(Duration.ofSeconds(warmUpSeconds));
+            generator.reset();
+        }
+        System.out.printf("Measuring for %d s at %.0f requests/s against %s%n", durationSeconds, rate, uri);
+        long elapsedNanos = generator.run(Duration.ofSeconds(durationSeconds));
+        generator.report(elapsedNanos, output);
+        System.exit(0);
+    }
+
+    /**
+     * Sends requests at the configured rate for the given duration and waits for the outstanding ones.
+     *
+     * @return Time in nanoseconds from the first scheduled request until the last response
+     */
+    long run(Duration duration) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long requestCount = (long) (rate * duration.toSeconds());
+        long start = System.nanoTime();
+        CompletableFuture<?>[] outstanding = new CompletableFuture<?>[(int) Math.min(requestCount, Integer.MAX_VALUE)];
+
+        for (int i = 0; i < outstanding.length; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long delay;
+            while ((delay = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            outstanding[i] = send(intendedStart, "loadtest-" + (i % clients));
+        }
+        CompletableFuture.allOf(outstanding).join();
+        return System.nanoTime() - start;
+    }
+
+    private CompletableFuture<?> send(long intendedStart, String clientId) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("X-Client-Id", clientId)
+                .POST(HttpRequest.BodyPublishers.ofString(mix.nextRequestBody()))
+                .build();
+        long actualStart = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    long end = System.nanoTime();
+                    if (error != null) {
+                        errors.increment();
+                    } else {
+                        statusCounts.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+                    }
+                    latency.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(end - intendedStart)));
+                    serviceTime.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(end - actualStart)));
+                    return null;
+                });
+    }
+
+    private void reset() {
+        latency.reset();
+        serviceTime.reset();
+        statusCounts.clear();
+        errors.reset();
+    }
+
+    private void report(long elapsedNanos, Path output) throws IOException {
+        Files.createDirectories(output);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(output.resolve("latency.hgrm")))) {
+            latency.outputPercentileDistribution(out, 1000.0);
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(output.resolve("service-time.hgrm")))) {
+            serviceTime.outputPercentileDistribution(out, 1000.0);
+        }
+
+        StringBuilder summary = new StringBuilder();
+        double seconds = elapsedNanos / 1e9;
+        summary.append(String.format("Target rate:      %.1f requests/s%n", rate));
+        summary.append(String.format("Throughput:       %.1f requests/s%n", latency.getTotalCount() / seconds));
+        summary.append(String.format("Requests:         %d, errors: %d, status codes: %s%n",
+                latency.getTotalCount(), errors.sum(), statusCounts));
+        summary.append("Latency corrected for coordinated omission (ms):\n");
+        appendPercentiles(summary, latency);
+        summary.append("Service time, measured from the actual send (ms):\n");
+        appendPercentiles(summary, serviceTime);
+        Files.writeString(output.resolve("summary.txt"), summary);
+        System.out.print(summary);
+        System.out.println("Percentile distributions written to " + output.toAbsolutePath());
+    }
+
+    private static void appendPercentiles(StringBuilder summary, Histogram histogram) {
+        for (double percentile : new double[]{50, 90, 99, 99.9, 99.99}) {
+            summary.append(String.format("  p%-6s %10.3f%n", percentile, histogram.getValueAtPercentile(percentile) / 1000.0));
+        }
+        summary.append(String.format("  max     %10.3f%n", histogram.getMaxValue() / 1000.0));
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected an option in the form --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+}
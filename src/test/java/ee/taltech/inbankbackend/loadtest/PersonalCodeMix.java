@@ -0,0 +1,84 @@
+package ee.taltech.inbankbackend.loadtest;
+
+import com.github.vladislavgoltjajev.personalcode.locale.estonia.EstonianPersonalCodeGenerator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates loan applications with a configurable mix of countries and share of invalid personal codes.
+ * The decision engine validates Latvian and Lithuanian applicants with the same personal code format as
+ * Estonian ones, so all codes come from the Estonian generator and only the country code differs.
+ * An invalid code is produced by changing the check digit of a valid one.
+ */
+class PersonalCodeMix {
+
+    private static final String[] COUNTRY_CODES = {"EE", "LV", "LT"};
+
+    private final EstonianPersonalCodeGenerator generator = new EstonianPersonalCodeGenerator();
+    private final double[] cumulativeCountryWeights;
+    private final double invalidRatio;
+
+    /**
+     * @param countryWeights Relative weights of EE, LV and LT applicants, for example "EE:50,LV:25,LT:25"
+     * @param invalidRatio Share of applications with an invalid personal code, between 0 and 1
+     */
+    PersonalCodeMix(String countryWeights, double invalidRatio) {
+        Map<String, Double> weights = parseWeights(countryWeights);
+        this.cumulativeCountryWeights = new double[COUNTRY_CODES.length];
+        double total = 0;
+        for (int i = 0; i < COUNTRY_CODES.length; i++) {
+            total += weights.getOrDefault(COUNTRY_CODES[i], 0.0);
+            cumulativeCountryWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one country must have a positive weight: " + countryWeights);
+        }
+        for (int i = 0; i < COUNTRY_CODES.length; i++) {
+            cumulativeCountryWeights[i] /= total;
+        }
+        this.invalidRatio = invalidRatio;
+    }
+
+    /**
+     * @return JSON body of a request to /loan/decision
+     */
+    String nextRequestBody() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String personalCode = random.nextDouble() < invalidRatio ? nextInvalidCode() : nextValidCode();
+        long loanAmount = 2000 + 100L * random.nextInt(81);
+        int loanPeriod = 12 + random.nextInt(49);
+        return "{\"personalCode\":\"" + personalCode + "\",\"loanAmount\":" + loanAmount
+                + ",\"loanPeriod\":" + loanPeriod + ",\"countryCode\":\"" + nextCountryCode() + "\"}";
+    }
+
+    String nextValidCode() {
+        return generator.generateRandomPersonalCode();
+    }
+
+    String nextInvalidCode() {
+        String validCode = nextValidCode();
+        int checkDigit = validCode.charAt(validCode.length() - 1) - '0';
+        return validCode.substring(0, validCode.length() - 1) + (checkDigit + 1) % 10;
+    }
+
+    String nextCountryCode() {
+        double value = ThreadLocalRandom.current().nextDouble();
+        for (int i = 0; i < COUNTRY_CODES.length; i++) {
+            if (value < cumulativeCountryWeights[i]) {
+                return COUNTRY_CODES[i];
+            }
+        }
+        return COUNTRY_CODES[COUNTRY_CODES.length - 1];
+    }
+
+    private static Map<String, Double> parseWeights(String countryWeights) {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (String entry : countryWeights.split(",")) {
+            String[] parts = entry.trim().split(":");
+            weights.put(parts[0].trim().toUpperCase(), Double.parseDouble(parts[1].trim()));
+        }
+        return weights;
+    }
+}
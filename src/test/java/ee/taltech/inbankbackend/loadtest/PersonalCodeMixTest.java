@@ -0,0 +1,32 @@
+package ee.taltech.inbankbackend.loadtest;
+
+import com.github.vladislavgoltjajev.personalcode.locale.estonia.EstonianPersonalCodeValidator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersonalCodeMixTest {
+
+    private final EstonianPersonalCodeValidator validator = new EstonianPersonalCodeValidator();
+
+    @Test
+    void testValidAndInvalidCodes() {
+        PersonalCodeMix mix = new PersonalCodeMix("EE:1", 0.5);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(validator.isValid(mix.nextValidCode()));
+            assertFalse(validator.isValid(mix.nextInvalidCode()));
+        }
+    }
+
+    @Test
+    void testCountryWeights() {
+        PersonalCodeMix mix = new PersonalCodeMix("EE:0,LV:1,LT:0", 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("LV", mix.nextCountryCode());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ee.taltech.inbankbackend.product;
+
+import ee.taltech.inbankbackend.dataobjects.Decision;
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import ee.taltech.inbankbackend.exceptions.InvalidAgeException;
+import ee.taltech.inbankbackend.exceptions.InvalidIncomeException;
+import ee.taltech.inbankbackend.exceptions.InvalidLoanAmountException;
+import ee.taltech.inbankbackend.exceptions.InvalidLoanPeriodException;
+import ee.taltech.inbankbackend.exceptions.InvalidPersonalCodeException;
+import ee.taltech.inbankbackend.exceptions.NoValidLoanException;
+import ee.taltech.inbankbackend.rules.AgeRule;
+import ee.taltech.inbankbackend.rules.LoanAmountRule;
+import ee.taltech.inbankbackend.rules.LoanPeriodRule;
+import ee.taltech.inbankbackend.rules.RulePipeline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoanProductsTest {
+
+    private static final List<String> CATALOG = List.of("small-loan:2000-10000:12-60:2", "car-loan:5000-30000:24-84:1");
+
+    private MeterRegistry registry;
+    private LoanProducts products;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        products = new LoanProducts(CATALOG, "small-loan", registry);
+    }
+
+    @Test
+    void testCatalogIsParsed() {
+        LoanProduct carLoan = products.find("car-loan");
+        assertEquals(5000, carLoan.getMinimumLoanAmount());
+        assertEquals(30000, carLoan.getMaximumLoanAmount());
+        assertEquals(24, carLoan.getMinimumLoanPeriod());
+        assertEquals(84, carLoan.getMaximumLoanPeriod());
+        assertEquals(1, carLoan.getMaxConcurrent());
+        assertEquals(2, products.getAll().size());
+    }
+
+    @Test
+    void testMissingProductIsTheDefault() {
+        assertSame(products.getDefault(), products.find(null));
+        assertSame(products.getDefault(), products.find(" "));
+        assertEquals("small-loan", products.getDefault().getName());
+        assertNull(products.find("mortgage"));
+    }
+
+    @Test
+    void testInvalidCatalog() {
+        assertThrows(IllegalStateException.class,
+                () -> new LoanProducts(List.of("small-loan:2000-10000:12-60"), "small-loan", registry));
+        assertThrows(IllegalStateException.class,
+                () -> new LoanProducts(List.of("small-loan:10000-2000:12-60:2"), "small-loan", registry));
+        assertThrows(IllegalStateException.class,
+                () -> new LoanProducts(List.of("small-loan:2000-10000:12-60:many"), "small-loan", registry));
+        assertThrows(IllegalStateException.class,
+                () -> new LoanProducts(List.of("small-loan:2000-10000:12-60:2", "small-loan:2000-5000:12-24:2"),
+                        "small-loan", registry));
+        assertThrows(IllegalStateException.class, () -> new LoanProducts(CATALOG, "mortgage", registry));
+    }
+
+    @Test
+    void testCalculatorUsesProductLimits() throws NoValidLoanException {
+        Decision decision = products.find("car-loan").getLoanCalculator().calculateApprovedLoan(1000, 5000L, 24);
+        assertEquals(24000, decision.getLoanAmount());
+        assertEquals(24, decision.getLoanPeriod());
+
+        decision = products.find("car-loan").getLoanCalculator().calculateApprovedLoan(100, 5000L, 24);
+        assertEquals(5000, decision.getLoanAmount());
+        assertEquals(50, decision.getLoanPeriod());
+
+        decision = products.find("small-loan").getLoanCalculator().calculateApprovedLoan(40, 2000L, 12);
+        assertEquals(2000, decision.getLoanAmount());
+        assertEquals(50, decision.getLoanPeriod());
+        assertThrows(NoValidLoanException.class,
+                () -> products.find("car-loan").getLoanCalculator().calculateApprovedLoan(40, 5000L, 24));
+    }
+
+    @Test
+    void testRulesUseProductLimits() throws Exception, InvalidPersonalCodeException, InvalidLoanAmountException,
+            InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException, InvalidAgeException {
+        RulePipeline pipeline = new RulePipeline(List.of(new LoanAmountRule(), new LoanPeriodRule()),
+                List.of("loan-amount", "loan-period"), registry);
+        LoanProduct carLoan = products.find("car-loan");
+
+        pipeline.verifyApplication(application(20000L, 72, carLoan));
+        assertThrows(InvalidLoanAmountException.class,
+                () -> pipeline.verifyApplication(application(20000L, 24, products.getDefault())));
+        assertThrows(InvalidLoanAmountException.class,
+                () -> pipeline.verifyApplication(application(4000L, 24, carLoan)));
+        assertThrows(InvalidLoanPeriodException.class,
+                () -> pipeline.verifyApplication(application(6000L, 12, carLoan)));
+    }
+
+    @Test
+    void testAgeRuleLeavesRoomForProductPeriod() {
+        // 76 years old: within the 82 years of Estonia minus five, but not minus the seven of an 84-month loan
+        LocalDate birthDate = LocalDate.now().minusYears(76).minusDays(1);
+        String personalCode = "3" + birthDate.format(DateTimeFormatter.ofPattern("yyMMdd")) + "0000";
+        AgeRule ageRule = new AgeRule();
+
+        assertNull(ageRule.check(new LoanApplication(personalCode, 6000L, 24, "EE", null, null, null)));
+        assertNull(ageRule.check(new LoanApplication(personalCode, 6000L, 24, "EE", null, null,
+                products.getDefault())));
+        assertEquals("Age is not valid to apply for a loan!", ageRule.check(new LoanApplication(personalCode, 6000L,
+                24, "EE", null, null, products.find("car-loan"))));
+    }
+
+    @Test
+    void testBulkheadShedsExcessDecisions() {
+        LoanProduct carLoan = products.find("car-loan");
+        LoanProduct smallLoan = products.getDefault();
+
+        assertTrue(carLoan.tryEnter());
+        assertFalse(carLoan.tryEnter());
+        assertTrue(smallLoan.tryEnter());
+        assertEquals(1.0, registry.get("loan.product.in_flight").tag("product", "car-loan").gauge().value());
+
+        carLoan.exit(System.nanoTime());
+        smallLoan.exit(System.nanoTime());
+        assertTrue(carLoan.tryEnter());
+        carLoan.exit(System.nanoTime());
+
+        assertEquals(1.0, registry.get("loan.product.shed").tag("product", "car-loan").counter().count());
+        assertEquals(0.0, registry.get("loan.product.shed").tag("product", "small-loan").counter().count());
+        assertEquals(2, registry.get("loan.product.decisions").tag("product", "car-loan").timer().count());
+        assertEquals(0.0, registry.get("loan.product.in_flight").tag("product", "car-loan").gauge().value());
+    }
+
+    private static LoanApplication application(Long loanAmount, int loanPeriod, LoanProduct product) {
+        return new LoanApplication("50307172740", loanAmount, loanPeriod, "EE", null, null, product);
+    }
+}
@@ -0,0 +1,106 @@
+package ee.taltech.inbankbackend.profiling;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline summary of the decision stage events in a flight recording, as downloaded from
+ * /admin/profiling/recording. Prints the latency percentiles of every stage, ordered by the total time spent in
+ * it, so the stage behind a latency spike is at the top.
+ * <br><br>
+ * Run with {@code gradle analyzeRecording -PrecordingFile=inbank-decisions.jfr}. Add {@code -PbyCountry} to
+ * break the stages down by country.
+ */
+public class RecordingAnalyzer {
+
+    private RecordingAnalyzer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: RecordingAnalyzer <recording.jfr> [--by-country]");
+            System.exit(2);
+        }
+        boolean byCountry = Arrays.asList(args).contains("--by-country");
+        print(summarize(Path.of(args[0]), byCountry), System.out);
+    }
+
+    /**
+     * Reads the decision stage events of a recording.
+     *
+     * @param recording Flight recording file
+     * @param byCountry Whether every stage is summarized per country
+     * @return Summaries ordered by the total time spent in the stage, longest first
+     * @throws IOException If the recording can not be read
+     */
+    static List<StageSummary> summarize(Path recording, boolean byCountry) throws IOException {
+        Map<String, Durations> stages = new HashMap<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                if (!event.getEventType().getName().equals(DecisionStageEvent.NAME)) {
+                    continue;
+                }
+                String stage = event.getString("stage");
+                String key = byCountry ? stage + " " + event.getString("countryCode") : stage;
+                stages.computeIfAbsent(key, name -> new Durations())
+                        .add(event.getDuration().toNanos(), DecisionStageEvent.REJECTED.equals(event.getString("outcome")));
+            }
+        }
+        List<StageSummary> summaries = new ArrayList<>();
+        stages.forEach((stage, durations) -> summaries.add(durations.summarize(stage)));
+        summaries.sort(Comparator.comparingLong(StageSummary::totalNanos).reversed());
+        return summaries;
+    }
+
+    static void print(List<StageSummary> summaries, PrintStream out) {
+        out.printf("%-32s %10s %10s %10s %10s %10s %10s %12s%n",
+                "stage", "count", "rejected", "p50 us", "p90 us", "p99 us", "max us", "total ms");
+        for (StageSummary summary : summaries) {
+            out.printf("%-32s %10d %10d %10.1f %10.1f %10.1f %10.1f %12.1f%n", summary.stage(), summary.count(),
+                    summary.rejected(), summary.p50Nanos() / 1e3, summary.p90Nanos() / 1e3, summary.p99Nanos() / 1e3,
+                    summary.maxNanos() / 1e3, summary.totalNanos() / 1e6);
+        }
+    }
+
+    record StageSummary(String stage, long count, long rejected, long p50Nanos, long p90Nanos, long p99Nanos,
+                        long maxNanos, long totalNanos) {
+    }
+
+    private static class Durations {
+        private long[] nanos = new long[64];
+        private int count;
+        private long rejected;
+        private long total;
+
+        void add(long duration, boolean rejection) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = duration;
+            total += duration;
+            rejected += rejection ? 1 : 0;
+        }
+
+        StageSummary summarize(String stage) {
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            return new StageSummary(stage, count, rejected, percentile(sorted, 0.50), percentile(sorted, 0.90),
+                    percentile(sorted, 0.99), sorted[count - 1], total);
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package ee.taltech.inbankbackend.profiling;
+
+import ee.taltech.inbankbackend.blacklist.Blacklist;
+import ee.taltech.inbankbackend.blacklist.BlacklistService;
+import ee.taltech.inbankbackend.exceptions.*;
+import ee.taltech.inbankbackend.history.StripedApplicantHistory;
+import ee.taltech.inbankbackend.resilience.CreditModifierGuard;
+import ee.taltech.inbankbackend.resilience.LatencyBudgets;
+import ee.taltech.inbankbackend.rules.AgeRule;
+import ee.taltech.inbankbackend.rules.LoanAmountRule;
+import ee.taltech.inbankbackend.rules.LoanPeriodRule;
+import ee.taltech.inbankbackend.rules.PersonalCodeRule;
+import ee.taltech.inbankbackend.rules.RulePipeline;
+import ee.taltech.inbankbackend.scoring.ScorecardEngine;
+import ee.taltech.inbankbackend.scoring.ScorecardLoader;
+import ee.taltech.inbankbackend.service.DecisionEngine;
+import ee.taltech.inbankbackend.service.DefaultCreditModifierCalculator;
+import ee.taltech.inbankbackend.service.DefaultLoanCalculator;
+import ee.taltech.inbankbackend.service.DefaultPricingEngine;
+import ee.taltech.inbankbackend.shadow.ShadowEvaluator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordingServiceTest {
+
+    private RecordingService recordingService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        recordingService = new RecordingService("default", 60, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        recordingService.destroy();
+    }
+
+    @Test
+    void testOnlyOneRecordingRuns() {
+        assertTrue(recordingService.start(Duration.ofSeconds(30)));
+        assertFalse(recordingService.start(Duration.ofSeconds(30)));
+        assertTrue(recordingService.stop());
+        assertFalse(recordingService.stop());
+        assertTrue(recordingService.start(null));
+    }
+
+    @Test
+    void testNothingToDownloadBeforeRecording() throws Exception {
+        assertEquals(Optional.empty(), recordingService.dump());
+    }
+
+    @Test
+    void testStageEventsAreRecordedAndSummarized() throws Exception, InvalidPersonalCodeException,
+            InvalidLoanAmountException, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidAgeException, TooManyApplicationsException {
+        DecisionEngine decisionEngine = decisionEngine();
+        recordingService.start(Duration.ofSeconds(30));
+        for (int i = 0; i < 10; i++) {
+            decisionEngine.calculateApprovedLoan("38411266610", 4000L, 12, "EE");
+        }
+        assertThrows(InvalidLoanAmountException.class,
+                () -> decisionEngine.calculateApprovedLoan("38411266610", 1L, 12, "LV"));
+        assertThrows(NoValidLoanException.class,
+                () -> decisionEngine.calculateApprovedLoan("37605030299", 4000L, 12, "EE"));
+        recordingService.stop();
+
+        Path recording = recordingService.dump().orElseThrow();
+        try {
+            Map<String, RecordingAnalyzer.StageSummary> stages = RecordingAnalyzer.summarize(recording, false)
+                    .stream()
+                    .collect(Collectors.toMap(RecordingAnalyzer.StageSummary::stage, Function.identity()));
+
+            assertEquals(12, stages.get("validation").count());
+            assertEquals(1, stages.get("validation").rejected());
+            assertEquals(11, stages.get("validation/age").count());
+            assertEquals(11, stages.get("credit-modifier").count());
+            assertEquals(11, stages.get("loan-calculation").count());
+            assertEquals(1, stages.get("loan-calculation").rejected());
+            assertEquals(10, stages.get("pricing").count());
+
+            List<RecordingAnalyzer.StageSummary> byCountry = RecordingAnalyzer.summarize(recording, true);
+            assertTrue(byCountry.stream().anyMatch(summary -> summary.stage().equals("validation LV")
+                    && summary.count() == 1 && summary.rejected() == 1));
+        } finally {
+            Files.deleteIfExists(recording);
+        }
+    }
+
+    @Test
+    void testEnvironmentAndSystemPropertiesAreNotRecorded() throws Exception {
+        RecordingService profile = new RecordingService("profile", 60, 10);
+        try {
+            profile.start(Duration.ofSeconds(30));
+            profile.stop();
+            Path recording = profile.dump().orElseThrow();
+            try {
+                assertTrue(RecordingFile.readAllEvents(recording).stream()
+                        .map(event -> event.getEventType().getName())
+                        .noneMatch(name -> name.equals(RecordingService.ENVIRONMENT_EVENT)
+                                || name.equals(RecordingService.SYSTEM_PROPERTY_EVENT)));
+            } finally {
+                Files.deleteIfExists(recording);
+            }
+        } finally {
+            profile.destroy();
+        }
+    }
+
+    private static DecisionEngine decisionEngine() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        RulePipeline rules = new RulePipeline(List.of(new LoanAmountRule(), new LoanPeriodRule(),
+                new PersonalCodeRule(), new AgeRule()), List.of("loan-amount", "loan-period", "personal-code", "age"),
+                registry);
+        return new DecisionEngine(new DefaultLoanCalculator(), creditModifierCalculator(), rules,
+                new BlacklistService(Blacklist.empty(), registry), new StripedApplicantHistory(100, 24, 4),
+                new DefaultPricingEngine(BigDecimal.ZERO, 100), new ShadowEvaluator(null, null, 0, 1, 1, registry),
+                new LatencyBudgets(250, 10, 10, 10, 150, 10, 10, registry),
+                new CreditModifierGuard(false, 50, 1, 20, 0.5, 5000, 2, registry));
+    }
+
+    private static DefaultCreditModifierCalculator creditModifierCalculator() {
+        return new DefaultCreditModifierCalculator(new ScorecardEngine(ScorecardLoader.bundled(), null,
+                new SimpleMeterRegistry()));
+    }
+}
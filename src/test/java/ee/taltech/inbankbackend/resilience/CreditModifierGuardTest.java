@@ -0,0 +1,249 @@
+package ee.taltech.inbankbackend.resilience;
+
+import ee.taltech.inbankbackend.blacklist.Blacklist;
+import ee.taltech.inbankbackend.blacklist.BlacklistService;
+import ee.taltech.inbankbackend.exceptions.InvalidAgeException;
+import ee.taltech.inbankbackend.exceptions.InvalidIncomeException;
+import ee.taltech.inbankbackend.exceptions.InvalidLoanAmountException;
+import ee.taltech.inbankbackend.exceptions.InvalidLoanPeriodException;
+import ee.taltech.inbankbackend.exceptions.InvalidPersonalCodeException;
+import ee.taltech.inbankbackend.exceptions.NoValidLoanException;
+import ee.taltech.inbankbackend.exceptions.TooManyApplicationsException;
+import ee.taltech.inbankbackend.history.StripedApplicantHistory;
+import ee.taltech.inbankbackend.rules.AgeRule;
+import ee.taltech.inbankbackend.rules.LoanAmountRule;
+import ee.taltech.inbankbackend.rules.LoanPeriodRule;
+import ee.taltech.inbankbackend.rules.PersonalCodeRule;
+import ee.taltech.inbankbackend.rules.RulePipeline;
+import ee.taltech.inbankbackend.scoring.ScorecardChangedEvent;
+import ee.taltech.inbankbackend.scoring.ScorecardEngine;
+import ee.taltech.inbankbackend.scoring.ScorecardLoader;
+import ee.taltech.inbankbackend.service.CreditModifierCalculator;
+import ee.taltech.inbankbackend.service.DecisionEngine;
+import ee.taltech.inbankbackend.service.DefaultCreditModifierCalculator;
+import ee.taltech.inbankbackend.service.DefaultLoanCalculator;
+import ee.taltech.inbankbackend.service.DefaultPricingEngine;
+import ee.taltech.inbankbackend.shadow.ShadowEvaluator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CreditModifierGuardTest {
+
+    private static final String SEGMENT_2_PERSONAL_CODE = "38411266610";
+    private static final long TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private MeterRegistry registry;
+    private FaultyCreditModifierCalculator calculator;
+    private final List<CreditModifierGuard> guards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        calculator = new FaultyCreditModifierCalculator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        calculator.release();
+        guards.forEach(CreditModifierGuard::destroy);
+    }
+
+    @Test
+    void testHealthyLookup() {
+        CreditModifierGuard guard = guard(50, 5000);
+
+        assertEquals(300, guard.getCreditModifier(calculator, SEGMENT_2_PERSONAL_CODE, TIMEOUT_NANOS));
+        assertEquals(1, calculator.calls.get());
+        assertEquals(1, lookups("success"));
+    }
+
+    @Test
+    void testSlowLookupIsHedged() {
+        CreditModifierGuard guard = guard(20, 5000);
+        calculator.slowCalls.set(1);
+
+        long start = System.nanoTime();
+        int creditModifier = guard.getCreditModifier(calculator, SEGMENT_2_PERSONAL_CODE, TIMEOUT_NANOS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(300, creditModifier);
+        assertTrue(elapsedMillis < 150, "took " + elapsedMillis + " ms");
+        assertEquals(2, calculator.calls.get());
+        assertEquals(1, lookups("hedged"));
+    }
+
+    @Test
+    void testTimeoutFallsBackToLastKnownModifier() {
+        CreditModifierGuard guard = guard(0, 5000);
+        assertEquals(300, guard.getCreditModifier(calculator, SEGMENT_2_PERSONAL_CODE, TIMEOUT_NANOS));
+        calculator.slowCalls.set(Integer.MAX_VALUE);
+
+        long start = System.nanoTime();
+        int creditModifier = guard.getCreditModifier(calculator, SEGMENT_2_PERSONAL_CODE,
+                TimeUnit.MILLISECONDS.toNanos(50));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(300, creditModifier);
+        assertTrue(elapsedMillis < 150, "took " + elapsedMillis + " ms");
+        assertEquals(1, lookups("timeout"));
+        assertEquals(1, fallbacks("last-known"));
+    }
+
+    @Test
+    void testFailureOfUnknownCodeFallsBackToConservativeModifier() {
+        CreditModifierGuard guard = guard(50, 5000);
+        calculator.failing = true;
+
+        assertEquals(CreditModifierGuard.CONSERVATIVE_CREDIT_MODIFIER,
+                guard.getCreditModifier(calculator, SEGMENT_2_PERSONAL_CODE, TIMEOUT_NANOS));
+        assertEquals(1, lookups("error"));
+        assertEquals(1, fallbacks("conservative"));
+    }
+
+    @Test
+    void testScorecardChangeForgetsLastKnownModifiers() {
+        CreditModifierGuard guard = guard(50, 5000);
+        assertEquals(300, guard.getCreditModifier(calculator, SEGMENT_2_PERSONAL_CODE, TIMEOUT_NANOS));
+        calculator.failing = true;
+
+        guard.onScorecardChanged(new ScorecardChangedEvent("segments-v2"));
+
+        assertEquals(CreditModifierGuard.CONSERVATIVE_CREDIT_MODIFIER,
+                guard.getCreditModifier(calculator, SEGMENT_2_PERSONAL_CODE, TIMEOUT_NANOS));
+        assertEquals(1, fallbacks("conservative"));
+    }
+
+    @Test
+    void testLookupOutOfBudgetIsNotMade() {
+        CreditModifierGuard guard = guard(50, 5000);
+
+        assertEquals(CreditModifierGuard.CONSERVATIVE_CREDIT_MODIFIER,
+                guard.getCreditModifier(calculator, SEGMENT_2_PERSONAL_CODE, 0));
+        assertEquals(0, calculator.calls.get());
+        assertEquals(1, lookups("out-of-budget"));
+    }
+
+    @Test
+    void testCircuitBreakerOpensAndRecovers() throws InterruptedException {
+        CreditModifierGuard guard = guard(50, 100);
+        calculator.failing = true;
+        for (int i = 0; i < 4; i++) {
+            guard.getCreditModifier(calculator, SEGMENT_2_PERSONAL_CODE, TIMEOUT_NANOS);
+        }
+        assertEquals(1.0, registry.get("loan.credit-modifier.circuit").gauge().value());
+
+        guard.getCreditModifier(calculator, SEGMENT_2_PERSONAL_CODE, TIMEOUT_NANOS);
+        assertEquals(4, calculator.calls.get());
+        assertEquals(1, lookups("short-circuited"));
+
+        Thread.sleep(150);
+        calculator.failing = false;
+        assertEquals(300, guard.getCreditModifier(calculator, SEGMENT_2_PERSONAL_CODE, TIMEOUT_NANOS));
+        assertEquals(0.0, registry.get("loan.credit-modifier.circuit").gauge().value());
+    }
+
+    @Test
+    void testDecisionEngineKeepsItsBudgetWhenLookupsHang() throws Exception, InvalidPersonalCodeException,
+            InvalidLoanAmountException, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidAgeException, TooManyApplicationsException {
+        // The first decision loads and initializes the classes of every stage, which alone can exceed the budget
+        decisionEngine(creditModifierCalculator(), new SimpleMeterRegistry(),
+                new CreditModifierGuard(false, 20, 1, 4, 0.5, 5000, 2, new SimpleMeterRegistry()))
+                .calculateApprovedLoan(SEGMENT_2_PERSONAL_CODE, 4000L, 12, "EE");
+        calculator.slowCalls.set(Integer.MAX_VALUE);
+        DecisionEngine decisionEngine = decisionEngine(calculator, registry, guard(20, 5000));
+
+        long start = System.nanoTime();
+        assertThrows(NoValidLoanException.class,
+                () -> decisionEngine.calculateApprovedLoan(SEGMENT_2_PERSONAL_CODE, 4000L, 12, "EE"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 150, "took " + elapsedMillis + " ms");
+        assertEquals(1, registry.get("loan.decision.stage.overruns").tag("stage", "credit-modifier")
+                .counter().count());
+    }
+
+    private static DecisionEngine decisionEngine(CreditModifierCalculator calculator, MeterRegistry registry,
+                                                 CreditModifierGuard guard) {
+        RulePipeline rules = new RulePipeline(List.of(new LoanAmountRule(), new LoanPeriodRule(),
+                new PersonalCodeRule(), new AgeRule()), List.of("loan-amount", "loan-period", "personal-code", "age"),
+                registry);
+        return new DecisionEngine(new DefaultLoanCalculator(), calculator, rules,
+                new BlacklistService(Blacklist.empty(), registry), new StripedApplicantHistory(100, 24, 4),
+                new DefaultPricingEngine(BigDecimal.ZERO, 100), new ShadowEvaluator(null, null, 0, 1, 1, registry),
+                new LatencyBudgets(100, 10, 10, 10, 50, 10, 10, registry), guard);
+    }
+
+    private CreditModifierGuard guard(long hedgeDelayMillis, long openMillis) {
+        CreditModifierGuard guard = new CreditModifierGuard(true, hedgeDelayMillis, 4, 4, 0.5, openMillis, 1024,
+                registry);
+        guards.add(guard);
+        return guard;
+    }
+
+    private double lookups(String outcome) {
+        return registry.get("loan.credit-modifier.lookups").tag("outcome", outcome).counter().count();
+    }
+
+    private double fallbacks(String source) {
+        return registry.get("loan.credit-modifier.fallbacks").tag("source", source).counter().count();
+    }
+
+    private static DefaultCreditModifierCalculator creditModifierCalculator() {
+        return new DefaultCreditModifierCalculator(new ScorecardEngine(ScorecardLoader.bundled(), null,
+                new SimpleMeterRegistry()));
+    }
+
+    /**
+     * Credit modifier source that can be made to fail or to hang for a number of calls.
+     */
+    private static class FaultyCreditModifierCalculator implements CreditModifierCalculator {
+        private final CreditModifierCalculator delegate = creditModifierCalculator();
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger slowCalls = new AtomicInteger();
+        private final Object hang = new Object();
+        private volatile boolean failing;
+        private volatile boolean released;
+
+        @Override
+        public int getCreditModifier(String personalCode) {
+            calls.incrementAndGet();
+            if (failing) {
+                throw new IllegalStateException("Credit data source is down");
+            }
+            if (slowCalls.getAndDecrement() > 0) {
+                synchronized (hang) {
+                    while (!released) {
+                        try {
+                            hang.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                }
+            }
+            return delegate.getCreditModifier(personalCode);
+        }
+
+        void release() {
+            synchronized (hang) {
+                released = true;
+                hang.notifyAll();
+            }
+        }
+    }
+}
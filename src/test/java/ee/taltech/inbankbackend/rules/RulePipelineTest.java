@@ -0,0 +1,137 @@
+package ee.taltech.inbankbackend.rules;
+
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
+import ee.taltech.inbankbackend.exceptions.InvalidAgeException;
+import ee.taltech.inbankbackend.exceptions.InvalidIncomeException;
+import ee.taltech.inbankbackend.exceptions.InvalidLoanAmountException;
+import ee.taltech.inbankbackend.exceptions.InvalidLoanPeriodException;
+import ee.taltech.inbankbackend.exceptions.InvalidPersonalCodeException;
+import ee.taltech.inbankbackend.exceptions.NoValidLoanException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RulePipelineTest {
+
+    private static final String VALID_PERSONAL_CODE = "50307172740";
+    private static final List<String> PIPELINE = List.of("personal-code", "age", "loan-amount", "loan-period",
+            "income", "minimum-income", "debt-to-income");
+
+    private MeterRegistry registry;
+    private RulePipeline pipeline;
+    private List<Rule> rules;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        rules = List.of(new LoanAmountRule(), new LoanPeriodRule(), new PersonalCodeRule(), new AgeRule(),
+                new IncomeRule(), new MinimumIncomeRule(1000), new DebtToIncomeRule(40));
+        pipeline = new RulePipeline(rules, PIPELINE, registry);
+    }
+
+    @Test
+    void testPlanValidatesInputBeforePolicyRules() {
+        String[] names = Arrays.stream(pipeline.getPlan()).map(Rule::getName).toArray(String[]::new);
+        assertArrayEquals(new String[]{"loan-amount", "loan-period", "income", "personal-code", "age",
+                "minimum-income", "debt-to-income"}, names);
+    }
+
+    @Test
+    void testMalformedInputIsReportedBeforePolicyRejection() {
+        InvalidPersonalCodeException e = assertThrows(InvalidPersonalCodeException.class,
+                () -> pipeline.verifyApplication(application("12345678901", 4000L, 20, 2000L, 1900L)));
+        assertEquals("Invalid personal ID code!", e.getMessage());
+        assertEquals(0, registry.get("loan.rules.latency").tag("rule", "debt-to-income").timer().count());
+    }
+
+    @Test
+    void testNegativeIncomeOrDebtIsInvalidInput() {
+        InvalidIncomeException e = assertThrows(InvalidIncomeException.class,
+                () -> pipeline.verifyApplication(application(VALID_PERSONAL_CODE, 4000L, 20, -2000L, 0L)));
+        assertEquals("Invalid monthly income or debt!", e.getMessage());
+        assertThrows(InvalidIncomeException.class,
+                () -> pipeline.verifyApplication(application(VALID_PERSONAL_CODE, 4000L, 20, 2000L, -600L)));
+    }
+
+    @Test
+    void testUnknownRule() {
+        assertThrows(IllegalStateException.class, () -> new RulePipeline(rules, List.of("credit-score"), registry));
+    }
+
+    @Test
+    void testValidApplication() throws Exception, InvalidPersonalCodeException, InvalidLoanAmountException,
+            InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException {
+        pipeline.verifyApplication(application(VALID_PERSONAL_CODE, 4000L, 20, 2000L, 200L));
+    }
+
+    @Test
+    void testCheapRejectionShortCircuits() {
+        assertThrows(InvalidLoanAmountException.class,
+                () -> pipeline.verifyApplication(application("12345678901", 1L, 20, 2000L, 200L)));
+        assertEquals(1, registry.get("loan.rules.rejections").tag("rule", "loan-amount").counter().count());
+        assertEquals(0, registry.get("loan.rules.latency").tag("rule", "personal-code").timer().count());
+    }
+
+    @Test
+    void testRejections() {
+        assertThrows(InvalidLoanPeriodException.class,
+                () -> pipeline.verifyApplication(application(VALID_PERSONAL_CODE, 4000L, 61, 2000L, 0L)));
+        assertThrows(InvalidPersonalCodeException.class,
+                () -> pipeline.verifyApplication(application("12345678901", 4000L, 20, 2000L, 0L)));
+        assertThrows(InvalidAgeException.class,
+                () -> pipeline.verifyApplication(application("61308269999", 4000L, 20, 2000L, 0L)));
+    }
+
+    @Test
+    void testMinimumIncome() {
+        assertThrows(NoValidLoanException.class,
+                () -> pipeline.verifyApplication(application(VALID_PERSONAL_CODE, 4000L, 20, 999L, 0L)));
+        assertThrows(NoValidLoanException.class,
+                () -> pipeline.verifyApplication(application(VALID_PERSONAL_CODE, 4000L, 20, null, null)));
+    }
+
+    @Test
+    void testDebtToIncome() throws Exception, InvalidPersonalCodeException, InvalidLoanAmountException,
+            InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException {
+        // 600 + 4000 / 20 = 800, which is exactly 40% of 2000
+        pipeline.verifyApplication(application(VALID_PERSONAL_CODE, 4000L, 20, 2000L, 600L));
+        assertThrows(NoValidLoanException.class,
+                () -> pipeline.verifyApplication(application(VALID_PERSONAL_CODE, 4000L, 20, 2000L, 601L)));
+    }
+
+    @Test
+    void testDebtToIncomeRejectsNegativeAndHugeValues() {
+        DebtToIncomeRule rule = new DebtToIncomeRule(40);
+        // Negative values are never affordable, even in a pipeline without the income rule
+        assertEquals("No valid loan found!",
+                rule.check(application(VALID_PERSONAL_CODE, 4000L, 20, -2000L, -1000L)));
+        assertEquals("No valid loan found!",
+                rule.check(application(VALID_PERSONAL_CODE, 4000L, 20, 2000L, -600L)));
+        // Values whose products overflow a long are still compared exactly
+        assertEquals("No valid loan found!",
+                rule.check(application(VALID_PERSONAL_CODE, 4000L, 20, 2000L, Long.MAX_VALUE / 20)));
+        assertNull(rule.check(application(VALID_PERSONAL_CODE, Long.MAX_VALUE, 20, Long.MAX_VALUE, 0L)));
+    }
+
+    @Test
+    void testVerifyInputsWithoutIncome() throws Exception, InvalidPersonalCodeException, InvalidLoanAmountException,
+            InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException {
+        RulePipeline defaultPipeline = new RulePipeline(rules, List.of("loan-amount", "loan-period", "personal-code",
+                "age"), registry);
+        defaultPipeline.verifyInputs(VALID_PERSONAL_CODE, 4000L, 20, "EE");
+    }
+
+    private static LoanApplication application(String personalCode, Long loanAmount, int loanPeriod,
+                                               Long monthlyIncome, Long monthlyDebt) {
+        return new LoanApplication(personalCode, loanAmount, loanPeriod, "EE", monthlyIncome, monthlyDebt);
+    }
+}
@@ -0,0 +1,65 @@
+package ee.taltech.inbankbackend.scoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the cost of one score, scored one by one and in batches. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class ScorecardBenchmark {
+
+    private static final int APPLICANTS = 4096;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int ROUNDS = 500;
+
+    @Test
+    void testScoringCost() {
+        ScorecardEngine engine = new ScorecardEngine(ScorecardLoader.bundled(), null, new SimpleMeterRegistry());
+        String[] personalCodes = personalCodes();
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += scoreOneByOne(engine, personalCodes) + engine.getCreditModifiers(personalCodes)[i % APPLICANTS];
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += scoreOneByOne(engine, personalCodes);
+        }
+        double single = (System.nanoTime() - start) / (double) (ROUNDS * APPLICANTS);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += engine.getCreditModifiers(personalCodes)[i % APPLICANTS];
+        }
+        double batch = (System.nanoTime() - start) / (double) (ROUNDS * APPLICANTS);
+
+        System.out.printf("Scorecard: %.1f ns per score one by one, %.1f ns per score in batches of %d (%d)%n",
+                single, batch, APPLICANTS, sink);
+        assertTrue(single > 0 && batch > 0);
+    }
+
+    private static long scoreOneByOne(ScorecardEngine engine, String[] personalCodes) {
+        long sum = 0;
+        for (String personalCode : personalCodes) {
+            sum += engine.getCreditModifier(personalCode);
+        }
+        return sum;
+    }
+
+    private static String[] personalCodes() {
+        Random random = new Random(1);
+        String[] personalCodes = new String[APPLICANTS];
+        for (int i = 0; i < APPLICANTS; i++) {
+            personalCodes[i] = String.format("%d%02d%02d%02d%04d", 3 + random.nextInt(4), random.nextInt(100),
+                    1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(10000));
+        }
+        return personalCodes;
+    }
+}
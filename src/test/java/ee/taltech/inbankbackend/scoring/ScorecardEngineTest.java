@@ -0,0 +1,196 @@
+package ee.taltech.inbankbackend.scoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScorecardEngineTest {
+
+    private static final String AGE_MODEL = """
+            version=age-v2
+            features=bureau-segment,age
+            feature.bureau-segment.boundaries=2500,5000,7500
+            feature.bureau-segment.points=0,100,200,300
+            feature.age.boundaries=25,60
+            feature.age.points=-100,0,-50
+            modifier.boundaries=100,200,300
+            modifier.values=0,100,300,1000
+            """;
+
+    private MeterRegistry registry;
+    private Clock clock;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        clock = Clock.fixed(Instant.parse("2026-01-15T12:00:00Z"), ZoneOffset.UTC);
+    }
+
+    @Test
+    void testBundledModelReproducesSegments() {
+        ScorecardEngine engine = new ScorecardEngine(ScorecardLoader.bundled(), null, registry);
+        assertEquals(0, engine.getCreditModifier("37605030299"));
+        assertEquals(100, engine.getCreditModifier("50307172740"));
+        assertEquals(300, engine.getCreditModifier("38411266610"));
+        assertEquals(1000, engine.getCreditModifier("35006069515"));
+    }
+
+    @Test
+    void testAgeBins() throws IOException {
+        ScorecardEngine engine = new ScorecardEngine(model(AGE_MODEL), null, clock, registry, null, null);
+        // born 2003-07-17, aged 22: 300 - 100 points
+        assertEquals(300, engine.getCreditModifier("50307179515"));
+        // born 1984-11-26, aged 41: 300 points
+        assertEquals(1000, engine.getCreditModifier("38411269515"));
+        // born 1950-06-06, aged 75: 300 - 50 points
+        assertEquals(300, engine.getCreditModifier("35006069515"));
+    }
+
+    @Test
+    void testBatchMatchesSingleScores() throws IOException {
+        ScorecardEngine engine = new ScorecardEngine(model(AGE_MODEL), null, clock, registry, null, null);
+        Random random = new Random(42);
+        String[] personalCodes = new String[1000];
+        int[] expected = new int[personalCodes.length];
+        for (int i = 0; i < personalCodes.length; i++) {
+            personalCodes[i] = String.format("%d%02d%02d%02d%04d", 3 + random.nextInt(4), random.nextInt(100),
+                    1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(10000));
+            expected[i] = engine.getCreditModifier(personalCodes[i]);
+        }
+        assertArrayEquals(expected, engine.getCreditModifiers(personalCodes));
+    }
+
+    @Test
+    void testShadowScoring() throws IOException {
+        ScorecardEngine engine = new ScorecardEngine(ScorecardLoader.bundled(), model(AGE_MODEL), clock, registry,
+                null, null);
+        assertEquals(1000, engine.getCreditModifier("50307179515"));
+        assertEquals(1000, engine.getCreditModifier("38411269515"));
+
+        assertEquals(1, registry.get("loan.scorecard.shadow").tag("outcome", "diverge").counter().count());
+        assertEquals(1, registry.get("loan.scorecard.shadow").tag("outcome", "agree").counter().count());
+    }
+
+    @Test
+    void testPromoteCandidate() throws IOException {
+        ScorecardEngine engine = new ScorecardEngine(ScorecardLoader.bundled(), model(AGE_MODEL), clock, registry,
+                null, null);
+        assertTrue(engine.promoteCandidate());
+        assertEquals("age-v2", engine.getVersion());
+        assertNull(engine.getCandidateVersion());
+        assertEquals(300, engine.getCreditModifier("50307179515"));
+        assertFalse(engine.promoteCandidate());
+    }
+
+    @Test
+    void testReloadChangedModel(@TempDir Path directory) throws IOException {
+        Path modelPath = directory.resolve("model.properties");
+        try (var in = ScorecardLoader.class.getClassLoader().getResourceAsStream(ScorecardLoader.BUNDLED_MODEL)) {
+            Files.copy(in, modelPath);
+        }
+        Files.setLastModifiedTime(modelPath, FileTime.fromMillis(1_000_000));
+        ScorecardEngine engine = new ScorecardEngine(ScorecardLoader.load(modelPath), null, clock, registry,
+                modelPath, null);
+
+        engine.reload();
+        assertEquals("segments-v1", engine.getVersion());
+
+        Files.writeString(modelPath, "version=broken\n");
+        Files.setLastModifiedTime(modelPath, FileTime.fromMillis(2_000_000));
+        engine.reload();
+        assertEquals("segments-v1", engine.getVersion());
+
+        Files.writeString(modelPath, AGE_MODEL);
+        Files.setLastModifiedTime(modelPath, FileTime.fromMillis(3_000_000));
+        engine.reload();
+        assertEquals("age-v2", engine.getVersion());
+    }
+
+    @Test
+    void testChangesArePublished() throws IOException {
+        MutableClock clock = new MutableClock(Instant.parse("2026-01-15T12:00:00Z"));
+        ScorecardEngine engine = new ScorecardEngine(model(AGE_MODEL), null, clock, registry, null, null);
+        List<Object> events = new ArrayList<>();
+        engine.setApplicationEventPublisher(events::add);
+
+        engine.getCreditModifier("50307179515");
+        clock.advance(Duration.ofHours(6));
+        engine.getCreditModifier("50307179515");
+        assertEquals(List.of(), events);
+
+        clock.advance(Duration.ofDays(1));
+        engine.getCreditModifier("50307179515");
+        assertEquals(List.of(new ScorecardChangedEvent("age-v2")), events);
+
+        engine.swap(ScorecardLoader.bundled());
+        assertEquals(new ScorecardChangedEvent("segments-v1"), events.get(1));
+
+        clock.advance(Duration.ofDays(1));
+        engine.getCreditModifier("50307179515");
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    void testInvalidModels() {
+        assertThrows(IllegalArgumentException.class, () -> model(AGE_MODEL.replace("25,60", "60,25")));
+        assertThrows(IllegalArgumentException.class, () -> model(AGE_MODEL.replace("-100,0,-50", "-100,0")));
+        assertThrows(IllegalArgumentException.class, () -> model(AGE_MODEL.replace("features=bureau-segment,age",
+                "features=bureau-segment,income")));
+        assertThrows(IllegalArgumentException.class, () -> model(AGE_MODEL.replace("version=age-v2", "")));
+    }
+
+    private static Scorecard model(String properties) throws IOException {
+        return ScorecardLoader.load(new ByteArrayInputStream(properties.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -1,21 +1,43 @@
 package ee.taltech.inbankbackend.service;
 
+import ee.taltech.inbankbackend.blacklist.Blacklist;
+import ee.taltech.inbankbackend.blacklist.BlacklistService;
 import ee.taltech.inbankbackend.config.DecisionEngineConstants;
 import ee.taltech.inbankbackend.dataobjects.Decision;
+import ee.taltech.inbankbackend.dataobjects.LoanApplication;
 import ee.taltech.inbankbackend.exceptions.*;
+import ee.taltech.inbankbackend.history.StripedApplicantHistory;
+import ee.taltech.inbankbackend.resilience.CreditModifierGuard;
+import ee.taltech.inbankbackend.resilience.LatencyBudgets;
+import ee.taltech.inbankbackend.rules.AgeRule;
+import ee.taltech.inbankbackend.rules.DebtToIncomeRule;
+import ee.taltech.inbankbackend.rules.IncomeRule;
+import ee.taltech.inbankbackend.rules.LoanAmountRule;
+import ee.taltech.inbankbackend.rules.LoanPeriodRule;
+import ee.taltech.inbankbackend.rules.MinimumIncomeRule;
+import ee.taltech.inbankbackend.rules.PersonalCodeRule;
+import ee.taltech.inbankbackend.rules.RulePipeline;
+import ee.taltech.inbankbackend.scoring.ScorecardEngine;
+import ee.taltech.inbankbackend.scoring.ScorecardLoader;
+import ee.taltech.inbankbackend.shadow.ShadowEvaluator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@ExtendWith(MockitoExtension.class)
+/**
+ * Runs the decision engine with the rule pipeline the application uses, configured like application.properties.
+ */
 class DecisionEngineTest {
 
-    @InjectMocks
+    private static final int MAX_APPLICATIONS = 5;
+    private static final String BLACKLISTED_PERSONAL_CODE = "38411266611";
+
     private DecisionEngine decisionEngine;
 
     private String debtorPersonalCode;
@@ -31,6 +53,18 @@ class DecisionEngineTest {
 
     @BeforeEach
     void setUp() {
+        decisionEngine = new DecisionEngine(new DefaultLoanCalculator(), creditModifierCalculator(),
+                new RulePipeline(List.of(new LoanAmountRule(), new LoanPeriodRule(), new PersonalCodeRule(),
+                        new AgeRule(), new IncomeRule(), new MinimumIncomeRule(0), new DebtToIncomeRule(50)),
+                        List.of("loan-amount", "loan-period", "personal-code", "age", "income", "minimum-income",
+                                "debt-to-income"), new SimpleMeterRegistry()),
+                new BlacklistService(Blacklist.of(List.of(BLACKLISTED_PERSONAL_CODE), 0.01, false),
+                        new SimpleMeterRegistry()),
+                new StripedApplicantHistory(MAX_APPLICATIONS, 24, 4),
+                new DefaultPricingEngine(BigDecimal.ZERO, 100),
+                new ShadowEvaluator(null, null, 0, 1, 1, new SimpleMeterRegistry()),
+                new LatencyBudgets(250, 10, 10, 10, 150, 10, 10, new SimpleMeterRegistry()),
+                new CreditModifierGuard(false, 50, 1, 20, 0.5, 5000, 2, new SimpleMeterRegistry()));
         debtorPersonalCode = "37605030299";
         segment1PersonalCode = "50307172740";
         segment2PersonalCode = "38411266610";
@@ -50,27 +84,34 @@ class DecisionEngineTest {
     }
 
     @Test
-    void testSegment1PersonalCode() throws InvalidLoanPeriodException, NoValidLoanException,
-            InvalidPersonalCodeException, InvalidLoanAmountException, InvalidAgeException {
+    void testSegment1PersonalCode() throws InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidPersonalCodeException, InvalidLoanAmountException, InvalidAgeException, TooManyApplicationsException {
         Decision decision = decisionEngine.calculateApprovedLoan(segment1PersonalCode, 4000L, 12,countryCodeEE);
         assertEquals(2000, decision.getLoanAmount());
         assertEquals(20, decision.getLoanPeriod());
     }
 
     @Test
-    void testSegment2PersonalCode() throws InvalidLoanPeriodException, NoValidLoanException,
-            InvalidPersonalCodeException, InvalidLoanAmountException, InvalidAgeException {
+    void testSegment2PersonalCode() throws InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidPersonalCodeException, InvalidLoanAmountException, InvalidAgeException, TooManyApplicationsException {
         Decision decision = decisionEngine.calculateApprovedLoan(segment2PersonalCode, 4000L, 12,countryCodeEE);
         assertEquals(3600, decision.getLoanAmount());
         assertEquals(12, decision.getLoanPeriod());
     }
 
     @Test
-    void testSegment3PersonalCode() throws InvalidLoanPeriodException, NoValidLoanException,
-            InvalidPersonalCodeException, InvalidLoanAmountException, InvalidAgeException {
+    void testSegment3PersonalCode() throws InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidPersonalCodeException, InvalidLoanAmountException, InvalidAgeException, TooManyApplicationsException {
         Decision decision = decisionEngine.calculateApprovedLoan(segment3PersonalCode, 4000L, 12,countryCodeEE);
         assertEquals(10000, decision.getLoanAmount());
         assertEquals(12, decision.getLoanPeriod());
+        assertEquals(DecisionEngineConstants.SEGMENT_3_ANNUAL_INTEREST_RATE, decision.getPricing().getAnnualInterestRate());
+    }
+
+    @Test
+    void testBlacklistedPersonalCode() {
+        assertThrows(NoValidLoanException.class,
+                () -> decisionEngine.calculateApprovedLoan(BLACKLISTED_PERSONAL_CODE, 4000L, 12,countryCodeEE));
     }
 
     @Test
@@ -105,8 +146,8 @@ class DecisionEngineTest {
     }
 
     @Test
-    void testFindSuitableLoanPeriod() throws InvalidLoanPeriodException, NoValidLoanException,
-            InvalidPersonalCodeException, InvalidLoanAmountException, InvalidAgeException {
+    void testFindSuitableLoanPeriod() throws InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException,
+            InvalidPersonalCodeException, InvalidLoanAmountException, InvalidAgeException, TooManyApplicationsException {
         Decision decision = decisionEngine.calculateApprovedLoan(segment2PersonalCode, 2000L, 12,countryCodeEE);
         assertEquals(3600, decision.getLoanAmount());
         assertEquals(12, decision.getLoanPeriod());
@@ -119,31 +160,68 @@ class DecisionEngineTest {
     }
 
     @Test
-    void testInvalidAgeEE() throws InvalidAgeException, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
+    void testInvalidAgeEE() throws InvalidAgeException, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException, TooManyApplicationsException {
         Decision decision = decisionEngine.calculateApprovedLoan(personalCodeWithInvalidAge, 4000L, 12,countryCodeEE);
         assertEquals("Age is not valid to apply for a loan!", decision.getErrorMessage());
     }
     @Test
-    void testInvalidAgeLV() throws InvalidAgeException, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
+    void testInvalidAgeLV() throws InvalidAgeException, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException, TooManyApplicationsException {
         Decision decision = decisionEngine.calculateApprovedLoan(personalCodeWithInvalidAge, 4000L, 12,countryCodeLV);
         assertEquals("Age is not valid to apply for a loan!", decision.getErrorMessage());
     }
     @Test
-    void testInvalidAgeLT() throws InvalidAgeException, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
+    void testInvalidAgeLT() throws InvalidAgeException, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException, TooManyApplicationsException {
         Decision decision = decisionEngine.calculateApprovedLoan(personalCodeWithInvalidAge, 4000L, 12,countryCodeLT);
         assertEquals("Age is not valid to apply for a loan!", decision.getErrorMessage());
     }
     @Test
-    void testAgeInFuture() throws InvalidAgeException, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
+    void testAgeInFuture() throws InvalidAgeException, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException, TooManyApplicationsException {
         Decision decision = decisionEngine.calculateApprovedLoan(personalCodeAgeinFuture, 4000L, 12,countryCodeEE);
         assertEquals("Birthdate is in the future", decision.getErrorMessage());
     }
     @Test
-    void testUnderage() throws InvalidAgeException, InvalidLoanPeriodException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException {
+    void testUnderage() throws InvalidAgeException, InvalidLoanPeriodException, InvalidIncomeException, NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException, TooManyApplicationsException {
         Decision decision = decisionEngine.calculateApprovedLoan(personalCodeUnderage, 4000L, 12,countryCodeEE);
         assertEquals("Age is not valid to apply for a loan!", decision.getErrorMessage());
     }
 
+    @Test
+    void testTooManyApplications() throws InvalidAgeException, InvalidLoanPeriodException, InvalidIncomeException,
+            NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException, TooManyApplicationsException {
+        for (int i = 0; i < MAX_APPLICATIONS; i++) {
+            decisionEngine.calculateApprovedLoan(segment2PersonalCode, 4000L, 12, countryCodeEE);
+        }
+
+        assertThrows(TooManyApplicationsException.class,
+                () -> decisionEngine.calculateApprovedLoan(segment2PersonalCode, 4000L, 12, countryCodeEE));
+        Decision decision = decisionEngine.calculateApprovedLoan(segment3PersonalCode, 4000L, 12, countryCodeEE);
+        assertEquals(10000, decision.getLoanAmount());
+    }
 
-}
+    @Test
+    void testDebtToIncomeRejection() throws InvalidAgeException, InvalidLoanPeriodException, InvalidIncomeException,
+            NoValidLoanException, InvalidPersonalCodeException, InvalidLoanAmountException, TooManyApplicationsException {
+        // 800 + 4000 / 20 = 1000, which is exactly 50% of 2000
+        Decision decision = decisionEngine.calculateApprovedLoan(
+                new LoanApplication(segment3PersonalCode, 4000L, 20, countryCodeEE, 2000L, 800L));
+        assertEquals(10000, decision.getLoanAmount());
 
+        NoValidLoanException rejection = assertThrows(NoValidLoanException.class,
+                () -> decisionEngine.calculateApprovedLoan(
+                        new LoanApplication(segment3PersonalCode, 4000L, 20, countryCodeEE, 2000L, 801L)));
+        assertEquals("No valid loan found!", rejection.getMessage());
+    }
+
+    @Test
+    void testNegativeIncomeIsRejected() {
+        InvalidIncomeException rejection = assertThrows(InvalidIncomeException.class,
+                () -> decisionEngine.calculateApprovedLoan(
+                        new LoanApplication(segment3PersonalCode, 4000L, 20, countryCodeEE, 2000L, -5000L)));
+        assertEquals("Invalid monthly income or debt!", rejection.getMessage());
+    }
+
+    private static DefaultCreditModifierCalculator creditModifierCalculator() {
+        return new DefaultCreditModifierCalculator(new ScorecardEngine(ScorecardLoader.bundled(), null,
+                new SimpleMeterRegistry()));
+    }
+}
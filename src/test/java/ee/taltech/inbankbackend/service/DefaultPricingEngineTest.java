@@ -0,0 +1,114 @@
+package ee.taltech.inbankbackend.service;
+
+import ee.taltech.inbankbackend.config.DecisionEngineConstants;
+import ee.taltech.inbankbackend.dataobjects.Installment;
+import ee.taltech.inbankbackend.dataobjects.LoanPricing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaultPricingEngineTest {
+
+    private static final BigDecimal ANNUAL_INTEREST_RATE = new BigDecimal("0.12");
+
+    private DefaultPricingEngine pricingEngine;
+
+    @BeforeEach
+    void setUp() {
+        pricingEngine = new DefaultPricingEngine(BigDecimal.ZERO, 100);
+    }
+
+    @Test
+    void testMonthlyPayment() {
+        LoanPricing pricing = pricingEngine.price(10000, 12, ANNUAL_INTEREST_RATE);
+        assertEquals(new BigDecimal("888.49"), pricing.getMonthlyPayment());
+        assertEquals(new BigDecimal("10661.86"), pricing.getTotalRepayment());
+    }
+
+    @Test
+    void testAprWithoutFee() {
+        LoanPricing pricing = pricingEngine.price(10000, 12, ANNUAL_INTEREST_RATE);
+        assertEquals(new BigDecimal("0.1268"), pricing.getApr());
+    }
+
+    @Test
+    void testAprWithFee() {
+        DefaultPricingEngine pricingEngineWithFee = new DefaultPricingEngine(new BigDecimal("100"), 100);
+        LoanPricing pricing = pricingEngineWithFee.price(10000, 12, ANNUAL_INTEREST_RATE);
+        assertTrue(pricing.getApr().compareTo(new BigDecimal("0.1268")) > 0);
+    }
+
+    @Test
+    void testZeroInterestRate() {
+        LoanPricing pricing = pricingEngine.price(2000, 12, BigDecimal.ZERO);
+        assertEquals(new BigDecimal("166.67"), pricing.getMonthlyPayment());
+        assertEquals(new BigDecimal("2000.00"), pricing.getTotalRepayment());
+        assertEquals(0, pricing.getApr().signum());
+    }
+
+    @Test
+    void testTinyInterestRatesArePricedAsZero() {
+        LoanPricing zero = pricingEngine.price(2000, 12, BigDecimal.ZERO);
+        for (String rate : List.of("1E-40", "1E-999999999")) {
+            LoanPricing pricing = pricingEngine.price(2000, 12, new BigDecimal(rate));
+            assertEquals(0, pricing.getAnnualInterestRate().signum());
+            assertEquals(zero.getMonthlyPayment(), pricing.getMonthlyPayment());
+            assertEquals(12, pricingEngine.schedule(2000, 12, new BigDecimal(rate)).count());
+        }
+    }
+
+    @Test
+    void testInterestRateIsRoundedToMaximumScale() {
+        LoanPricing pricing = pricingEngine.price(10000, 12, new BigDecimal("0.12000000049"));
+        assertEquals(new BigDecimal("0.120000"), pricing.getAnnualInterestRate());
+        assertEquals(new BigDecimal("888.49"), pricing.getMonthlyPayment());
+    }
+
+    @Test
+    void testScheduleRepaysLoanAmount() {
+        List<Installment> schedule = pricingEngine.schedule(7300, 60, new BigDecimal("0.1490"))
+                .collect(Collectors.toList());
+
+        assertEquals(60, schedule.size());
+        assertEquals(60, schedule.get(59).getMonth());
+        assertEquals(0, schedule.get(59).getRemainingBalance().signum());
+        BigDecimal principal = schedule.stream().map(Installment::getPrincipal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, principal.compareTo(BigDecimal.valueOf(7300)));
+        for (Installment installment : schedule) {
+            assertEquals(installment.getPayment(), installment.getPrincipal().add(installment.getInterest()));
+        }
+    }
+
+    @Test
+    void testScheduleMatchesTotalRepayment() {
+        LoanPricing pricing = pricingEngine.price(5000, 36, ANNUAL_INTEREST_RATE);
+        BigDecimal total = pricingEngine.schedule(5000, 36, ANNUAL_INTEREST_RATE)
+                .map(Installment::getPayment)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(pricing.getTotalRepayment(), total);
+    }
+
+    @Test
+    void testInterestRateBySegment() {
+        assertEquals(DecisionEngineConstants.SEGMENT_1_ANNUAL_INTEREST_RATE,
+                pricingEngine.price(DecisionEngineConstants.SEGMENT_1_CREDIT_MODIFIER, 2000, 20).getAnnualInterestRate());
+        assertEquals(DecisionEngineConstants.SEGMENT_2_ANNUAL_INTEREST_RATE,
+                pricingEngine.price(DecisionEngineConstants.SEGMENT_2_CREDIT_MODIFIER, 3600, 12).getAnnualInterestRate());
+        assertEquals(DecisionEngineConstants.SEGMENT_3_ANNUAL_INTEREST_RATE,
+                pricingEngine.price(DecisionEngineConstants.SEGMENT_3_CREDIT_MODIFIER, 10000, 12).getAnnualInterestRate());
+    }
+
+    @Test
+    void testPricingIsCached() {
+        LoanPricing first = pricingEngine.price(4000, 24, ANNUAL_INTEREST_RATE);
+        LoanPricing second = pricingEngine.price(4000, 24, new BigDecimal("0.1200"));
+        assertSame(first, second);
+    }
+}
@@ -0,0 +1,174 @@
+package ee.taltech.inbankbackend.shadow;
+
+import ee.taltech.inbankbackend.dataobjects.Decision;
+import ee.taltech.inbankbackend.exceptions.NoValidLoanException;
+import ee.taltech.inbankbackend.product.LoanProduct;
+import ee.taltech.inbankbackend.product.LoanProducts;
+import ee.taltech.inbankbackend.scoring.ScorecardEngine;
+import ee.taltech.inbankbackend.scoring.ScorecardLoader;
+import ee.taltech.inbankbackend.service.CreditModifierCalculator;
+import ee.taltech.inbankbackend.service.DefaultCreditModifierCalculator;
+import ee.taltech.inbankbackend.service.DefaultLoanCalculator;
+import ee.taltech.inbankbackend.service.LoanCalculator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShadowEvaluatorTest {
+
+    private static final String SEGMENT_2_PERSONAL_CODE = "38411266610";
+
+    private MeterRegistry registry;
+    private CreditModifierCalculator champion;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        champion = new DefaultCreditModifierCalculator(new ScorecardEngine(ScorecardLoader.bundled(), null, registry));
+    }
+
+    @Test
+    void testNoSamplingWithoutChallenger() {
+        ShadowEvaluator evaluator = new ShadowEvaluator(null, null, 1, 1, 10, registry);
+        assertFalse(evaluator.sample());
+    }
+
+    @Test
+    void testSampleRate() {
+        ShadowEvaluator evaluator = new ShadowEvaluator(champion, null, 0.1, 1, 10, registry);
+        int sampled = 0;
+        for (int i = 0; i < 100_000; i++) {
+            sampled += evaluator.sample() ? 1 : 0;
+        }
+        assertTrue(sampled > 9_000 && sampled < 11_000, "sampled " + sampled);
+    }
+
+    @Test
+    void testCreditModifierComparison() throws InterruptedException {
+        CreditModifierCalculator challenger = personalCode -> personalCode.endsWith("0") ? 100 : 300;
+        ShadowEvaluator evaluator = new ShadowEvaluator(challenger, null, 1, 1, 10, registry);
+
+        assertEquals(300, evaluator.getCreditModifier(champion, SEGMENT_2_PERSONAL_CODE));
+        assertEquals(100, evaluator.getCreditModifier(champion, "50307172740"));
+        assertEquals(300, evaluator.getCreditModifier(champion, "38411266611"));
+        evaluator.drain();
+
+        assertEquals(2, comparisons(ShadowEvaluator.CREDIT_MODIFIER, "match"));
+        assertEquals(1, comparisons(ShadowEvaluator.CREDIT_MODIFIER, "diverge"));
+        assertEquals(3, registry.get("loan.shadow.latency").tag("component", ShadowEvaluator.CREDIT_MODIFIER)
+                .tag("role", "challenger").timer().count());
+        assertEquals(3, registry.get("loan.shadow.latency.ratio").tag("component", ShadowEvaluator.CREDIT_MODIFIER)
+                .summary().count());
+    }
+
+    @Test
+    void testLoanComparison() throws InterruptedException, NoValidLoanException {
+        LoanCalculator challenger = (creditModifier, loanAmount, loanPeriod) -> {
+            if (creditModifier < 200) {
+                throw new NoValidLoanException("No valid loan found!");
+            }
+            return new Decision(Math.min(10000, creditModifier * loanPeriod), loanPeriod, null);
+        };
+        ShadowEvaluator evaluator = new ShadowEvaluator(null, challenger, 1, 1, 10, registry);
+        LoanCalculator loanChampion = new DefaultLoanCalculator();
+
+        assertEquals(3600, evaluator.calculateApprovedLoan(loanChampion, 300, 4000L, 12).getLoanAmount());
+        assertEquals(2000, evaluator.calculateApprovedLoan(loanChampion, 100, 4000L, 12).getLoanAmount());
+        assertThrows(NoValidLoanException.class, () -> evaluator.calculateApprovedLoan(loanChampion, 0, 4000L, 12));
+        evaluator.drain();
+
+        assertEquals(2, comparisons(ShadowEvaluator.LOAN_CALCULATOR, "match"));
+        assertEquals(1, comparisons(ShadowEvaluator.LOAN_CALCULATOR, "diverge"));
+    }
+
+    @Test
+    void testLoanChallengerIsBoundToProductLimits() throws InterruptedException, NoValidLoanException {
+        LoanProduct carLoan = new LoanProducts(List.of("car-loan:5000-30000:24-84:1"), "car-loan", registry)
+                .getDefault();
+        ShadowEvaluator evaluator = new ShadowEvaluator(null, new DefaultLoanCalculator(), 1, 1, 10, registry);
+
+        assertEquals(24000, evaluator.calculateApprovedLoan(carLoan.getLoanCalculator(), carLoan, 1000, 5000L, 24)
+                .getLoanAmount());
+        assertEquals(6900, evaluator.calculateApprovedLoan(carLoan.getLoanCalculator(), carLoan, 100, 5000L, 69)
+                .getLoanAmount());
+        evaluator.drain();
+
+        assertEquals(2, comparisons(ShadowEvaluator.LOAN_CALCULATOR, "match"));
+        assertEquals(0, comparisons(ShadowEvaluator.LOAN_CALCULATOR, "diverge"));
+    }
+
+    @Test
+    void testLoanChallengerWithFixedLimitsIsNotComparedForProducts() throws InterruptedException, NoValidLoanException {
+        LoanProduct carLoan = new LoanProducts(List.of("car-loan:5000-30000:24-84:1"), "car-loan", registry)
+                .getDefault();
+        LoanCalculator challenger = (creditModifier, loanAmount, loanPeriod) ->
+                new Decision(Math.min(10000, creditModifier * loanPeriod), loanPeriod, null);
+        ShadowEvaluator evaluator = new ShadowEvaluator(null, challenger, 1, 1, 10, registry);
+
+        evaluator.calculateApprovedLoan(carLoan.getLoanCalculator(), carLoan, 1000, 5000L, 24);
+        evaluator.drain();
+
+        assertEquals(0, comparisons(ShadowEvaluator.LOAN_CALCULATOR, "match"));
+        assertEquals(0, comparisons(ShadowEvaluator.LOAN_CALCULATOR, "diverge"));
+    }
+
+    @Test
+    void testChallengerErrorsAreCounted() throws InterruptedException {
+        CreditModifierCalculator challenger = personalCode -> {
+            throw new IllegalStateException("broken");
+        };
+        ShadowEvaluator evaluator = new ShadowEvaluator(challenger, null, 1, 1, 10, registry);
+
+        assertEquals(300, evaluator.getCreditModifier(champion, SEGMENT_2_PERSONAL_CODE));
+        evaluator.drain();
+
+        assertEquals(1, comparisons(ShadowEvaluator.CREDIT_MODIFIER, "error"));
+    }
+
+    @Test
+    void testFullQueueDropsComparisons() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CreditModifierCalculator challenger = personalCode -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 300;
+        };
+        ShadowEvaluator evaluator = new ShadowEvaluator(challenger, null, 1, 1, 1, registry);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(300, evaluator.getCreditModifier(champion, SEGMENT_2_PERSONAL_CODE));
+        }
+        release.countDown();
+        evaluator.drain();
+
+        double completed = comparisons(ShadowEvaluator.CREDIT_MODIFIER, "match");
+        double dropped = comparisons(ShadowEvaluator.CREDIT_MODIFIER, "dropped");
+        assertEquals(5, completed + dropped);
+        assertTrue(dropped >= 3, "dropped " + dropped);
+    }
+
+    @Test
+    void testUnknownChallengerBean() {
+        assertThrows(IllegalStateException.class, () -> new ShadowEvaluator(Map.of("defaultCreditModifierCalculator",
+                champion), Map.of(), "scorecardV2", "", 1, 1, 10, registry));
+    }
+
+    private double comparisons(String component, String outcome) {
+        return registry.get("loan.shadow.comparisons").tag("component", component).tag("outcome", outcome)
+                .counter().count();
+    }
+}
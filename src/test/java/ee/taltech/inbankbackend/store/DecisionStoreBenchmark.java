@@ -0,0 +1,90 @@
+package ee.taltech.inbankbackend.store;
+
+import ee.taltech.inbankbackend.util.ApplicationIds;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fills the decision store with 90 days of decisions and measures the latency of lookups by application id
+ * and by personal code. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class DecisionStoreBenchmark {
+
+    private static final int DAYS = 90;
+    private static final int DECISIONS_PER_DAY = 10_000;
+    private static final int CUSTOMERS = 100_000;
+    private static final int LOOKUPS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testLookupLatency() throws Exception {
+        PartitionedDecisionStoreTest.MutableClock clock = new PartitionedDecisionStoreTest.MutableClock();
+        PartitionedDecisionStore store = new PartitionedDecisionStore(directory, DAYS, 100_000,
+                PartitionedDecisionStoreTest.STORE_KEY, clock, new SimpleMeterRegistry());
+        Random random = new Random(1);
+        String[] ids = new String[DAYS * DECISIONS_PER_DAY];
+        try {
+            for (int day = 0; day < DAYS; day++) {
+                for (int i = 0; i < DECISIONS_PER_DAY; i++) {
+                    String id = ApplicationIds.next(clock.millis());
+                    ids[day * DECISIONS_PER_DAY + i] = id;
+                    store.record(new StoredDecision(id, clock.instant(), personalCode(random.nextInt(CUSTOMERS)),
+                            "EE", 4000L, 12, 200, 4000, 12, null, new BigDecimal("0.1490"),
+                            new BigDecimal("361.04"), new BigDecimal("0.1602")));
+                }
+                store.flush();
+                clock.advanceSeconds(24 * 60 * 60 - 1);
+            }
+
+            long[] idNanos = new long[LOOKUPS];
+            long[] codeNanos = new long[LOOKUPS];
+            long found = 0;
+            // The first round only warms up the JIT
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < LOOKUPS; i++) {
+                    String id = ids[random.nextInt(ids.length)];
+                    long start = System.nanoTime();
+                    found += store.findByApplicationId(id).isPresent() ? 1 : 0;
+                    idNanos[i] = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    found += store.findByPersonalCode(personalCode(random.nextInt(CUSTOMERS))).size();
+                    codeNanos[i] = System.nanoTime() - start;
+                }
+            }
+
+            System.out.printf("Decision store of %d days with %d decisions each%n", DAYS, DECISIONS_PER_DAY);
+            System.out.printf("  lookup by application id: median %.1f us, p99 %.1f us%n",
+                    percentile(idNanos, 0.5), percentile(idNanos, 0.99));
+            System.out.printf("  lookup by personal code: median %.1f us, p99 %.1f us%n",
+                    percentile(codeNanos, 0.5), percentile(codeNanos, 0.99));
+            assertTrue(found >= LOOKUPS);
+            assertEquals(DAYS, directory.toFile().list((dir, name) -> name.endsWith(".log")).length);
+        } finally {
+            store.destroy();
+        }
+    }
+
+    private static String personalCode(int customer) {
+        return Long.toString(30000000000L + customer);
+    }
+
+    private static double percentile(long[] nanos, double percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) (percentile * (sorted.length - 1))] / 1000.0;
+    }
+}
@@ -0,0 +1,235 @@
+package ee.taltech.inbankbackend.store;
+
+import ee.taltech.inbankbackend.util.ApplicationIds;
+import ee.taltech.inbankbackend.util.PersonalCodes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedDecisionStoreTest {
+
+    static final String STORE_KEY = "MDEyMzQ1Njc4OWFiY2RlZg==";
+    private static final String PERSONAL_CODE = "50307172740";
+    private static final String OTHER_PERSONAL_CODE = "38411266610";
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock();
+    private final List<PartitionedDecisionStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (PartitionedDecisionStore store : stores) {
+            store.destroy();
+        }
+    }
+
+    @Test
+    void testFindByApplicationIdAndPersonalCode() throws Exception {
+        PartitionedDecisionStore store = open();
+        StoredDecision first = decision(PERSONAL_CODE);
+        StoredDecision other = decision(OTHER_PERSONAL_CODE);
+        clock.advanceSeconds(60);
+        StoredDecision second = decision(PERSONAL_CODE);
+
+        store.record(first);
+        store.record(other);
+        store.record(second);
+        store.flush();
+
+        assertEquals(Optional.of(first), store.findByApplicationId(first.applicationId()));
+        assertEquals(Optional.of(other), store.findByApplicationId(other.applicationId()));
+        assertEquals(Optional.empty(), store.findByApplicationId(ApplicationIds.next(clock.millis())));
+        assertEquals(List.of(second, first), store.findByPersonalCode(PERSONAL_CODE));
+        assertEquals(List.of(), store.findByPersonalCode("not a code"));
+    }
+
+    @Test
+    void testDecisionsOfPastDaysAreSealed() throws Exception {
+        PartitionedDecisionStore store = open();
+        StoredDecision yesterday = decision(PERSONAL_CODE);
+        store.record(yesterday);
+        store.flush();
+
+        clock.advanceSeconds(24 * 60 * 60);
+        StoredDecision today = decision(PERSONAL_CODE);
+        store.record(today);
+        store.flush();
+
+        assertTrue(Files.exists(directory.resolve("2024-01-01.idx")));
+        assertFalse(Files.exists(directory.resolve("2024-01-02.idx")));
+        assertEquals(Optional.of(yesterday), store.findByApplicationId(yesterday.applicationId()));
+        assertEquals(List.of(today, yesterday), store.findByPersonalCode(PERSONAL_CODE));
+    }
+
+    @Test
+    void testDecisionsSurviveRestart() throws Exception {
+        PartitionedDecisionStore store = open();
+        StoredDecision decision = decision(PERSONAL_CODE);
+        store.record(decision);
+        store.flush();
+        store.destroy();
+
+        clock.advanceSeconds(24 * 60 * 60);
+        PartitionedDecisionStore reopened = open();
+
+        assertTrue(Files.exists(directory.resolve("2024-01-01.idx")));
+        assertEquals(Optional.of(decision), reopened.findByApplicationId(decision.applicationId()));
+        assertEquals(List.of(decision), reopened.findByPersonalCode(PERSONAL_CODE));
+    }
+
+    @Test
+    void testRecordTornByCrashIsCutOff() throws Exception {
+        PartitionedDecisionStore store = open();
+        StoredDecision decision = decision(PERSONAL_CODE);
+        store.record(decision);
+        store.flush();
+        store.destroy();
+        Files.write(directory.resolve("2024-01-01.log"), new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        PartitionedDecisionStore reopened = open();
+        StoredDecision next = decision(PERSONAL_CODE);
+        reopened.record(next);
+        reopened.flush();
+
+        assertEquals(Optional.of(decision), reopened.findByApplicationId(decision.applicationId()));
+        assertEquals(List.of(next, decision), reopened.findByPersonalCode(PERSONAL_CODE));
+    }
+
+    @Test
+    void testDaysBeyondRetentionAreDeleted() throws Exception {
+        PartitionedDecisionStore store = open();
+        StoredDecision old = decision(PERSONAL_CODE);
+        store.record(old);
+        store.flush();
+
+        clock.advanceSeconds(91L * 24 * 60 * 60);
+        StoredDecision recent = decision(PERSONAL_CODE);
+        store.record(recent);
+        store.flush();
+
+        assertEquals(Optional.empty(), store.findByApplicationId(old.applicationId()));
+        assertEquals(List.of(recent), store.findByPersonalCode(PERSONAL_CODE));
+        assertFalse(Files.exists(directory.resolve("2024-01-01.log")));
+        assertFalse(Files.exists(directory.resolve("2024-01-01.idx")));
+    }
+
+    @Test
+    void testDecisionsAreDroppedWhenQueueIsFull() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PartitionedDecisionStore store = new PartitionedDecisionStore(directory, 90, 1, STORE_KEY, clock, registry);
+        stores.add(store);
+
+        for (int i = 0; i < 1000; i++) {
+            store.record(decision(PERSONAL_CODE));
+        }
+        store.flush();
+
+        double written = registry.get("loan.decisions.store.records").tag("outcome", "written").counter().count();
+        double dropped = registry.get("loan.decisions.store.records").tag("outcome", "dropped").counter().count();
+        assertEquals(1000, written + dropped);
+        assertEquals((int) written, store.findByPersonalCode(PERSONAL_CODE).size());
+    }
+
+    @Test
+    void testPersonalCodesAreNotStoredInPlaintext() throws Exception {
+        PartitionedDecisionStore store = open();
+        StoredDecision yesterday = decision(PERSONAL_CODE);
+        store.record(yesterday);
+        store.flush();
+        clock.advanceSeconds(24 * 60 * 60);
+        StoredDecision today = decision(PERSONAL_CODE);
+        store.record(today);
+        store.flush();
+
+        byte[] code = PERSONAL_CODE.getBytes(StandardCharsets.UTF_8);
+        byte[] packedCode = ByteBuffer.allocate(Long.BYTES).putLong(PersonalCodes.pack(PERSONAL_CODE)).array();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                byte[] content = Files.readAllBytes(file);
+                assertFalse(contains(content, code), file.toString());
+                assertFalse(contains(content, packedCode), file.toString());
+            }
+        }
+        assertEquals(List.of(today, yesterday), store.findByPersonalCode(PERSONAL_CODE));
+    }
+
+    @Test
+    void testStoreKeyIsRequired() {
+        for (String key : new String[]{"", "not base64!", "MDEyMzQ1Njc="}) {
+            assertThrows(IllegalStateException.class, () -> new PartitionedDecisionStore(directory, 90, 1000, key,
+                    clock, new SimpleMeterRegistry()), key);
+        }
+    }
+
+    PartitionedDecisionStore open() throws IOException {
+        PartitionedDecisionStore store = new PartitionedDecisionStore(directory, 90, 1000, STORE_KEY, clock,
+                new SimpleMeterRegistry());
+        stores.add(store);
+        return store;
+    }
+
+    StoredDecision decision(String personalCode) {
+        return new StoredDecision(ApplicationIds.next(clock.millis()), clock.instant(), personalCode, "EE", 4000L, 12,
+                200, 2000, 20, null, new BigDecimal("0.1990"), new BigDecimal("115.92"), new BigDecimal("0.2180"));
+    }
+
+    private static boolean contains(byte[] content, byte[] value) {
+        for (int i = 0; i + value.length <= content.length; i++) {
+            int matched = 0;
+            while (matched < value.length && content[i + matched] == value[matched]) {
+                matched++;
+            }
+            if (matched == value.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static class MutableClock extends Clock {
+        private volatile Instant instant = Instant.parse("2024-01-01T12:00:00Z");
+
+        void advanceSeconds(long seconds) {
+            instant = instant.plusSeconds(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}